@@ -0,0 +1,102 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import java.util.Random;
+
+/**
+ * BenchmarkData -- synthetic data for the benchmarks. The same seed always gives the same data.
+ */
+class BenchmarkData
+{
+	final static long SEED = 20181102L;
+	final static float PANEL_WIDTH = 1280f;
+	final static float PANEL_HEIGHT = 800f;
+
+	/*
+	 * A serial sequence of trials between targets on a grid, with the selection coordinate scattered around the
+	 * center of each target (SD = 10 px) and movement times of 300-700 ms.
+	 */
+	static TrialBuffer trials(int numberOfTrials, long seed)
+	{
+		Random r = new Random(seed);
+		TrialBuffer trials = new TrialBuffer(numberOfTrials);
+		TargetGeometry[] grid = grid(4, 3, TargetGeometry.CIRCLE);
+		TargetGeometry from = grid[0];
+		for (int i = 0; i < numberOfTrials; ++i)
+		{
+			TargetGeometry to = grid[r.nextInt(grid.length)];
+			if (to == from)
+				to = grid[(r.nextInt(grid.length - 1) + 1 + indexOf(grid, from)) % grid.length];
+			float selectX = to.xCenter + (float)r.nextGaussian() * 10f;
+			float selectY = to.yCenter + (float)r.nextGaussian() * 10f;
+			trials.set(i, from.xCenter, from.yCenter, to.xCenter, to.yCenter, selectX, selectY,
+					300f + 400f * r.nextFloat(), selectX + (float)r.nextGaussian(), selectY + (float)r.nextGaussian());
+			from = to;
+		}
+		return trials;
+	}
+
+	// a grid of targets laid out as in FittsActivity.configureTargets
+	static TargetGeometry[] grid(int columns, int rows, int type)
+	{
+		float rowWidth = PANEL_WIDTH / columns;
+		float columnWidth = PANEL_HEIGHT / rows;
+		float targetWidth = rowWidth < columnWidth ? rowWidth : columnWidth;
+		TargetGeometry[] targets = new TargetGeometry[columns * rows];
+		for (int i = 0; i < columns; ++i)
+			for (int j = 0; j < rows; ++j)
+				targets[i + j * columns] = new TargetGeometry(type, (2 * i + 1) * rowWidth / 2.0f,
+						(2 * j + 1) * columnWidth / 2.0f, targetWidth, targetWidth);
+		return targets;
+	}
+
+	// uniformly distributed test coordinates on the panel
+	static float[][] points(int n, long seed)
+	{
+		Random r = new Random(seed);
+		float[][] p = new float[2][n];
+		for (int i = 0; i < n; ++i)
+		{
+			p[0][i] = r.nextFloat() * PANEL_WIDTH;
+			p[1][i] = r.nextFloat() * PANEL_HEIGHT;
+		}
+		return p;
+	}
+
+	/*
+	 * The two pointers of a sequence of pinch gestures, sampled at 240 Hz: each gesture (about 1 s) moves the fingers
+	 * apart or together about a center, with sub-pixel jitter. Returns {xA, yA, xB, yB}.
+	 */
+	static float[][] pinchTrace(int n, long seed)
+	{
+		Random r = new Random(seed);
+		float[][] p = new float[4][n];
+		float cx = 0f, cy = 0f, span = 0f, angle = 0f, rate = 0f;
+		for (int i = 0; i < n; ++i)
+		{
+			if (i % 240 == 0) // new gesture
+			{
+				cx = PANEL_WIDTH * (0.3f + 0.4f * r.nextFloat());
+				cy = PANEL_HEIGHT * (0.3f + 0.4f * r.nextFloat());
+				span = 100f + 300f * r.nextFloat();
+				angle = (float)(Math.PI * r.nextFloat());
+				rate = (r.nextBoolean() ? 1f : -1f) * (0.5f + r.nextFloat());
+			}
+			span = Math.max(20f, span + rate + (float)r.nextGaussian() * 0.3f);
+			float dx = (float)Math.cos(angle) * span / 2f;
+			float dy = (float)Math.sin(angle) * span / 2f;
+			p[0][i] = cx - dx + (float)r.nextGaussian() * 0.4f;
+			p[1][i] = cy - dy + (float)r.nextGaussian() * 0.4f;
+			p[2][i] = cx + dx + (float)r.nextGaussian() * 0.4f;
+			p[3][i] = cy + dy + (float)r.nextGaussian() * 0.4f;
+		}
+		return p;
+	}
+
+	private static int indexOf(TargetGeometry[] grid, TargetGeometry t)
+	{
+		for (int i = 0; i < grid.length; ++i)
+			if (grid[i] == t)
+				return i;
+		return -1;
+	}
+}
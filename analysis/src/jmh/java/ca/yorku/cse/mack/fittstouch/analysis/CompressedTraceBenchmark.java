@@ -0,0 +1,132 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CompressedTraceBenchmark -- CPU cost and size of writing a touch trace (Zoom sd4 rows at 240 Hz), as CSV or binary
+ * (BinaryLogWriter), uncompressed or compressed (CompressedDataFiles) at deflate level 1 or 6.
+ *
+ * One operation writes the rows of a sequence (ROWS samples) and flushes them, as the activity does at the end of each
+ * sequence (AsyncDataWriter). The rows are formatted, written, and compressed; the file is a byte counter. The size of
+ * the file per row is printed at the end of each run (so CSV/none over a variant is the space saved).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressedTraceBenchmark
+{
+	final static int ROWS = 2400; // 10 s of samples at 240 Hz
+
+	@Param({"csv", "binary"})
+	String format;
+
+	@Param({"none", "1", "6"})
+	String compression;
+
+	float[][] trace;
+	RowLeader leader;
+	StringBuilder sb4;
+	CsvRowWriter csv4;
+	BinaryLogWriter log4;
+	CountingOutputStream file;
+	OutputStream out;
+	Writer writer;
+	long rows, bytes;
+
+	// the file (counts the bytes written)
+	static class CountingOutputStream extends OutputStream
+	{
+		long count;
+
+		@Override
+		public void write(int b)
+		{
+			++count;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len)
+		{
+			count += len;
+		}
+	}
+
+	@Setup
+	public void setup()
+	{
+		trace = BenchmarkData.pinchTrace(ROWS, BenchmarkData.SEED);
+		leader = new RowLeader("P01", "S01", null, "G01", 1);
+		sb4 = new StringBuilder();
+		csv4 = new CsvRowWriter(BinaryLogSchema.ZOOM_SD4).to(sb4);
+	}
+
+	@Setup(Level.Iteration)
+	public void open() throws IOException
+	{
+		file = new CountingOutputStream();
+		out = compression.equals("none") ? file : CompressedDataFiles.compress(file, Integer.parseInt(compression));
+		writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		log4 = new BinaryLogWriter(BinaryLogSchema.ZOOM_SD4);
+		rows = 0;
+	}
+
+	@TearDown(Level.Iteration)
+	public void close() throws IOException
+	{
+		writer.close();
+		bytes = file.count;
+	}
+
+	@TearDown
+	public void report()
+	{
+		System.out.printf("%n%s/%s: %.1f bytes per row%n", format, compression, (double)bytes / rows);
+	}
+
+	@Benchmark
+	public long writeSequence() throws IOException
+	{
+		long time = 1541116800000L;
+		if (format.equals("csv"))
+		{
+			sb4.setLength(0);
+			for (int i = 0; i < ROWS; ++i)
+				DataRecords.appendZoomTouch(csv4, leader, "Right Index Finger", i / 240, 0,
+						i % 240 / 24, trace[0][i], trace[1][i], trace[2][i], trace[3][i], time + i * 4, 2.5f, null);
+			writer.append(sb4);
+			writer.flush();
+		} else
+		{
+			for (int i = 0; i < ROWS; ++i)
+				DataRecords.appendZoomTouch(log4, leader, "Right Index Finger", i / 240, 0,
+						i % 240 / 24, trace[0][i], trace[1][i], trace[2][i], trace[3][i], time + i * 4, 2.5f, null);
+			log4.writeTo(out);
+			out.flush();
+		}
+		rows += ROWS;
+		return file.count;
+	}
+}
@@ -0,0 +1,131 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DataTableBenchmark -- cost of loading a Zoom sd4 touch trace (ROWS rows, in memory) into columns: with DataTable,
+ * or by splitting each line into Strings, finding the columns by name in the header, and parsing the cells (as the
+ * analysis scripts did). "cursor" reads the same three columns from the file (in a temporary file, so in the page
+ * cache) with DataCursor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataTableBenchmark
+{
+	final static int ROWS = 100000;
+
+	@Param({"split", "table", "cursor"})
+	String reader;
+
+	byte[] file;
+	Path path;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		float[][] trace = BenchmarkData.pinchTrace(ROWS, BenchmarkData.SEED);
+		StringBuilder sb = new StringBuilder(BinaryLogSchema.ZOOM_SD4.getCsvHeader());
+		CsvRowWriter w = new CsvRowWriter(BinaryLogSchema.ZOOM_SD4).to(sb);
+		RowLeader leader = new RowLeader("P01", "S01", null, "G01", 1);
+		long time = 1700000000000L;
+		for (int i = 0; i < ROWS; ++i)
+			DataRecords.appendZoomTouch(w, leader, "Right Index Finger", i / 240, 0, i % 240 / 24, trace[0][i],
+					trace[1][i], trace[2][i], trace[3][i], time + i * 4, 2.5f, i % 24 == 0 ? "Start" : null);
+		file = sb.toString().getBytes(StandardCharsets.UTF_8);
+		path = Files.createTempDirectory("DataTableBenchmark").resolve("Zoom-P01-S01-G01-1-1-touch.sd4");
+		Files.write(path, file);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException
+	{
+		Files.delete(path);
+		Files.delete(path.getParent());
+	}
+
+	@Benchmark
+	public double load() throws IOException
+	{
+		if (reader.equals("table"))
+		{
+			DataTable t = DataTable.read(new ByteArrayInputStream(file), BinaryLogSchema.ZOOM_SD4);
+			return t.getFloats(8)[t.size() - 1] + t.getLongs(12)[t.size() - 1];
+		}
+		if (reader.equals("cursor"))
+		{
+			int[] trials = new int[1024];
+			float[] x = new float[1024];
+			long[] times = new long[1024];
+			int n = 0;
+			try (DataCursor c = DataCursor.open(path))
+			{
+				while (c.next())
+				{
+					if (n == x.length)
+					{
+						trials = Arrays.copyOf(trials, 2 * n);
+						x = Arrays.copyOf(x, 2 * n);
+						times = Arrays.copyOf(times, 2 * n);
+					}
+					trials[n] = c.getInt(5);
+					x[n] = c.getFloat(8);
+					times[n] = c.getLong(12);
+					++n;
+				}
+			}
+			return x[n - 1] + times[n - 1];
+		}
+
+		BufferedReader br = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(file),
+				StandardCharsets.UTF_8));
+		List<String> header = Arrays.asList(br.readLine().split(","));
+		int trialIdx = header.indexOf("TrialIdx"), xA = header.indexOf("PointerA_X"),
+				timeStamp = header.indexOf("TimeStamp");
+		int[] trials = new int[1024];
+		float[] x = new float[1024];
+		long[] times = new long[1024];
+		int n = 0;
+		String line;
+		while ((line = br.readLine()) != null)
+		{
+			String[] cells = line.split(",");
+			if (n == x.length)
+			{
+				trials = Arrays.copyOf(trials, 2 * n);
+				x = Arrays.copyOf(x, 2 * n);
+				times = Arrays.copyOf(times, 2 * n);
+			}
+			trials[n] = Integer.parseInt(cells[trialIdx]);
+			x[n] = Float.parseFloat(cells[xA]);
+			times[n] = Long.parseLong(cells[timeStamp]);
+			++n;
+		}
+		return x[n - 1] + times[n - 1];
+	}
+}
@@ -0,0 +1,66 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LatencyHistogramBenchmark -- the cost, per touch event, of the latency instrumentation of the handlers (see
+ * InputLatency in the app): reading the clock as the handler starts and returns, and recording the age of the event
+ * and the handler's duration in two LatencyHistograms.
+ *
+ * "clock" only reads the clock twice (the least any timing of a handler costs); "record" adds the two records. The
+ * event ages are log-normal, around a few ms, as on a device.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LatencyHistogramBenchmark
+{
+	final static int EVENTS = 1024; // a power of two
+
+	long[] eventAges;
+	LatencyHistogram age, duration;
+	int next;
+
+	@Setup
+	public void setup()
+	{
+		Random r = new Random(BenchmarkData.SEED);
+		eventAges = new long[EVENTS];
+		for (int i = 0; i < EVENTS; ++i)
+			eventAges[i] = (long)(Math.exp(r.nextGaussian()) * 3e6);
+		age = new LatencyHistogram("onTouch.age");
+		duration = new LatencyHistogram("onTouch.duration");
+	}
+
+	@Benchmark
+	public long clock()
+	{
+		long start = System.nanoTime();
+		long eventTime = start - eventAges[next++ & EVENTS - 1];
+		return System.nanoTime() - start + eventTime;
+	}
+
+	@Benchmark
+	public long record()
+	{
+		long start = System.nanoTime();
+		age.record(eventAges[next++ & EVENTS - 1]);
+		duration.record(System.nanoTime() - start);
+		return age.getCount();
+	}
+}
@@ -0,0 +1,87 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TargetBenchmark -- cost of hit-testing a touch coordinate against every target in a grid, by grid size.
+ *
+ * Each operation tests one coordinate against the whole grid (as when searching for the target under the finger).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TargetBenchmark
+{
+	final static int POINTS = 1024;
+
+	@Param({"4x3", "8x6", "16x12"})
+	String grid;
+
+	@Param({"CIRCLE", "RECTANGLE"})
+	String shape;
+
+	TargetGeometry[] targets;
+	float[] x, y;
+
+	@Setup
+	public void setup()
+	{
+		String[] size = grid.split("x");
+		int type = shape.equals("CIRCLE") ? TargetGeometry.CIRCLE : TargetGeometry.RECTANGLE;
+		targets = BenchmarkData.grid(Integer.parseInt(size[0]), Integer.parseInt(size[1]), type);
+		float[][] p = BenchmarkData.points(POINTS, BenchmarkData.SEED);
+		x = p[0];
+		y = p[1];
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(POINTS)
+	public int inTarget()
+	{
+		int hits = 0;
+		for (int i = 0; i < POINTS; ++i)
+			for (TargetGeometry t : targets)
+				if (t.inTarget(x[i], y[i]))
+					++hits;
+		return hits;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(POINTS)
+	public int circleInTarget()
+	{
+		int hits = 0;
+		for (int i = 0; i < POINTS; ++i)
+			for (TargetGeometry t : targets)
+				if (t.circleInTarget(x[i], y[i]))
+					++hits;
+		return hits;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(POINTS)
+	public float distanceFromTargetCenter()
+	{
+		float sum = 0f;
+		for (int i = 0; i < POINTS; ++i)
+			for (TargetGeometry t : targets)
+				sum += t.distanceFromTargetCenter(x[i], y[i]);
+		return sum;
+	}
+}
@@ -0,0 +1,90 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ThroughputBenchmark -- cost of computing throughput for a sequence, by number of trials.
+ *
+ * setData is measured through the TrialBuffer constructor (setData itself is private). getThroughput is measured both
+ * on a new object (includes setData and computing the summary) and on an object whose summary is already cached.
+ * getThroughputHighPrecision is getThroughput in high-precision mode (compare the two for the cost of the mode).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThroughputBenchmark
+{
+	@Param({"12", "100", "1000", "10000", "100000"})
+	int trialCount;
+
+	TrialBuffer trials;
+	Throughput cached;
+	ThroughputAccumulator accumulator;
+
+	@Setup
+	public void setup()
+	{
+		trials = BenchmarkData.trials(trialCount, BenchmarkData.SEED);
+		cached = newThroughput();
+		cached.getThroughput();
+		accumulator = new ThroughputAccumulator(40f, Throughput.SERIAL);
+	}
+
+	private Throughput newThroughput()
+	{
+		return new Throughput("bench", 0f, 40f, Throughput.ONE_DIMENSIONAL, Throughput.SERIAL, trials);
+	}
+
+	@Benchmark
+	public Throughput setData()
+	{
+		return newThroughput();
+	}
+
+	@Benchmark
+	public float getThroughput()
+	{
+		return newThroughput().getThroughput();
+	}
+
+	// the same, with double accumulation and compensated summation
+	@Benchmark
+	public float getThroughputHighPrecision()
+	{
+		Throughput t = newThroughput();
+		t.setHighPrecision(true);
+		return t.getThroughput();
+	}
+
+	@Benchmark
+	public float getThroughputCached()
+	{
+		return cached.getThroughput();
+	}
+
+	// the same statistics, accumulated one trial at a time (as in FittsActivity.calculateTrialData)
+	@Benchmark
+	public float accumulate()
+	{
+		accumulator.reset();
+		for (int i = 0; i < trials.size; ++i)
+			accumulator.addTrial(trials.fromX[i], trials.fromY[i], trials.toX[i], trials.toY[i], trials.selectX[i],
+					trials.selectY[i], trials.mt[i]);
+		return accumulator.getThroughput();
+	}
+}
@@ -0,0 +1,47 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ThroughputBootstrapBenchmark -- cost of bootstrap intervals for one sequence (10,000 resamples), by number of trials.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThroughputBootstrapBenchmark
+{
+	@Param({"12", "100", "1000"})
+	int trialCount;
+
+	Throughput throughput;
+	ThroughputBootstrap bootstrap;
+
+	@Setup
+	public void setup()
+	{
+		throughput = new Throughput("bench", 0f, 40f, Throughput.ONE_DIMENSIONAL, Throughput.SERIAL,
+				BenchmarkData.trials(trialCount, BenchmarkData.SEED));
+		bootstrap = new ThroughputBootstrap(ThroughputBootstrap.DEFAULT_RESAMPLES, BenchmarkData.SEED);
+	}
+
+	@Benchmark
+	public ThroughputBootstrap.Result bootstrap()
+	{
+		return bootstrap.run(throughput);
+	}
+}
@@ -0,0 +1,82 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TouchSampleRingBenchmark -- the cost, on the UI thread, of recording the touch samples of a pinch (Zoom sd4 rows at
+ * 240 Hz, in events of EVENT_ROWS rows: the current sample and its history).
+ *
+ * "encode" formats each row into the sd4 StringBuilder, as the activity did on the UI thread. "ring" puts the samples
+ * in a TouchSampleRing (claim, put, publish per event), as the activity does now; the consumer's part (encoding the
+ * rows, on the sample writer thread) is left out, except for releasing the slots.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TouchSampleRingBenchmark
+{
+	final static int ROWS = 2400; // 10 s of samples at 240 Hz
+	final static int EVENT_ROWS = 4; // rows per event (240 Hz samples, 60 Hz frames)
+
+	@Param({"encode", "ring"})
+	String path;
+
+	float[][] trace;
+	RowLeader leader;
+	StringBuilder sb4;
+	CsvRowWriter csv4;
+	TouchSampleRing ring;
+
+	@Setup
+	public void setup()
+	{
+		trace = BenchmarkData.pinchTrace(ROWS, BenchmarkData.SEED);
+		leader = new RowLeader("P01", "S01", null, "G01", 1);
+		sb4 = new StringBuilder();
+		csv4 = new CsvRowWriter(BinaryLogSchema.ZOOM_SD4).to(sb4);
+		ring = new TouchSampleRing(TouchSampleRing.DEFAULT_CAPACITY);
+	}
+
+	@Benchmark
+	public long recordSequence()
+	{
+		long time = 1541116800000L;
+		if (path.equals("encode"))
+		{
+			sb4.setLength(0);
+			for (int i = 0; i < ROWS; ++i)
+				DataRecords.appendZoomTouch(csv4, leader, "Right Index Finger", i / 240, 0,
+						i % 240 / 24, trace[0][i], trace[1][i], trace[2][i], trace[3][i], time + i * 4, 2.5f, null);
+			return sb4.length();
+		}
+		for (int i = 0; i < ROWS; i += EVENT_ROWS)
+		{
+			if (!ring.claim(2 * EVENT_ROWS))
+				throw new IllegalStateException("ring full");
+			ring.setContext(i / 240, 0, i % 240 / 24, 0);
+			for (int j = i; j < i + EVENT_ROWS; ++j)
+			{
+				ring.put(0, trace[0][j], trace[1][j], time + j * 4, 2.5f, 0);
+				ring.put(1, trace[2][j], trace[3][j], time + j * 4, 2.5f, 0);
+			}
+			ring.publish();
+		}
+		ring.release(ring.available());
+		return ring.getPublished();
+	}
+}
@@ -0,0 +1,59 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TrialRecordBenchmark -- cost of formatting the sd1 rows for a sequence (FittsActivity.calculateTrialData), by
+ * number of trials. The rows are appended to one reused StringBuilder, as in the activity.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrialRecordBenchmark
+{
+	@Param({"12", "100", "1000", "10000", "100000"})
+	int trialCount;
+
+	TrialBuffer trials;
+	RowLeader leader;
+	StringBuilder sb1;
+	CsvRowWriter csv1;
+
+	@Setup
+	public void setup()
+	{
+		trials = BenchmarkData.trials(trialCount, BenchmarkData.SEED);
+		leader = new RowLeader("P01", "S01", "B01", "G01", 1);
+		sb1 = new StringBuilder();
+		csv1 = new CsvRowWriter(BinaryLogSchema.FITTS_SD1).to(sb1);
+	}
+
+	@Benchmark
+	public int appendFittsTrial()
+	{
+		sb1.setLength(0);
+		for (int i = 0; i < trials.size; ++i)
+		{
+			float b = (float)Math.hypot(trials.selectX[i] - trials.toX[i], trials.selectY[i] - trials.toY[i]);
+			DataRecords.appendFittsTrial(csv1, leader, "Right Index Finger", i, 0,
+					trials.fromX[i], trials.fromY[i], trials.toX[i], trials.toY[i], i % 12, trials.downX[i],
+					trials.downY[i], trials.selectX[i], trials.selectY[i], 87.4f, b, 0, 0, 0, trials.mt[i]);
+		}
+		return sb1.length();
+	}
+}
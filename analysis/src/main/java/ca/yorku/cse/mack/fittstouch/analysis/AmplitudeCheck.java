@@ -0,0 +1,273 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * AmplitudeCheck -- verification of the amplitude data given to a Throughput object, and a report of the trials that
+ * fail.
+ *
+ * The Throughput object receives as arguments the "amplitude" for the sequence of trials as well as the center of the
+ * "from" and "to" targets for each trial. This class verifies the correctness of these data. The process and
+ * calculations are different for 1D tasks and 2D tasks. The 1D case is simple: The amplitude passed is the distance
+ * between the center of the two targets -- the "from" and "to" targets. This is identical for each trial in the
+ * sequence. The 2D case is more complicated.
+ *
+ * For the 2D case, the amplitude passed to the Throughput object is the diameter of the layout circle. This value is
+ * not necessarily the amplitude of movement for the trials, even if the movements are perfectly executed. The movement
+ * amplitudes for perfect movements are calculated here, and given the label "taskAdjustedAmplitude". The calculations
+ * are different depending on whether there is an even number of targets or an odd number of targets.
+ *
+ * 2D - Even Number of Targets. If there is an even number of targets, the first trial (index = 0) begins by selecting
+ * the start target and then moving directly across the layout circle to the target on the opposite side. The movement
+ * distance equals the diameter of the layout circle. However, the next trial (index = 1) is to the target beside the
+ * start target. The movement distance in this case is less than the diameter of the layout circle. The movement
+ * distance is depends on the number of targets.
+ *
+ * 2D - Odd Number of Targets. If there is an odd number of targets, the movement distance is the same for every trial.
+ * The distance is less than the diameter of the layout circle, because the target is slightly displaced from the
+ * location directly across the layout circle.
+ *
+ * The taskAdjustedAmplitude is proportional to the amplitude and otherwise depends only on the task type, the number of
+ * trials, and the parity of the trial index. So, the factors (taskAdjustedAmplitude / amplitude) for even- and
+ * odd-indexed trials are computed once per (task type, number of trials) and cached. Checking a trial is then one
+ * multiply and one compare.
+ *
+ * Grid layouts. The app lays the targets out on a grid, with each target at the centre of its cell, and the targets
+ * are selected in a random order, so there is no one amplitude for the sequence. For a grid, the taskAdjustedAmplitude
+ * from each target to each other target is computed once for the layout (see gridAmplitudes), and the amplitude of a
+ * trial is looked up by the indices of its "from" and "to" targets in the target order (see beginGrid). The layout
+ * must come from the configuration (the app's settings), not from the target centres in the data, or a target that
+ * is drawn in the wrong place is never reported.
+ *
+ * The taskAdjustedAmplitude and the computed amplitude, a, should be the same. Because we are dealing with floating
+ * point arithmetic and there may be some integer rounding issues for the location of targets as rendered on the
+ * screen, the comparison only requires that they are within WIGGLE units of each other. Trials that fail are collected
+ * in the report (trial index, expected amplitude, computed amplitude).
+ */
+@SuppressWarnings("unused")
+public class AmplitudeCheck
+{
+	// allow this much difference when verifying amplitudes
+	public final static float WIGGLE = 2.0f;
+
+	// {even-indexed factor, odd-indexed factor}, keyed by task type and number of trials
+	private final static ConcurrentHashMap<Long, float[]> FACTORS = new ConcurrentHashMap<Long, float[]>();
+
+	boolean checked;
+	float evenAmplitude, oddAmplitude; // the taskAdjustedAmplitude for even- and odd-indexed trials
+	float[][] gridAmplitudes; // the taskAdjustedAmplitude [from][to] of a grid layout (see beginGrid)
+	int[] targetOrder; // the target order of the grid layout sequence
+	int count;
+	int[] trialIndex;
+	float[] expected, computed;
+
+	AmplitudeCheck()
+	{
+		trialIndex = new int[4];
+		expected = new float[4];
+		computed = new float[4];
+	}
+
+	/**
+	 * Returns the factors (taskAdjustedAmplitude / amplitude) for even- and odd-indexed trials. The factors are computed
+	 * on the first call for a task type and number of trials, and cached.
+	 */
+	static float[] factors(int taskType, int numberOfTrials)
+	{
+		Long key = ((long)taskType << 32) | numberOfTrials;
+		float[] f = FACTORS.get(key);
+		if (f == null)
+		{
+			f = computeFactors(taskType, numberOfTrials);
+			FACTORS.putIfAbsent(key, f);
+		}
+		return f;
+	}
+
+	private static float[] computeFactors(int taskType, int numberOfTrials)
+	{
+		if (taskType == Throughput.TWO_DIMENSIONAL)
+		{
+			// even number of trials (taskAdjustedAmplitude is different for even- and odd-numbered trials)
+			if (numberOfTrials % 2 == 0)
+			{
+				float b = (float)Math.sin(Math.PI / numberOfTrials);
+				float theta = 0.5f * (float)Math.PI * (numberOfTrials - 2) / numberOfTrials;
+				float c = b * (float)Math.sin(theta);
+				float x = b * (float)Math.cos(theta);
+				return new float[] {1.0f, (float)Math.sqrt((1.0f - x) * (1.0f - x) + c * c)};
+			}
+			// odd number of trials (taskAdjustedAmplitude is the same for every trial in the sequence)
+			else
+			{
+				float b = (float)Math.sin(Math.PI / numberOfTrials);
+				float m = 2.0f * numberOfTrials;
+				float theta = 0.5f * (((float)Math.PI * (m - 2.0f)) / m);
+				float x = (b / 2.0f) / (float)Math.tan(theta);
+				float h = 1.0f - x;
+				float f = (float)Math.sqrt(h * h + (b / 2.0f) * (b / 2.0f));
+				return new float[] {f, f};
+			}
+		} else if (taskType == Throughput.ONE_DIMENSIONAL)
+			return new float[] {1.0f, 1.0f}; // the 1D case is simple (but still worth checking)
+		else
+			return new float[] {Float.NaN, Float.NaN}; // unknown task type (every trial fails)
+	}
+
+	// start checking a sequence
+	void begin(float amplitude, int taskType, int numberOfTrials)
+	{
+		float[] f = factors(taskType, numberOfTrials);
+		evenAmplitude = amplitude * f[0];
+		oddAmplitude = amplitude * f[1];
+		gridAmplitudes = null;
+		count = 0;
+		checked = true;
+	}
+
+	/*
+	 * Start checking a sequence of trials between the targets of a grid layout (see gridAmplitudes). Trial i is from
+	 * target targetOrder[i - 1] to target targetOrder[i]; the first trial is from target 0, as in the app. The target
+	 * order is read as the trials are checked, so the array may be refilled for each sequence.
+	 */
+	void beginGrid(float[][] gridAmplitudesArg, int[] targetOrderArg)
+	{
+		gridAmplitudes = gridAmplitudesArg;
+		targetOrder = targetOrderArg;
+		count = 0;
+		checked = true;
+	}
+
+	// the sequence is not checked (e.g., the amplitude is not known)
+	void skip()
+	{
+		gridAmplitudes = null;
+		count = 0;
+		checked = false;
+	}
+
+	// check the computed amplitude, a, for one trial
+	void check(int i, float a)
+	{
+		float taskAdjustedAmplitude;
+		if (gridAmplitudes != null)
+			taskAdjustedAmplitude = gridAmplitude(i);
+		else
+			taskAdjustedAmplitude = (i & 1) == 0 ? evenAmplitude : oddAmplitude;
+		if (!(Math.abs(a - taskAdjustedAmplitude) <= WIGGLE))
+			add(i, taskAdjustedAmplitude, a);
+	}
+
+	// the taskAdjustedAmplitude of trial i of a grid layout (NaN, so the trial fails, if a target is not in the grid)
+	private float gridAmplitude(int i)
+	{
+		if (i >= targetOrder.length)
+			return Float.NaN;
+		int from = i == 0 ? 0 : targetOrder[i - 1];
+		int to = targetOrder[i];
+		int n = gridAmplitudes.length;
+		return from >= 0 && from < n && to >= 0 && to < n ? gridAmplitudes[from][to] : Float.NaN;
+	}
+
+	// forget the result for trial i and later trials (e.g., a trial that is repeated)
+	void removeTrial(int i)
+	{
+		while (count > 0 && trialIndex[count - 1] >= i)
+			--count;
+	}
+
+	/**
+	 * Returns the taskAdjustedAmplitude from each target of a grid layout to each other target, indexed [from][to].
+	 * The targets are numbered along the rows, as in the app (target k is in column k % columns and row k / columns),
+	 * and are at the centres of cells of the size given. Compute this once for a layout and give it to each sequence
+	 * (see ThroughputAccumulator.setGridLayout and Throughput.checkGridLayout).
+	 */
+	public static float[][] gridAmplitudes(int columns, int rows, float cellWidth, float cellHeight)
+	{
+		int n = columns * rows;
+		float[][] table = new float[n][n];
+		for (int from = 0; from < n; ++from)
+			for (int to = 0; to < n; ++to)
+				table[from][to] = (float)Math.hypot((to % columns - from % columns) * cellWidth,
+						(to / columns - from / columns) * cellHeight);
+		return table;
+	}
+
+	private void add(int i, float taskAdjustedAmplitude, float a)
+	{
+		if (count == trialIndex.length)
+		{
+			int n = 2 * count;
+			trialIndex = Arrays.copyOf(trialIndex, n);
+			expected = Arrays.copyOf(expected, n);
+			computed = Arrays.copyOf(computed, n);
+		}
+		trialIndex[count] = i;
+		expected[count] = taskAdjustedAmplitude;
+		computed[count] = a;
+		++count;
+	}
+
+	/**
+	 * Returns true if the amplitude data were checked (they are not checked if neither the amplitude nor a grid
+	 * layout is known).
+	 */
+	public boolean isChecked()
+	{
+		return checked;
+	}
+
+	/**
+	 * Returns true if the amplitude data were checked and every trial passed.
+	 */
+	public boolean isValid()
+	{
+		return checked && count == 0;
+	}
+
+	/**
+	 * Returns the number of trials that failed the check.
+	 */
+	public int getViolationCount()
+	{
+		return count;
+	}
+
+	/**
+	 * Returns the trial index of the kth trial that failed.
+	 */
+	public int getTrialIndex(int k)
+	{
+		return trialIndex[k];
+	}
+
+	/**
+	 * Returns the expected amplitude (taskAdjustedAmplitude) of the kth trial that failed.
+	 */
+	public float getExpectedAmplitude(int k)
+	{
+		return expected[k];
+	}
+
+	/**
+	 * Returns the computed amplitude (the distance between the target centers) of the kth trial that failed.
+	 */
+	public float getComputedAmplitude(int k)
+	{
+		return computed[k];
+	}
+
+	@Override
+	public String toString()
+	{
+		if (!checked)
+			return "amplitude not checked";
+		StringBuilder sb = new StringBuilder();
+		sb.append(count).append(" amplitude violation(s)");
+		for (int k = 0; k < count; ++k)
+			sb.append(String.format("%n  trial=%d, task_adjusted_amplitude=%1.2f, computed_amplitude=%1.2f",
+					trialIndex[k], expected[k], computed[k]));
+		return sb.toString();
+	}
+}
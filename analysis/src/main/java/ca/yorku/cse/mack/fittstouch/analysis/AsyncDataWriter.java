@@ -0,0 +1,218 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * AsyncDataWriter -- writes data files on a dedicated thread, so the UI thread does not wait for storage.
+ *
+ * An activity submits a finished batch of records (e.g., the sd1 rows for a sequence, as text, or the bytes of a
+ * binary data file; see BinaryLogWriter) and returns immediately. The batch is copied and put on a bounded queue. The
+ * writer thread takes batches from the queue, in order, and writes and flushes them. If the queue is full (storage is
+ * slower than the data arrive for a long time), submit waits for space, so no data are dropped.
+ *
+ * close() must be called when the block is done (doEndBlock). It waits until every batch submitted has been written,
+ * then closes the files given to the constructor. Once close() returns, the data are on storage.
+ *
+ * A task (see submit(Runnable)) runs on the writer thread once the batches before it are written, e.g., to note the
+ * lengths of the files for the session journal (see SessionJournal.discard).
+ *
+ * submit may be called from more than one thread (the queue is thread-safe; e.g., ZoomActivity submits the sd4 rows
+ * from its sample writer thread), each submitting to its own files. close is called from the UI thread, once the others
+ * are done. An error writing a file is recorded by the writer thread and thrown from the next call to submit or from
+ * close.
+ */
+@SuppressWarnings("unused")
+public class AsyncDataWriter
+{
+	public final static int DEFAULT_CAPACITY = 64; // batches
+
+	// a batch of records for one file (text for a Writer, bytes for an OutputStream), or a task
+	private static class Batch
+	{
+		final Writer out;
+		final String data;
+		final OutputStream stream;
+		final byte[] bytes;
+		final Runnable task;
+
+		Batch(Writer outArg, String dataArg, OutputStream streamArg, byte[] bytesArg, Runnable taskArg)
+		{
+			out = outArg;
+			data = dataArg;
+			stream = streamArg;
+			bytes = bytesArg;
+			task = taskArg;
+		}
+	}
+
+	private final static Batch END = new Batch(null, null, null, null, null);
+
+	final Closeable[] outputs;
+	final BlockingQueue<Batch> queue;
+	final Thread thread;
+	volatile IOException error;
+	boolean closed;
+
+	/**
+	 * Creates the writer and starts its thread. The outputs are the files to close when the writer is closed.
+	 */
+	public AsyncDataWriter(int capacity, Closeable... outputsArg)
+	{
+		outputs = outputsArg.clone();
+		queue = new ArrayBlockingQueue<Batch>(capacity);
+		thread = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				writeLoop();
+			}
+		}, "AsyncDataWriter");
+		thread.start();
+	}
+
+	/**
+	 * Submits the data for writing to out (a copy of the data is taken, so the caller can clear and reuse its
+	 * StringBuilder). Returns when the batch is queued, not when it is written.
+	 */
+	public void submit(Writer out, CharSequence data) throws IOException
+	{
+		if (closed)
+			throw new IOException("writer is closed");
+		if (error != null)
+			throw error;
+		if (data.length() == 0)
+			return;
+		put(new Batch(out, data.toString(), null, null, null));
+	}
+
+	/**
+	 * Submits the first length bytes of data for writing to out (a copy is taken, so the caller can reuse its buffer).
+	 * Returns when the batch is queued, not when it is written.
+	 */
+	public void submit(OutputStream out, byte[] data, int length) throws IOException
+	{
+		if (closed)
+			throw new IOException("writer is closed");
+		if (error != null)
+			throw error;
+		if (length == 0)
+			return;
+		put(new Batch(null, null, out, Arrays.copyOf(data, length), null));
+	}
+
+	/**
+	 * Submits a task to run on the writer thread once the batches submitted before it are written and flushed (it is
+	 * skipped if one of them could not be written). The task must not throw (it handles its own errors). Returns when
+	 * the task is queued.
+	 */
+	public void submit(Runnable task) throws IOException
+	{
+		if (closed)
+			throw new IOException("writer is closed");
+		if (error != null)
+			throw error;
+		put(new Batch(null, null, null, null, task));
+	}
+
+	/**
+	 * Writes any data still queued, closes the output files, and stops the writer thread. Calling close again has no
+	 * effect.
+	 */
+	public void close() throws IOException
+	{
+		if (closed)
+			return;
+		closed = true;
+		put(END);
+		boolean interrupted = false;
+		while (thread.isAlive())
+		{
+			try
+			{
+				thread.join();
+			} catch (InterruptedException e)
+			{
+				interrupted = true; // keep waiting; the data must be written before we return
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		if (error != null)
+			throw error;
+	}
+
+	private void put(Batch b)
+	{
+		boolean interrupted = false;
+		while (true)
+		{
+			try
+			{
+				queue.put(b);
+				break;
+			} catch (InterruptedException e)
+			{
+				interrupted = true; // the batch must not be dropped
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	// runs on the writer thread
+	private void writeLoop()
+	{
+		while (true)
+		{
+			Batch b;
+			try
+			{
+				b = queue.take();
+			} catch (InterruptedException e)
+			{
+				continue; // only close() ends the loop
+			}
+			if (b == END)
+				break;
+			try
+			{
+				if (b.task != null)
+				{
+					if (error == null) // not if a batch before it was not written
+						b.task.run();
+				} else if (b.out != null)
+				{
+					b.out.write(b.data, 0, b.data.length());
+					b.out.flush();
+				} else
+				{
+					b.stream.write(b.bytes, 0, b.bytes.length);
+					b.stream.flush();
+				}
+			} catch (IOException e)
+			{
+				if (error == null)
+					error = e;
+			}
+		}
+
+		for (Closeable w : outputs)
+		{
+			try
+			{
+				w.close();
+			} catch (IOException e)
+			{
+				if (error == null)
+					error = e;
+			}
+		}
+	}
+}
@@ -0,0 +1,454 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * BatchReanalysis -- offline re-computation of throughput from archived FittsTouch sd1 files.
+ *
+ * Every FittsTouch-*.sd1 file in a directory is loaded into columns (see DataTable) and its rows are grouped into
+ * sequences. Compressed files (FittsTouch-*.sd1.gz; see CompressedDataFiles) are read too.
+ * A sequence is a run of consecutive rows with the same participant, session, combination, and BlockIdx. The trials of
+ * each sequence are given to a Throughput object and one summary row per sequence is written to a consolidated sd2
+ * file.
+ *
+ * Files are processed in parallel on a fork/join pool (one task per file, split recursively), so the run time scales
+ * with the number of cores. The output is in file name order, then sequence order, regardless of the number of
+ * threads.
+ *
+ * A Fitts' law model (MT vs. IDe) is also fit for each participant over their sequences. Each task builds the models
+ * for its files and the models are merged as the tasks are joined. The models are written to a second file (the output
+ * file name, with -model.csv in place of the extension).
+ *
+ * Usage: java ca.yorku.cse.mack.fittstouch.analysis.BatchReanalysis
+ * [-grid &lt;columns&gt;x&lt;rows&gt;:&lt;width&gt;x&lt;height&gt;] &lt;directory&gt;
+ * [&lt;output.sd2&gt; [&lt;threads&gt;]]
+ *
+ * NOTE: The sd1 file does not record the specified amplitude or width, so A, W, and ID are not output. Misses are
+ * counted from the IsMiss column (as in the app), not computed from the target width.
+ *
+ * The amplitude data of each sequence are verified against the grid layout of the app (see AmplitudeCheck), by the
+ * target order in the TargetZoneNumber column. The sd1 file does not record the layout either, so it is given with
+ * -grid: the number of target columns and rows (the app's settings) and the size of the panel they are laid out on
+ * (pixels). The number of trials that fail is output (AmplitudeViolations) and the failures are reported on the
+ * standard error. Without -grid the amplitudes are not checked (AmplitudeViolations is "unchecked"); the layout is
+ * never inferred from the target centres, since the data would then only be checked against themselves.
+ */
+@SuppressWarnings("unused")
+public class BatchReanalysis
+{
+	final static String SD1_GLOB = "FittsTouch-*.{sd1,sd1" + CompressedDataFiles.SUFFIX + "}";
+	final static String DEFAULT_OUTPUT = "FittsTouch-batch.sd2";
+	final static String SD2_HEADER = "Participant,Session,Block,Group,Condition,CurrentCombination,BlockIdx,Trials," +
+			"Ae,We,IDe,MT(ms),ErrorRate(%),TP(bps),AmplitudeViolations,SourceFile\n";
+	final static String MODEL_HEADER = "Participant,Sequences,Intercept(ms),Slope(ms/bit),R2\n";
+
+	// sd1 columns used (see BinaryLogSchema.FITTS_SD1)
+	final static int PARTICIPANT = 0, SESSION = 1, BLOCK = 2, GROUP = 3, CONDITION = 4, COMBINATION = 5,
+			TRIAL_IDX = 6, BLOCK_IDX = 7, FROM_X = 8, FROM_Y = 9, TARGET_X = 10, TARGET_Y = 11, DOWN_X = 13,
+			TARGET_ZONE = 12, DOWN_Y = 14, UP_X = 15, UP_Y = 16, IS_MISS = 19, TRIAL_TIME = 22;
+
+	/**
+	 * The result for one sequence of trials.
+	 */
+	public static class SequenceResult
+	{
+		final String participant, session, block, group, condition, combination, sourceFile;
+		final int blockIdx, misses, amplitudeViolations;
+		final ThroughputSummary summary;
+
+		SequenceResult(String[] key, int blockIdxArg, int missesArg, ThroughputSummary summaryArg,
+					   int amplitudeViolationsArg, String sourceFileArg)
+		{
+			participant = key[PARTICIPANT];
+			session = key[SESSION];
+			block = key[BLOCK];
+			group = key[GROUP];
+			condition = key[CONDITION];
+			combination = key[COMBINATION];
+			blockIdx = blockIdxArg;
+			misses = missesArg;
+			summary = summaryArg;
+			amplitudeViolations = amplitudeViolationsArg;
+			sourceFile = sourceFileArg;
+		}
+
+		public String getParticipant()
+		{
+			return participant;
+		}
+
+		public String getSession()
+		{
+			return session;
+		}
+
+		public String getCombination()
+		{
+			return combination;
+		}
+
+		public int getBlockIdx()
+		{
+			return blockIdx;
+		}
+
+		public ThroughputSummary getSummary()
+		{
+			return summary;
+		}
+
+		/**
+		 * Returns the number of trials whose amplitude does not match the grid layout (see AmplitudeCheck), or -1 if
+		 * the amplitudes were not checked (the layout was not given).
+		 */
+		public int getAmplitudeViolations()
+		{
+			return amplitudeViolations;
+		}
+
+		/**
+		 * Returns the error rate (%) from the IsMiss column.
+		 */
+		public float getErrorRate()
+		{
+			return (float)misses / summary.getNumberOfTrials() * 100.0f;
+		}
+
+		// one sd2 row (see SD2_HEADER)
+		void appendTo(StringBuilder sb)
+		{
+			sb.append(participant).append(',').append(session).append(',').append(block).append(',')
+					.append(group).append(',').append(condition).append(',').append(combination).append(',')
+					.append(blockIdx).append(',').append(summary.getNumberOfTrials()).append(',')
+					.append(summary.getAe()).append(',').append(summary.getWe()).append(',')
+					.append(summary.getIDe()).append(',').append(summary.getMT()).append(',')
+					.append(getErrorRate()).append(',').append(summary.getThroughput()).append(',')
+					.append(amplitudeViolations < 0 ? "unchecked" : Integer.toString(amplitudeViolations)).append(',')
+					.append(sourceFile).append('\n');
+		}
+	}
+
+	/**
+	 * The results of a batch: the sequences (in file order) and a Fitts' law model for each participant.
+	 */
+	public static class Batch
+	{
+		final List<SequenceResult> sequences = new ArrayList<SequenceResult>();
+		final TreeMap<String, FittsRegression> models = new TreeMap<String, FittsRegression>();
+
+		void add(SequenceResult r)
+		{
+			sequences.add(r);
+			model(r.participant).add(r.summary);
+		}
+
+		// append the other batch's sequences and merge its models into these
+		void merge(Batch other)
+		{
+			sequences.addAll(other.sequences);
+			for (Map.Entry<String, FittsRegression> e : other.models.entrySet())
+				model(e.getKey()).merge(e.getValue());
+		}
+
+		private FittsRegression model(String participant)
+		{
+			FittsRegression m = models.get(participant);
+			if (m == null)
+			{
+				m = new FittsRegression();
+				models.put(participant, m);
+			}
+			return m;
+		}
+
+		public List<SequenceResult> getSequences()
+		{
+			return sequences;
+		}
+
+		/**
+		 * Returns the Fitts' law model for each participant, sorted by participant code.
+		 */
+		public Map<String, FittsRegression> getModels()
+		{
+			return models;
+		}
+	}
+
+	final int threads;
+	final float[][] gridAmplitudes; // null if the grid layout is not known (see AmplitudeCheck.gridAmplitudes)
+
+	public BatchReanalysis(int threadsArg)
+	{
+		this(threadsArg, null);
+	}
+
+	/**
+	 * Creates a batch that verifies the amplitude data against the grid layout given (see
+	 * AmplitudeCheck.gridAmplitudes), or does not verify them if it is null.
+	 */
+	public BatchReanalysis(int threadsArg, float[][] gridAmplitudesArg)
+	{
+		threads = threadsArg;
+		gridAmplitudes = gridAmplitudesArg;
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		boolean grid = args.length > 0 && args[0].equals("-grid");
+		float[][] gridAmplitudes = grid && args.length > 1 ? parseGrid(args[1]) : null;
+		int a = grid ? 2 : 0; // the first argument after the options
+		if (args.length - a < 1 || grid && gridAmplitudes == null)
+		{
+			System.err.println("usage: BatchReanalysis [-grid <columns>x<rows>:<width>x<height>] <directory> " +
+					"[<output.sd2> [<threads>]]");
+			System.exit(1);
+		}
+		Path directory = Paths.get(args[a]);
+		Path output = args.length > a + 1 ? Paths.get(args[a + 1]) : directory.resolve(DEFAULT_OUTPUT);
+		int threads = args.length > a + 2 ? Integer.parseInt(args[a + 2]) : Runtime.getRuntime().availableProcessors();
+		if (gridAmplitudes == null)
+			System.err.println("amplitudes not checked (the grid layout is not known; see -grid)");
+
+		long start = System.nanoTime();
+		BatchReanalysis batch = new BatchReanalysis(threads, gridAmplitudes);
+		List<Path> files = listSd1Files(directory);
+		Batch results = batch.analyze(files);
+		writeSd2(results.getSequences(), output);
+		String name = output.getFileName().toString();
+		int dot = name.lastIndexOf('.');
+		Path modelOutput = output.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + "-model.csv");
+		writeModels(results.getModels(), modelOutput);
+		System.out.printf("%d files, %d sequences, %d participants, %d threads, %.1f ms -> %s, %s%n", files.size(),
+				results.getSequences().size(), results.getModels().size(), threads,
+				(System.nanoTime() - start) / 1000000.0, output, modelOutput);
+	}
+
+	/**
+	 * Returns the expected amplitudes (see AmplitudeCheck.gridAmplitudes) of a grid layout given as
+	 * &lt;columns&gt;x&lt;rows&gt;:&lt;width&gt;x&lt;height&gt; (the number of target columns and rows, and the size of
+	 * the panel, which is divided into cells as in the app), or null if the layout is not in this form.
+	 */
+	public static float[][] parseGrid(String s)
+	{
+		String[] v = s.split("[x:]");
+		if (v.length != 4)
+			return null;
+		try
+		{
+			int columns = Integer.parseInt(v[0]);
+			int rows = Integer.parseInt(v[1]);
+			float width = Float.parseFloat(v[2]);
+			float height = Float.parseFloat(v[3]);
+			if (columns < 1 || rows < 1 || !(width > 0f) || !(height > 0f))
+				return null;
+			return AmplitudeCheck.gridAmplitudes(columns, rows, width / columns, height / rows);
+		} catch (NumberFormatException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the FittsTouch sd1 files in the directory, sorted by name.
+	 */
+	public static List<Path> listSd1Files(Path directory) throws IOException
+	{
+		List<Path> files = new ArrayList<Path>();
+		try (DirectoryStream<Path> ds = Files.newDirectoryStream(directory, SD1_GLOB))
+		{
+			for (Path p : ds)
+				files.add(p);
+		}
+		Collections.sort(files);
+		return files;
+	}
+
+	/**
+	 * Analyzes the files in parallel and returns the results for all sequences (in file order) and the model for each
+	 * participant.
+	 */
+	public Batch analyze(List<Path> files)
+	{
+		if (files.isEmpty())
+			return new Batch();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try
+		{
+			return pool.invoke(new FileTask(files, 0, files.size(), gridAmplitudes));
+		} finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	// divide the list of files until each task has one file
+	static class FileTask extends RecursiveTask<Batch>
+	{
+		private static final long serialVersionUID = 1L;
+
+		final List<Path> files;
+		final int lo, hi;
+		final float[][] gridAmplitudes;
+
+		FileTask(List<Path> filesArg, int loArg, int hiArg, float[][] gridAmplitudesArg)
+		{
+			files = filesArg;
+			lo = loArg;
+			hi = hiArg;
+			gridAmplitudes = gridAmplitudesArg;
+		}
+
+		@Override
+		protected Batch compute()
+		{
+			if (hi - lo == 1)
+			{
+				Batch batch = new Batch();
+				try
+				{
+					for (SequenceResult r : analyzeFile(files.get(lo), gridAmplitudes))
+						batch.add(r);
+				} catch (IOException e)
+				{
+					System.err.println("ERROR READING " + files.get(lo) + ": " + e);
+				}
+				return batch;
+			}
+			int mid = (lo + hi) >>> 1;
+			FileTask left = new FileTask(files, lo, mid, gridAmplitudes);
+			FileTask right = new FileTask(files, mid, hi, gridAmplitudes);
+			left.fork();
+			Batch rightBatch = right.compute();
+			Batch batch = left.join();
+			batch.merge(rightBatch);
+			return batch;
+		}
+	}
+
+	/**
+	 * Reads one sd1 file and returns the results for its sequences, in the order they appear in the file. The
+	 * amplitude data are verified against the grid layout given (see AmplitudeCheck.gridAmplitudes), or not verified
+	 * if it is null.
+	 */
+	public static List<SequenceResult> analyzeFile(Path file, float[][] gridAmplitudes) throws IOException
+	{
+		List<SequenceResult> results = new ArrayList<SequenceResult>();
+		String sourceFile = file.getFileName().toString();
+		DataTable t = DataTable.read(file, BinaryLogSchema.FITTS_SD1);
+		int[] participant = t.getInts(PARTICIPANT), session = t.getInts(SESSION), combination = t.getInts(COMBINATION);
+		int[] trialIdx = t.getInts(TRIAL_IDX), blockIdx = t.getInts(BLOCK_IDX), isMiss = t.getInts(IS_MISS),
+				targetZone = t.getInts(TARGET_ZONE);
+		float[] fromX = t.getFloats(FROM_X), fromY = t.getFloats(FROM_Y), targetX = t.getFloats(TARGET_X),
+				targetY = t.getFloats(TARGET_Y), upX = t.getFloats(UP_X), upY = t.getFloats(UP_Y),
+				downX = t.getFloats(DOWN_X), downY = t.getFloats(DOWN_Y), trialTime = t.getFloats(TRIAL_TIME);
+
+		TrialBuffer trials = new TrialBuffer();
+		int[] targetOrder = new int[16]; // the target of each trial of the sequence (see AmplitudeCheck.beginGrid)
+		int first = 0; // the first row of the sequence
+		int misses = 0, lastMiss = 0;
+		for (int r = 0; r < t.size(); ++r)
+		{
+			if (r > first && (blockIdx[r] != blockIdx[first] || participant[r] != participant[first]
+					|| session[r] != session[first] || combination[r] != combination[first]))
+			{
+				results.add(summarize(key(t, first), blockIdx[first], trials, misses, gridAmplitudes,
+						targetOrder, sourceFile));
+				first = r;
+				trials.reset();
+				misses = 0;
+				lastMiss = 0;
+			}
+
+			// a repeated trial (same TrialIdx) replaces the earlier one, as in the app
+			int i = trialIdx[r] < trials.size() ? trialIdx[r] : trials.size();
+			if (i < trials.size())
+				misses -= lastMiss;
+			trials.set(i, fromX[r], fromY[r], targetX[r], targetY[r], upX[r], upY[r], trialTime[r], downX[r],
+					downY[r]);
+			if (i == targetOrder.length)
+				targetOrder = Arrays.copyOf(targetOrder, 2 * i);
+			targetOrder[i] = targetZone[r];
+			lastMiss = isMiss[r];
+			misses += lastMiss;
+		}
+		if (t.size() > 0)
+			results.add(summarize(key(t, first), blockIdx[first], trials, misses, gridAmplitudes,
+					targetOrder, sourceFile));
+		return results;
+	}
+
+	// the key columns of a row (participant ... combination)
+	private static String[] key(DataTable t, int row)
+	{
+		String[] key = new String[COMBINATION + 1];
+		for (int c = PARTICIPANT; c <= COMBINATION; ++c)
+			key[c] = c == CONDITION ? Integer.toString(t.getInts(c)[row]) : t.getString(c, row);
+		return key;
+	}
+
+	private static SequenceResult summarize(String[] key, int blockIdx, TrialBuffer trials, int misses,
+											float[][] gridAmplitudes, int[] targetOrder, String sourceFile)
+	{
+		String code = key[PARTICIPANT] + "-" + key[SESSION] + "-" + key[COMBINATION] + "-" + blockIdx;
+		Throughput t = new Throughput(code, 0f, 0f, Throughput.ONE_DIMENSIONAL, Throughput.SERIAL, trials);
+		int violations = -1; // not checked
+		if (gridAmplitudes != null)
+		{
+			AmplitudeCheck check = t.checkGridLayout(gridAmplitudes, targetOrder);
+			violations = check.getViolationCount();
+			if (violations > 0)
+				System.err.println(sourceFile + ", " + code + ": " + check);
+		}
+		return new SequenceResult(key, blockIdx, misses, t.getSummary(), violations, sourceFile);
+	}
+
+	/**
+	 * Writes the results to a consolidated sd2 file.
+	 */
+	public static void writeSd2(List<SequenceResult> results, Path output) throws IOException
+	{
+		try (BufferedWriter bw = Files.newBufferedWriter(output, StandardCharsets.UTF_8))
+		{
+			bw.write(SD2_HEADER);
+			StringBuilder sb = new StringBuilder();
+			for (SequenceResult r : results)
+			{
+				sb.setLength(0);
+				r.appendTo(sb);
+				bw.append(sb);
+			}
+		}
+	}
+
+	/**
+	 * Writes the Fitts' law model for each participant.
+	 */
+	public static void writeModels(Map<String, FittsRegression> models, Path output) throws IOException
+	{
+		try (BufferedWriter bw = Files.newBufferedWriter(output, StandardCharsets.UTF_8))
+		{
+			bw.write(MODEL_HEADER);
+			for (Map.Entry<String, FittsRegression> e : models.entrySet())
+			{
+				FittsRegression m = e.getValue();
+				bw.write(e.getKey() + "," + m.getN() + "," + m.getIntercept() + "," + m.getSlope() + "," +
+						m.getRSquared() + "\n");
+			}
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * BinaryLogConverter -- converts binary data files (see BinaryLogWriter) to the CSV files the app would have written.
+ *
+ * A binary file has the extension of its CSV file with "b" added (e.g., Zoom-...-touch.sd4b). The CSV file is written
+ * beside it, with the "b" removed (e.g., Zoom-...-touch.sd4). For other names, ".csv" is added. A compressed binary
+ * file (e.g., Zoom-...-touch.sd4b.gz; see CompressedDataFiles) is decompressed as it is read.
+ *
+ * Usage: java ca.yorku.cse.mack.fittstouch.analysis.BinaryLogConverter &lt;file&gt; ...
+ */
+public class BinaryLogConverter
+{
+	public static void main(String[] args)
+	{
+		if (args.length == 0)
+		{
+			System.err.println("usage: BinaryLogConverter <file> ...");
+			System.exit(1);
+		}
+		int errors = 0;
+		for (String arg : args)
+		{
+			Path in = Paths.get(arg);
+			Path out = csvPath(in);
+			try
+			{
+				long rows = convert(in, out);
+				System.out.printf("%s -> %s (%d rows, %d -> %d bytes)%n", in, out, rows, Files.size(in),
+						Files.size(out));
+			} catch (IOException e)
+			{
+				System.err.println("ERROR CONVERTING " + in + ": " + e);
+				++errors;
+			}
+		}
+		if (errors > 0)
+			System.exit(2);
+	}
+
+	/**
+	 * Returns the name of the CSV file for a binary file.
+	 */
+	public static Path csvPath(Path binary)
+	{
+		String name = binary.getFileName().toString();
+		if (name.endsWith(CompressedDataFiles.SUFFIX))
+			name = name.substring(0, name.length() - CompressedDataFiles.SUFFIX.length());
+		int dot = name.lastIndexOf('.');
+		if (dot > 0 && name.endsWith("b") && name.length() > dot + 2)
+			return binary.resolveSibling(name.substring(0, name.length() - 1));
+		return binary.resolveSibling(name + ".csv");
+	}
+
+	/**
+	 * Converts one binary file to CSV. Returns the number of rows.
+	 */
+	public static long convert(Path binary, Path csv) throws IOException
+	{
+		try (InputStream in = CompressedDataFiles.open(binary);
+			 Writer out = Files.newBufferedWriter(csv, StandardCharsets.UTF_8))
+		{
+			return BinaryLogReader.toCsv(in, out);
+		}
+	}
+}
@@ -0,0 +1,262 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * BinaryLogReader -- reads a binary data file written by BinaryLogWriter, one row at a time.
+ *
+ * The schema is read from the start of the file. Call next() to advance to the next row, then get the values of the
+ * row's columns (getInt, getString, ...) or append the row as CSV (appendCsv). The CSV is the same as the app writes
+ * for the file (header line from getSchema().getCsvHeader(), then one line per row).
+ */
+@SuppressWarnings("unused")
+public class BinaryLogReader implements Closeable
+{
+	final InputStream in;
+	final BinaryLogSchema schema;
+	final long[] values; // the current row (see BinaryLogWriter)
+	final long[] bases;
+	final ArrayList<String>[] dictionaries;
+	final byte[] scratch = new byte[8];
+	long rows;
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public BinaryLogReader(InputStream inArg) throws IOException
+	{
+		in = inArg instanceof BufferedInputStream ? inArg : new BufferedInputStream(inArg, 65536);
+		schema = BinaryLogSchema.read(this);
+		int n = schema.getColumnCount();
+		values = new long[n];
+		bases = new long[n];
+		dictionaries = new ArrayList[n];
+		for (int c = 0; c < n; ++c)
+			if (schema.types[c] == BinaryLogSchema.STRING)
+			{
+				dictionaries[c] = new ArrayList<String>();
+				dictionaries[c].add(null); // id 0 is absent
+			}
+	}
+
+	public BinaryLogSchema getSchema()
+	{
+		return schema;
+	}
+
+	/**
+	 * Advances to the next row. Returns false at the end of the file.
+	 */
+	public boolean next() throws IOException
+	{
+		while (true)
+		{
+			int tag = in.read();
+			if (tag < 0)
+				return false;
+			switch (tag)
+			{
+				case BinaryLogWriter.DICTIONARY:
+				{
+					int column = checkColumn(readUnsignedShort(), BinaryLogSchema.STRING);
+					int id = readUnsignedShort();
+					String s = new String(readBytes(readUnsignedShort()), StandardCharsets.UTF_8);
+					if (id != dictionaries[column].size())
+						throw new IOException("dictionary id out of order in column " + schema.names[column]);
+					dictionaries[column].add(s);
+					break;
+				}
+				case BinaryLogWriter.BASE:
+				{
+					int column = checkColumn(readUnsignedShort(), BinaryLogSchema.TIME);
+					bases[column] = readLong();
+					break;
+				}
+				case BinaryLogWriter.KEY:
+					for (int c = 0; c < values.length; ++c)
+						if (schema.isKey(c))
+							values[c] = readValue(c);
+					break;
+				case BinaryLogWriter.ROW:
+					for (int c = 0; c < values.length; ++c)
+						if (!schema.isKey(c))
+							values[c] = schema.types[c] == BinaryLogSchema.TIME ? bases[c] + readInt() : readValue(c);
+					++rows;
+					return true;
+				default:
+					throw new IOException("bad entry tag: " + tag);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of rows read.
+	 */
+	public long getRowCount()
+	{
+		return rows;
+	}
+
+	public String getString(int column)
+	{
+		return dictionaries[column].get((int)values[column]);
+	}
+
+	public int getInt(int column)
+	{
+		return (int)values[column];
+	}
+
+	public long getLong(int column)
+	{
+		return values[column];
+	}
+
+	public float getFloat(int column)
+	{
+		return Float.intBitsToFloat((int)values[column]);
+	}
+
+	/**
+	 * Appends the current row as a CSV line (including the newline). An absent STRING value is omitted, along with its
+	 * comma.
+	 */
+	public void appendCsv(StringBuilder sb)
+	{
+		boolean first = true;
+		for (int c = 0; c < values.length; ++c)
+		{
+			int type = schema.types[c];
+			if (type == BinaryLogSchema.STRING && values[c] == 0)
+				continue;
+			if (!first)
+				sb.append(',');
+			first = false;
+			switch (type)
+			{
+				case BinaryLogSchema.STRING:
+					sb.append(getString(c));
+					break;
+				case BinaryLogSchema.INT:
+					RecordEncoder.appendInt(sb, getInt(c));
+					break;
+				case BinaryLogSchema.FLOAT:
+					sb.append(getFloat(c));
+					break;
+				case BinaryLogSchema.FIXED:
+					RecordEncoder.appendFixed(sb, getFloat(c), schema.decimals[c]);
+					break;
+				default: // LONG, TIME
+					sb.append(values[c]);
+					break;
+			}
+		}
+		sb.append('\n');
+	}
+
+	/**
+	 * Converts a binary data file to CSV (header line and rows). Returns the number of rows.
+	 */
+	public static long toCsv(InputStream in, Writer out) throws IOException
+	{
+		BinaryLogReader r = new BinaryLogReader(in);
+		out.write(r.schema.getCsvHeader());
+		StringBuilder sb = new StringBuilder();
+		while (r.next())
+		{
+			r.appendCsv(sb);
+			if (sb.length() >= 65536)
+			{
+				out.append(sb);
+				sb.setLength(0);
+			}
+		}
+		out.append(sb);
+		return r.rows;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		in.close();
+	}
+
+	private int checkColumn(int column, int type) throws IOException
+	{
+		if (column >= values.length || schema.types[column] != type)
+			throw new IOException("bad column in entry: " + column);
+		return column;
+	}
+
+	private long readValue(int c) throws IOException
+	{
+		switch (schema.types[c])
+		{
+			case BinaryLogSchema.STRING:
+			{
+				int id = readUnsignedShort();
+				if (id >= dictionaries[c].size())
+					throw new IOException("undefined dictionary id " + id + " in column " + schema.names[c]);
+				return id;
+			}
+			case BinaryLogSchema.LONG:
+				return readLong();
+			default:
+				return readInt();
+		}
+	}
+
+	byte[] readBytes(int n) throws IOException
+	{
+		byte[] b = new byte[n];
+		readFully(b, n);
+		return b;
+	}
+
+	private void readFully(byte[] b, int n) throws IOException
+	{
+		int off = 0;
+		while (off < n)
+		{
+			int k = in.read(b, off, n - off);
+			if (k < 0)
+				throw new EOFException("unexpected end of file");
+			off += k;
+		}
+	}
+
+	int readUnsignedByte() throws IOException
+	{
+		int b = in.read();
+		if (b < 0)
+			throw new EOFException("unexpected end of file");
+		return b;
+	}
+
+	int readUnsignedShort() throws IOException
+	{
+		readFully(scratch, 2);
+		return (scratch[0] & 0xFF) | (scratch[1] & 0xFF) << 8;
+	}
+
+	int readInt() throws IOException
+	{
+		readFully(scratch, 4);
+		return (scratch[0] & 0xFF) | (scratch[1] & 0xFF) << 8 | (scratch[2] & 0xFF) << 16 | (scratch[3] & 0xFF) << 24;
+	}
+
+	long readLong() throws IOException
+	{
+		readFully(scratch, 8);
+		long lo = (scratch[0] & 0xFF) | (scratch[1] & 0xFF) << 8 | (scratch[2] & 0xFF) << 16
+				| (long)(scratch[3] & 0xFF) << 24;
+		long hi = (scratch[4] & 0xFF) | (scratch[5] & 0xFF) << 8 | (scratch[6] & 0xFF) << 16
+				| (long)(scratch[7] & 0xFF) << 24;
+		return lo | hi << 32;
+	}
+}
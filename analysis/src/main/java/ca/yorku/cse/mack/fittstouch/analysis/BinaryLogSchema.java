@@ -0,0 +1,361 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * BinaryLogSchema -- the columns of a data file: the registry of the data file formats, for both the CSV and the
+ * binary (see BinaryLogWriter) files.
+ *
+ * Each column has a name, a type, and (for FIXED) a number of decimal places. Key columns hold values that change
+ * slowly (participant, session, combination, trial index, ...). They are written only when one of them changes. The
+ * other columns are written in every row. STRING columns are dictionary coded. A STRING column may be marked to have
+ * its whitespace removed (as is done for the combination string in the CSV files). An optional column (the last only)
+ * is not in the CSV header and is absent from most rows.
+ *
+ * The schemas for the FittsTouch sd1 and sd4 files and the Zoom sd1, sd2, and sd4 files are defined below. Everything
+ * else is generated from them: the CSV header lines (getCsvHeader, used by the activities), the CSV and binary rows
+ * (DataRecords, with CsvRowWriter or BinaryLogWriter), and the readers (BinaryLogReader, DataTable). forFile gives the
+ * schema of a data file from its name.
+ *
+ * When a column is added to a format, the schema of the files written before is kept as an earlier version (e.g.,
+ * ZOOM_SD4_V1), so they can still be read. Earlier versions are only read, never written. forFile(Path) gives the
+ * version of a file from its header line.
+ *
+ * A schema is written at the start of each binary file, so a file can be read without knowing its schema in advance:
+ *
+ * <pre>
+ *     magic "FTB1"
+ *     u16 number of columns
+ *     per column: u8 type, u8 decimals, u8 flags (1 = key, 2 = strip whitespace), u16 name length, name (UTF-8)
+ *     u32 CSV header length, CSV header line (UTF-8)
+ * </pre>
+ *
+ * All numbers are little-endian.
+ */
+@SuppressWarnings("unused")
+public class BinaryLogSchema
+{
+	// column types (and the CSV conversion used)
+	public final static int STRING = 1; // u16 dictionary id (0 = absent; the field and its comma are omitted)
+	public final static int INT = 2; // i32, as %d
+	public final static int LONG = 3; // i64, as Long.toString
+	public final static int FLOAT = 4; // f32, as Float.toString (i.e., %s)
+	public final static int FIXED = 5; // f32, as %.Nf
+	public final static int TIME = 6; // i32 offset from a base (i64), as Long.toString (not for key columns)
+
+	final static int FLAG_KEY = 1;
+	final static int FLAG_STRIP = 2;
+	final static int FLAG_OPTIONAL = 4;
+
+	final static byte[] MAGIC = {'F', 'T', 'B', '1'};
+
+	public final static BinaryLogSchema FITTS_SD1 = new BinaryLogSchema(
+			new String[] {"Participant", "Session", "Block", "Group", "Condition", "CurrentCombination", "TrialIdx",
+					"BlockIdx", "FromX", "FromY", "TargetX", "TargetY", "TargetZoneNumber", "FingerDownX",
+					"FingerDownY", "FingerUpX", "FingerUpY", "FingerDownUpTime(ms)", "DistanceFromTargetCenter",
+					"IsMiss", "IsFingerDownMiss", "IsFingerUpMiss", "TrialTime(ms)"},
+			new int[] {STRING, STRING, STRING, STRING, INT, STRING, INT, INT, FLOAT, FLOAT, FLOAT, FLOAT, INT, FLOAT,
+					FLOAT, FLOAT, FLOAT, FIXED, FLOAT, INT, INT, INT, FIXED},
+			new int[] {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1},
+			new int[] {1, 1, 1, 1, 1, 1 | FLAG_STRIP, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0});
+
+	// one row per pointer sample (see DataRecords.appendFittsTouch); the last column is the "Down"/"Up"/"Cancel"
+	// marker of the sample of the pointer that went down or up (absent for other rows; not in the CSV header)
+	public final static BinaryLogSchema FITTS_SD4 = new BinaryLogSchema(
+			new String[] {"Participant", "Session", "Block", "Group", "Condition", "CurrentCombination", "TrialIdx",
+					"BlockIdx", "Pointer", "X", "Y", "TimeStamp", "DispatchDelay(ms)", "Marker"},
+			new int[] {STRING, STRING, STRING, STRING, INT, STRING, INT, INT, INT, FLOAT, FLOAT, TIME, FIXED, STRING},
+			new int[] {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0},
+			new int[] {1, 1, 1, 1, 1, 1 | FLAG_STRIP, 1, 1, 0, 0, 0, 0, 0, FLAG_OPTIONAL});
+
+	public final static BinaryLogSchema ZOOM_SD1 = new BinaryLogSchema(
+			new String[] {"Participant", "Session", "Group", "Combination", "CurrentCombination", "TrialIdx",
+					"BlockIdx", "TaskType", "NumberOfScales", "TrialTime(ms)"},
+			new int[] {STRING, STRING, STRING, INT, STRING, INT, INT, STRING, INT, FIXED},
+			new int[] {0, 0, 0, 0, 0, 0, 0, 0, 0, 1},
+			new int[] {1, 1, 1, 1, 1 | FLAG_STRIP, 0, 1, 0, 0, 0});
+
+	public final static BinaryLogSchema ZOOM_SD2 = new BinaryLogSchema(
+			new String[] {"Participant", "Session", "Group", "Combination", "CurrentCombination", "TrialIdx",
+					"BlockIdx", "ScaleNum", "ScaleTime(ms)", "ScaleSpan", "ScaleStartTime"},
+			new int[] {STRING, STRING, STRING, INT, STRING, INT, INT, INT, FIXED, FIXED, LONG},
+			new int[] {0, 0, 0, 0, 0, 0, 0, 0, 1, 2, 0},
+			new int[] {1, 1, 1, 1, 1 | FLAG_STRIP, 1, 1, 0, 0, 0, 0});
+
+	// the last column is the "Start"/"End" marker of a scale gesture (absent for other rows; not in the CSV header)
+	public final static BinaryLogSchema ZOOM_SD4 = new BinaryLogSchema(
+			new String[] {"Participant", "Session", "Group", "Combination", "CurrentCombination", "TrialIdx",
+					"BlockIdx", "ScaleNum", "PointerA_X", "PointerA_Y", "PointerB_X", "PointerB_Y", "TimeStamp",
+					"DispatchDelay(ms)", "Marker"},
+			new int[] {STRING, STRING, STRING, INT, STRING, INT, INT, INT, FLOAT, FLOAT, FLOAT, FLOAT, TIME, FIXED,
+					STRING},
+			new int[] {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0},
+			new int[] {1, 1, 1, 1, 1 | FLAG_STRIP, 1, 1, 1, 0, 0, 0, 0, 0, 0, FLAG_OPTIONAL});
+
+	// ZOOM_SD4 before the DispatchDelay(ms) column was added (the Zoom sd4 files written before; see forFile(Path))
+	public final static BinaryLogSchema ZOOM_SD4_V1 = new BinaryLogSchema(
+			new String[] {"Participant", "Session", "Group", "Combination", "CurrentCombination", "TrialIdx",
+					"BlockIdx", "ScaleNum", "PointerA_X", "PointerA_Y", "PointerB_X", "PointerB_Y", "TimeStamp",
+					"Marker"},
+			new int[] {STRING, STRING, STRING, INT, STRING, INT, INT, INT, FLOAT, FLOAT, FLOAT, FLOAT, TIME, STRING},
+			new int[] {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0},
+			new int[] {1, 1, 1, 1, 1 | FLAG_STRIP, 1, 1, 1, 0, 0, 0, 0, 0, FLAG_OPTIONAL});
+
+	final static int MAX_HEADER_LENGTH = 65536; // bytes (see forFile)
+
+	final String csvHeader;
+	final String[] names;
+	final int[] types, decimals, flags;
+	final int recordSize; // bytes per row entry (value columns only, excluding the tag)
+	final int keySize; // bytes per key entry (excluding the tag)
+
+	/**
+	 * Creates a schema. The CSV header line is the names of the columns (other than an optional column).
+	 */
+	public BinaryLogSchema(String[] namesArg, int[] typesArg, int[] decimalsArg, int[] flagsArg)
+	{
+		this(csvHeader(namesArg, flagsArg), namesArg, typesArg, decimalsArg, flagsArg);
+	}
+
+	public BinaryLogSchema(String csvHeaderArg, String[] namesArg, int[] typesArg, int[] decimalsArg, int[] flagsArg)
+	{
+		if (namesArg.length != typesArg.length || namesArg.length != decimalsArg.length
+				|| namesArg.length != flagsArg.length)
+			throw new IllegalArgumentException("names, types, decimals, and flags must have the same length");
+		csvHeader = csvHeaderArg;
+		names = namesArg.clone();
+		types = typesArg.clone();
+		decimals = decimalsArg.clone();
+		flags = flagsArg.clone();
+		int r = 0, k = 0;
+		for (int c = 0; c < types.length; ++c)
+		{
+			if (types[c] < STRING || types[c] > TIME)
+				throw new IllegalArgumentException("unknown type for column " + names[c] + ": " + types[c]);
+			if (isKey(c) && types[c] == TIME)
+				throw new IllegalArgumentException("a TIME column cannot be a key: " + names[c]);
+			if (isOptional(c) && (c != types.length - 1 || types[c] != STRING))
+				throw new IllegalArgumentException("only the last column can be optional (STRING): " + names[c]);
+			if (isKey(c))
+				k += width(types[c]);
+			else
+				r += width(types[c]);
+		}
+		recordSize = r;
+		keySize = k;
+	}
+
+	// the header line: the names of the columns other than an optional column
+	private static String csvHeader(String[] names, int[] flags)
+	{
+		StringBuilder sb = new StringBuilder();
+		for (int c = 0; c < names.length; ++c)
+		{
+			if ((flags[c] & FLAG_OPTIONAL) != 0)
+				continue;
+			if (sb.length() > 0)
+				sb.append(',');
+			sb.append(names[c]);
+		}
+		return sb.append('\n').toString();
+	}
+
+	/**
+	 * Returns the schema of a data file from its name (FittsTouch-*.sd1, FittsTouch-*.sd4, Zoom-*-trial.sd1,
+	 * Zoom-*-scale.sd2, or Zoom-*-touch.sd4; binary (e.g., .sd4b) and compressed (.gz) files too), or null if the name
+	 * is not that of a data file.
+	 */
+	public static BinaryLogSchema forFile(String name)
+	{
+		if (name.endsWith(CompressedDataFiles.SUFFIX))
+			name = name.substring(0, name.length() - CompressedDataFiles.SUFFIX.length());
+		if (name.endsWith("b"))
+			name = name.substring(0, name.length() - 1);
+		if (name.startsWith("FittsTouch-") && name.endsWith(".sd1"))
+			return FITTS_SD1;
+		if (name.startsWith("FittsTouch-") && name.endsWith(".sd4"))
+			return FITTS_SD4;
+		if (name.startsWith("Zoom-"))
+		{
+			if (name.endsWith("-trial.sd1"))
+				return ZOOM_SD1;
+			if (name.endsWith("-scale.sd2"))
+				return ZOOM_SD2;
+			if (name.endsWith("-touch.sd4"))
+				return ZOOM_SD4;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the schema of a data file from its name and its header line: the schema for its name (see forFile), or
+	 * the earlier version of it that has the file's header (e.g., ZOOM_SD4_V1). If no version has the header, the
+	 * schema for the name is returned, so the reader reports the header. Returns null if the name is not that of a data
+	 * file. A binary file's header is that of the schema it holds (see BinaryLogReader).
+	 */
+	public static BinaryLogSchema forFile(Path file) throws IOException
+	{
+		String name = file.getFileName().toString();
+		BinaryLogSchema schema = forFile(name);
+		if (schema == null)
+			return null;
+		BinaryLogSchema[] versions = getVersions(schema);
+		if (versions.length == 1)
+			return schema;
+		String header;
+		try (InputStream in = CompressedDataFiles.open(file))
+		{
+			if (name.endsWith(CompressedDataFiles.SUFFIX))
+				name = name.substring(0, name.length() - CompressedDataFiles.SUFFIX.length());
+			header = name.endsWith("b") ? new BinaryLogReader(in).getSchema().getCsvHeader().trim() : readLine(in);
+		}
+		for (BinaryLogSchema s : versions)
+			if (s.csvHeader.trim().equals(header))
+				return s;
+		return schema;
+	}
+
+	/**
+	 * Returns the versions of a schema that can be read, the current first (e.g., ZOOM_SD4 and ZOOM_SD4_V1).
+	 */
+	public static BinaryLogSchema[] getVersions(BinaryLogSchema schema)
+	{
+		if (schema == ZOOM_SD4 || schema == ZOOM_SD4_V1)
+			return new BinaryLogSchema[] {ZOOM_SD4, ZOOM_SD4_V1};
+		return new BinaryLogSchema[] {schema};
+	}
+
+	// the first line of the stream (without the line end), read a byte at a time
+	private static String readLine(InputStream in) throws IOException
+	{
+		byte[] b = new byte[256];
+		int length = 0;
+		for (int c = in.read(); c >= 0 && c != '\n' && length < MAX_HEADER_LENGTH; c = in.read())
+		{
+			if (length == b.length)
+				b = Arrays.copyOf(b, 2 * length);
+			b[length++] = (byte)c;
+		}
+		if (length > 0 && b[length - 1] == '\r')
+			--length;
+		return new String(b, 0, length, StandardCharsets.UTF_8);
+	}
+
+	// the number of bytes a value of the given type takes in a key or row entry
+	static int width(int type)
+	{
+		switch (type)
+		{
+			case STRING:
+				return 2;
+			case LONG:
+				return 8;
+			default:
+				return 4;
+		}
+	}
+
+	public int getColumnCount()
+	{
+		return names.length;
+	}
+
+	public String getName(int column)
+	{
+		return names[column];
+	}
+
+	public int getType(int column)
+	{
+		return types[column];
+	}
+
+	public int getDecimals(int column)
+	{
+		return decimals[column];
+	}
+
+	public boolean isKey(int column)
+	{
+		return (flags[column] & FLAG_KEY) != 0;
+	}
+
+	public boolean isStripped(int column)
+	{
+		return (flags[column] & FLAG_STRIP) != 0;
+	}
+
+	public boolean isOptional(int column)
+	{
+		return (flags[column] & FLAG_OPTIONAL) != 0;
+	}
+
+	/**
+	 * Returns the header line of the CSV file (including the newline).
+	 */
+	public String getCsvHeader()
+	{
+		return csvHeader;
+	}
+
+	/**
+	 * Returns the index of the column with the given name, or -1.
+	 */
+	public int indexOf(String name)
+	{
+		for (int c = 0; c < names.length; ++c)
+			if (names[c].equals(name))
+				return c;
+		return -1;
+	}
+
+	// write the schema (the file header)
+	void write(BinaryLogWriter w)
+	{
+		w.putBytes(MAGIC, 0, MAGIC.length);
+		w.putShort(names.length);
+		for (int c = 0; c < names.length; ++c)
+		{
+			w.putByte(types[c]);
+			w.putByte(decimals[c]);
+			w.putByte(flags[c]);
+			byte[] name = names[c].getBytes(StandardCharsets.UTF_8);
+			w.putShort(name.length);
+			w.putBytes(name, 0, name.length);
+		}
+		byte[] header = csvHeader.getBytes(StandardCharsets.UTF_8);
+		w.putInt(header.length);
+		w.putBytes(header, 0, header.length);
+	}
+
+	// read a schema (the file header)
+	static BinaryLogSchema read(BinaryLogReader r) throws IOException
+	{
+		byte[] magic = r.readBytes(MAGIC.length);
+		for (int i = 0; i < MAGIC.length; ++i)
+			if (magic[i] != MAGIC[i])
+				throw new IOException("not a binary data file (bad magic number)");
+		int n = r.readUnsignedShort();
+		String[] names = new String[n];
+		int[] types = new int[n], decimals = new int[n], flags = new int[n];
+		for (int c = 0; c < n; ++c)
+		{
+			types[c] = r.readUnsignedByte();
+			decimals[c] = r.readUnsignedByte();
+			flags[c] = r.readUnsignedByte();
+			names[c] = new String(r.readBytes(r.readUnsignedShort()), StandardCharsets.UTF_8);
+		}
+		String csvHeader = new String(r.readBytes(r.readInt()), StandardCharsets.UTF_8);
+		try
+		{
+			return new BinaryLogSchema(csvHeader, names, types, decimals, flags);
+		} catch (IllegalArgumentException e)
+		{
+			throw new IOException("bad schema: " + e.getMessage());
+		}
+	}
+}
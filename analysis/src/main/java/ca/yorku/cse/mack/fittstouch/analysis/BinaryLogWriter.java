@@ -0,0 +1,315 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * BinaryLogWriter -- encodes the rows of a data file in a compact binary format (an alternative to the CSV files).
+ *
+ * The file begins with the schema (see BinaryLogSchema). The rest of the file is a sequence of entries, each beginning
+ * with a one-byte tag:
+ *
+ * <pre>
+ *     'D' u16 column, u16 id, u16 length, UTF-8 bytes -- a new dictionary entry for a STRING column
+ *     'B' u16 column, i64 base -- a new base for a TIME column
+ *     'K' the values of the key columns (in column order) -- written when any key value changes
+ *     'R' the values of the other columns (in column order) -- one per row
+ * </pre>
+ *
+ * Key and row entries are fixed width (STRING 2 bytes, INT, FLOAT, FIXED, and TIME 4 bytes, LONG 8 bytes). All
+ * numbers are little-endian. So, a Zoom sd4 touch sample takes 27 bytes instead of about 90 characters, and no number
+ * is converted to text when writing.
+ *
+ * To write a row, set every column (setLeader, setString, setInt, ...) and call endRow (see RowWriter; CsvRowWriter
+ * writes the same rows as CSV). The entries are added to a reusable byte buffer, starting with the schema. Use writeTo
+ * (or getBuffer and size) to output the buffer, then clear it. The dictionaries and the last key are kept when the
+ * buffer is cleared, so the buffers written form one file. Apart from new dictionary entries and growing the buffer,
+ * nothing is allocated.
+ *
+ * Use BinaryLogReader or BinaryLogConverter to convert a binary file to the CSV file the app would write.
+ */
+@SuppressWarnings("unused")
+public class BinaryLogWriter implements RowWriter
+{
+	public final static byte DICTIONARY = 'D';
+	public final static byte BASE = 'B';
+	public final static byte KEY = 'K';
+	public final static byte ROW = 'R';
+
+	final BinaryLogSchema schema;
+	final long[] values; // the current row (STRING: dictionary id; FLOAT and FIXED: float bits)
+	final long[] lastKey;
+	final long[] bases; // TIME columns
+	final boolean[] hasBase;
+	final HashMap<String, Integer>[] dictionaries;
+	final String[] lastStrings; // the string each STRING column was last set to (its id is in values)
+	boolean keyWritten;
+	long rows;
+
+	byte[] buffer;
+	int size;
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public BinaryLogWriter(BinaryLogSchema schemaArg)
+	{
+		schema = schemaArg;
+		int n = schema.getColumnCount();
+		values = new long[n];
+		lastKey = new long[n];
+		bases = new long[n];
+		hasBase = new boolean[n];
+		dictionaries = new HashMap[n];
+		lastStrings = new String[n];
+		for (int c = 0; c < n; ++c)
+			if (schema.types[c] == BinaryLogSchema.STRING)
+				dictionaries[c] = new HashMap<String, Integer>();
+		buffer = new byte[4096];
+		schema.write(this);
+	}
+
+	@Override
+	public BinaryLogSchema getSchema()
+	{
+		return schema;
+	}
+
+	@Override
+	public void setLeader(RowLeader leader, String combination)
+	{
+		leader.setColumns(this, combination);
+	}
+
+	/**
+	 * Sets a STRING column (null for absent). Setting the same String object as in the last row (e.g., the leading
+	 * columns; see RowLeader) needs no dictionary lookup.
+	 */
+	@Override
+	public void setString(int column, String s)
+	{
+		if (s == null)
+		{
+			values[column] = 0;
+			lastStrings[column] = null;
+			return;
+		}
+		if (s == lastStrings[column])
+			return; // values[column] is still its id
+		HashMap<String, Integer> dictionary = dictionaries[column];
+		Integer id = dictionary.get(s);
+		if (id == null)
+		{
+			if (dictionary.size() == 0xFFFF)
+				throw new IllegalStateException("too many distinct values in column " + schema.names[column]);
+			id = dictionary.size() + 1;
+			dictionary.put(s, id);
+			String value = s;
+			if (schema.isStripped(column))
+			{
+				StringBuilder sb = new StringBuilder(s.length());
+				RecordEncoder.appendStripped(sb, s);
+				value = sb.toString();
+			}
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			putByte(DICTIONARY);
+			putShort(column);
+			putShort(id);
+			putShort(bytes.length);
+			putBytes(bytes, 0, bytes.length);
+		}
+		values[column] = id;
+		lastStrings[column] = s;
+	}
+
+	/**
+	 * Sets an INT column.
+	 */
+	@Override
+	public void setInt(int column, int value)
+	{
+		values[column] = value;
+	}
+
+	/**
+	 * Sets a LONG or TIME column.
+	 */
+	@Override
+	public void setLong(int column, long value)
+	{
+		values[column] = value;
+	}
+
+	/**
+	 * Sets a FLOAT or FIXED column.
+	 */
+	@Override
+	public void setFloat(int column, float value)
+	{
+		values[column] = Float.floatToRawIntBits(value);
+	}
+
+	/**
+	 * Adds the row with the values set (a key entry is added first if a key value changed).
+	 */
+	@Override
+	public void endRow()
+	{
+		int n = values.length;
+		boolean keyChanged = !keyWritten;
+		for (int c = 0; c < n && !keyChanged; ++c)
+			if (schema.isKey(c) && values[c] != lastKey[c])
+				keyChanged = true;
+		if (keyChanged)
+		{
+			putByte(KEY);
+			for (int c = 0; c < n; ++c)
+				if (schema.isKey(c))
+				{
+					putValue(schema.types[c], values[c]);
+					lastKey[c] = values[c];
+				}
+			keyWritten = true;
+		}
+
+		// a TIME value is an offset from the column's base (a new base is written if the offset does not fit)
+		for (int c = 0; c < n; ++c)
+			if (schema.types[c] == BinaryLogSchema.TIME)
+			{
+				long offset = values[c] - bases[c];
+				if (!hasBase[c] || offset < Integer.MIN_VALUE || offset > Integer.MAX_VALUE)
+				{
+					bases[c] = values[c];
+					hasBase[c] = true;
+					putByte(BASE);
+					putShort(c);
+					putLong(bases[c]);
+				}
+			}
+
+		putByte(ROW);
+		for (int c = 0; c < n; ++c)
+			if (!schema.isKey(c))
+			{
+				if (schema.types[c] == BinaryLogSchema.TIME)
+					putInt((int)(values[c] - bases[c]));
+				else
+					putValue(schema.types[c], values[c]);
+			}
+		++rows;
+	}
+
+	/**
+	 * Adds the current row of a reader with the same schema (e.g., to rebuild a file and the writer's state).
+	 */
+	public void addRow(BinaryLogReader r)
+	{
+		for (int c = 0; c < values.length; ++c)
+		{
+			if (schema.types[c] == BinaryLogSchema.STRING)
+				setString(c, r.getString(c));
+			else
+				values[c] = r.values[c];
+		}
+		endRow();
+	}
+
+	/**
+	 * Returns the number of rows written (since the writer was created).
+	 */
+	public long getRowCount()
+	{
+		return rows;
+	}
+
+	/**
+	 * Returns the buffer (the first size() bytes are valid).
+	 */
+	public byte[] getBuffer()
+	{
+		return buffer;
+	}
+
+	/**
+	 * Returns the number of bytes in the buffer.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Empties the buffer (call after the buffer is output).
+	 */
+	public void clear()
+	{
+		size = 0;
+	}
+
+	/**
+	 * Writes the buffer to out and clears it.
+	 */
+	public void writeTo(OutputStream out) throws IOException
+	{
+		out.write(buffer, 0, size);
+		size = 0;
+	}
+
+	private void putValue(int type, long v)
+	{
+		switch (type)
+		{
+			case BinaryLogSchema.STRING:
+				putShort((int)v);
+				break;
+			case BinaryLogSchema.LONG:
+				putLong(v);
+				break;
+			default:
+				putInt((int)v);
+				break;
+		}
+	}
+
+	private void ensure(int n)
+	{
+		if (size + n > buffer.length)
+			buffer = Arrays.copyOf(buffer, Math.max(2 * buffer.length, size + n));
+	}
+
+	void putByte(int v)
+	{
+		ensure(1);
+		buffer[size++] = (byte)v;
+	}
+
+	void putShort(int v)
+	{
+		ensure(2);
+		buffer[size++] = (byte)v;
+		buffer[size++] = (byte)(v >>> 8);
+	}
+
+	void putInt(int v)
+	{
+		ensure(4);
+		buffer[size++] = (byte)v;
+		buffer[size++] = (byte)(v >>> 8);
+		buffer[size++] = (byte)(v >>> 16);
+		buffer[size++] = (byte)(v >>> 24);
+	}
+
+	void putLong(long v)
+	{
+		putInt((int)v);
+		putInt((int)(v >>> 32));
+	}
+
+	void putBytes(byte[] b, int offset, int length)
+	{
+		ensure(length);
+		System.arraycopy(b, offset, buffer, size, length);
+		size += length;
+	}
+}
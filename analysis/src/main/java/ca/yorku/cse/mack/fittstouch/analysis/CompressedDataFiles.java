@@ -0,0 +1,184 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * CompressedDataFiles -- streaming gzip compression for data files with many rows (e.g., the Zoom sd4 touch trace).
+ *
+ * A compressed file is written through a GZIPOutputStream in sync-flush mode. Each flush (AsyncDataWriter flushes after
+ * every batch, i.e., every sequence) ends a deflate block on a byte boundary, so all the data flushed can be
+ * decompressed even if the app is killed before the file is closed. The name of a compressed file has ".gz" added
+ * (e.g., Zoom-...-touch.sd4.gz), so the usual tools (gunzip, zcat) also read it. A file opened for appending gets a new
+ * gzip member; a file with several members decompresses to their concatenation.
+ *
+ * A file that was not closed can also be cut back to the end of a flush and completed (see truncate), e.g., to resume
+ * a session from its journal (see SessionJournal): getTrailer, after the flush, gives the gzip trailer that ends the
+ * member there.
+ *
+ * open and openReader read a data file whether it is compressed or not (a gzip file is recognized by its first two
+ * bytes, not its name), so the offline tools (BatchReanalysis, BinaryLogConverter) read both. A compressed file that
+ * was not closed is read up to its last flush.
+ *
+ * The default deflate level is 1 (fastest). Touch traces are repetitive, so higher levels save little more space for
+ * much more CPU time; see CompressedTraceBenchmark.
+ */
+@SuppressWarnings("unused")
+public class CompressedDataFiles
+{
+	public final static String SUFFIX = ".gz";
+	public final static int DEFAULT_LEVEL = Deflater.BEST_SPEED;
+
+	final static int BUFFER_SIZE = 65536;
+
+	// GZIPOutputStream with a deflate level other than the default
+	private static class LevelGZIPOutputStream extends GZIPOutputStream
+	{
+		LevelGZIPOutputStream(OutputStream out, int level) throws IOException
+		{
+			super(out, BUFFER_SIZE, true); // sync flush
+			def.setLevel(level);
+		}
+
+		// the CRC-32 and size (mod 2^32) of the data written so far, as in the trailer (little-endian)
+		long getTrailer()
+		{
+			return crc.getValue() | (def.getBytesRead() & 0xFFFFFFFFL) << 32;
+		}
+	}
+
+	// GZIPInputStream that ends quietly at the end of a file that was not closed (the data up to the last flush)
+	private static class UnclosedGZIPInputStream extends GZIPInputStream
+	{
+		boolean truncated;
+
+		UnclosedGZIPInputStream(InputStream in) throws IOException
+		{
+			super(in, BUFFER_SIZE);
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			if (truncated)
+				return -1;
+			try
+			{
+				return super.read(b, off, len);
+			} catch (EOFException e)
+			{
+				truncated = true;
+				return -1;
+			}
+		}
+	}
+
+	/**
+	 * Creates (or appends to) a compressed file, with the default level.
+	 */
+	public static OutputStream create(File file, boolean append) throws IOException
+	{
+		return compress(new FileOutputStream(file, append), DEFAULT_LEVEL);
+	}
+
+	/**
+	 * Returns a stream that compresses the data written to out, with the given deflate level (0-9). Flushing the
+	 * stream ends a block (so the data so far can be decompressed); closing it finishes the gzip member and closes out.
+	 */
+	public static OutputStream compress(OutputStream out, int level) throws IOException
+	{
+		return new LevelGZIPOutputStream(out, level);
+	}
+
+	/**
+	 * Returns the gzip trailer (CRC-32 and size, little-endian) for the data written so far to out, a stream from
+	 * create or compress. Once out is flushed, truncate can end the file there with it.
+	 */
+	public static long getTrailer(OutputStream out)
+	{
+		if (!(out instanceof LevelGZIPOutputStream))
+			throw new IllegalArgumentException("not a compressed data file stream");
+		return ((LevelGZIPOutputStream)out).getTrailer();
+	}
+
+	/**
+	 * Truncates a compressed file that was not closed to length, the length of the file just after its stream was
+	 * flushed (the end of a sync flush), and ends its last member there with an empty final block and trailer (see
+	 * getTrailer), so the file reads as it was then and data can be appended as a new member (see create). A length
+	 * of 0 leaves the file empty.
+	 */
+	public static void truncate(File file, long length, long trailer) throws IOException
+	{
+		RandomAccessFile f = new RandomAccessFile(file, "rw");
+		try
+		{
+			if (f.length() < length)
+				throw new IOException("compressed file shorter than " + length + " bytes: " + file);
+			f.setLength(length);
+			if (length == 0)
+				return;
+			byte[] end = new byte[10];
+			end[0] = 0x03; // a final block with fixed codes, with only the end of block code (then end[1] = 0)
+			for (int i = 0; i < 8; ++i)
+				end[2 + i] = (byte)(trailer >>> 8 * i);
+			f.seek(length);
+			f.write(end);
+		} finally
+		{
+			f.close();
+		}
+	}
+
+	/**
+	 * Returns true if the name is that of a compressed file.
+	 */
+	public static boolean isCompressed(File file)
+	{
+		return file.getName().endsWith(SUFFIX);
+	}
+
+	/**
+	 * Opens a data file for reading, decompressing it if it is compressed.
+	 */
+	public static InputStream open(Path file) throws IOException
+	{
+		return decompress(Files.newInputStream(file));
+	}
+
+	/**
+	 * Opens a text data file (UTF-8) for reading, decompressing it if it is compressed.
+	 */
+	public static BufferedReader openReader(Path file) throws IOException
+	{
+		return new BufferedReader(new InputStreamReader(open(file), StandardCharsets.UTF_8), BUFFER_SIZE);
+	}
+
+	/**
+	 * Returns a stream with the data in in, decompressed if in begins with the gzip magic number (as is).
+	 */
+	public static InputStream decompress(InputStream in) throws IOException
+	{
+		BufferedInputStream b = new BufferedInputStream(in, BUFFER_SIZE);
+		b.mark(2);
+		int b0 = b.read();
+		int b1 = b.read();
+		b.reset();
+		if (b0 == 0x1F && b1 == 0x8B)
+			return new UnclosedGZIPInputStream(b);
+		return b;
+	}
+}
@@ -0,0 +1,127 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+/**
+ * CsvRowWriter -- adds the rows of a data file to a StringBuilder as CSV lines, formatted as the schema gives (see
+ * BinaryLogSchema).
+ *
+ * The columns are formatted by type: STRING as is (whitespace removed if the column is stripped; an absent value is
+ * omitted, along with its comma), INT as %d, FLOAT as %s, FIXED as %.Nf, and LONG and TIME as Long.toString (see
+ * RecordEncoder). This is the same as BinaryLogReader.appendCsv, so a CSV file and a binary file converted to CSV are
+ * the same. The leading columns are appended from the encoded leader (see RowLeader).
+ *
+ * The StringBuilder is given with to(), before each row (the activities replace their StringBuilders between
+ * sequences), e.g.:
+ *
+ * <pre>
+ *     DataRecords.appendZoomTrial(csv1.to(sb1), leader, ...);
+ * </pre>
+ */
+@SuppressWarnings("unused")
+public class CsvRowWriter implements RowWriter
+{
+	final BinaryLogSchema schema;
+	final long[] values; // the current row (FLOAT and FIXED: float bits)
+	final String[] strings;
+	RowLeader leader;
+	String combination;
+	StringBuilder sb;
+
+	public CsvRowWriter(BinaryLogSchema schemaArg)
+	{
+		schema = schemaArg;
+		values = new long[schema.getColumnCount()];
+		strings = new String[schema.getColumnCount()];
+	}
+
+	/**
+	 * Sets the StringBuilder the rows are added to, and returns this writer.
+	 */
+	public CsvRowWriter to(StringBuilder sbArg)
+	{
+		sb = sbArg;
+		return this;
+	}
+
+	@Override
+	public BinaryLogSchema getSchema()
+	{
+		return schema;
+	}
+
+	@Override
+	public void setLeader(RowLeader leaderArg, String combinationArg)
+	{
+		leader = leaderArg;
+		combination = combinationArg;
+	}
+
+	@Override
+	public void setString(int column, String s)
+	{
+		strings[column] = s;
+	}
+
+	@Override
+	public void setInt(int column, int value)
+	{
+		values[column] = value;
+	}
+
+	@Override
+	public void setLong(int column, long value)
+	{
+		values[column] = value;
+	}
+
+	@Override
+	public void setFloat(int column, float value)
+	{
+		values[column] = Float.floatToRawIntBits(value);
+	}
+
+	/**
+	 * Appends the row (including the newline).
+	 */
+	@Override
+	public void endRow()
+	{
+		int c = 0;
+		boolean comma = false;
+		if (leader != null)
+		{
+			leader.appendTo(sb, combination); // includes the comma after it
+			c = leader.getColumnCount();
+		}
+		for (; c < values.length; ++c)
+		{
+			int type = schema.types[c];
+			if (type == BinaryLogSchema.STRING && strings[c] == null)
+				continue;
+			if (comma)
+				sb.append(',');
+			comma = true;
+			switch (type)
+			{
+				case BinaryLogSchema.STRING:
+					if (schema.isStripped(c))
+						RecordEncoder.appendStripped(sb, strings[c]);
+					else
+						sb.append(strings[c]);
+					break;
+				case BinaryLogSchema.INT:
+					RecordEncoder.appendInt(sb, (int)values[c]);
+					break;
+				case BinaryLogSchema.FLOAT:
+					sb.append(Float.intBitsToFloat((int)values[c]));
+					break;
+				case BinaryLogSchema.FIXED:
+					RecordEncoder.appendFixed(sb, Float.intBitsToFloat((int)values[c]), schema.decimals[c]);
+					break;
+				default: // LONG, TIME
+					sb.append(values[c]);
+					break;
+			}
+		}
+		sb.append('\n');
+	}
+}
@@ -0,0 +1,307 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * DataCursor -- reads the rows of a CSV data file (e.g., a large FittsTouch-*.sd1 or Zoom-*-touch.sd4 archive) one at a
+ * time, from the file mapped into memory.
+ *
+ * The file is not copied: next() scans the mapped bytes of a line for the commas, and the getters parse a field in
+ * place (see NumberParser), so only the columns asked for are parsed and no String is created unless getString is
+ * called. As with DataTable, the file is read with its schema (see BinaryLogSchema.forFile: from its name and header
+ * line, so files of an earlier version of a format are read too), and the header line must be the schema's, so
+ * columns are given by position, e.g.:
+ *
+ * <pre>
+ *     try (DataCursor c = DataCursor.open(path))
+ *     {
+ *         while (c.next())
+ *             sum += c.getFloat(BatchReanalysis.TRIAL_TIME);
+ *     }
+ * </pre>
+ *
+ * The file is mapped in windows of MAP_SIZE bytes, so files larger than 2 GB can be read. A mapping is released when it
+ * is garbage collected (Java has no unmap), not by close.
+ *
+ * Compressed files cannot be mapped; read them with DataTable.
+ */
+@SuppressWarnings("unused")
+public class DataCursor implements Closeable
+{
+	final static int MAP_SIZE = 1 << 28; // 256 MB
+
+	// for finding the commas and newlines in 8 bytes at a time (see scan)
+	private final static long COMMAS = 0x2C2C2C2C2C2C2C2CL, NEWLINES = 0x0A0A0A0A0A0A0A0AL,
+			LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+	final BinaryLogSchema schema;
+	final int mapSize; // bytes per window (MAP_SIZE; less in the tests, so lines cross windows)
+	final FileChannel channel;
+	final long fileSize;
+	final int[] starts; // the start of each field of the row in the buffer (after the last field: the line end + 1)
+	MappedByteBuffer buffer;
+	long windowStart; // file position of the buffer
+	int limit; // bytes mapped
+	int position; // start of the next line in the buffer
+	int fields; // fields in the row
+	long line;
+
+	DataCursor(FileChannel channelArg, BinaryLogSchema schemaArg, int mapSizeArg) throws IOException
+	{
+		channel = channelArg;
+		schema = schemaArg;
+		mapSize = mapSizeArg;
+		fileSize = channel.size();
+		starts = new int[schema.getColumnCount() + 1];
+		map(0);
+	}
+
+	/**
+	 * Opens a data file, with the schema for its name and header (see BinaryLogSchema.forFile).
+	 */
+	public static DataCursor open(Path file) throws IOException
+	{
+		BinaryLogSchema schema;
+		try
+		{
+			schema = BinaryLogSchema.forFile(file);
+		} catch (IOException e)
+		{
+			throw new IOException(file + ": " + e.getMessage(), e);
+		}
+		if (schema == null)
+			throw new IOException("not a data file: " + file);
+		return open(file, schema);
+	}
+
+	/**
+	 * Opens a data file with the given schema, and reads its header line.
+	 */
+	public static DataCursor open(Path file, BinaryLogSchema schema) throws IOException
+	{
+		return open(file, schema, MAP_SIZE);
+	}
+
+	// open, mapping windows of mapSize bytes
+	static DataCursor open(Path file, BinaryLogSchema schema, int mapSize) throws IOException
+	{
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try
+		{
+			DataCursor c = new DataCursor(channel, schema, mapSize);
+			c.readHeader();
+			return c;
+		} catch (IOException e)
+		{
+			channel.close();
+			throw new IOException(file + ": " + e.getMessage(), e);
+		}
+	}
+
+	private void readHeader() throws IOException
+	{
+		if (limit >= 2 && (buffer.get(0) & 0xFF) == 0x1F && (buffer.get(1) & 0xFF) == 0x8B)
+			throw new IOException("compressed file (read it with DataTable)");
+		if (!scan())
+			throw new IOException("no header line");
+		byte[] header = schema.getCsvHeader().trim().getBytes(StandardCharsets.UTF_8);
+		int start = starts[0], end = starts[fields] - 1;
+		boolean same = end - start == header.length;
+		for (int i = 0; same && i < header.length; ++i)
+			same = buffer.get(start + i) == header[i];
+		if (!same)
+			throw new IOException("line 1: not the header of the schema: " + decode(start, end));
+	}
+
+	private void map(long start) throws IOException
+	{
+		windowStart = start;
+		limit = (int)Math.min(mapSize, fileSize - start);
+		buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, limit);
+		buffer.order(ByteOrder.LITTLE_ENDIAN); // the first byte of a word is its lowest
+		position = 0;
+	}
+
+	// a word with the high bit set in each byte of x that is zero (and no others)
+	private static long zeroBytes(long x)
+	{
+		long y = (x & LOW_BITS) + LOW_BITS;
+		return ~(y | x | LOW_BITS);
+	}
+
+	// find the fields of the next line; returns false at the end of the file
+	private boolean scan() throws IOException
+	{
+		int n = starts.length - 1;
+		for (; ; )
+		{
+			int p = position;
+			int count = 0; // commas
+			starts[0] = p;
+			int newline = -1;
+			for (; newline < 0 && p <= limit - 8; p += 8) // 8 bytes at a time
+			{
+				long word = buffer.getLong(p);
+				for (long found = zeroBytes(word ^ COMMAS) | zeroBytes(word ^ NEWLINES); found != 0; found &= found - 1)
+				{
+					int i = p + (Long.numberOfTrailingZeros(found) >>> 3);
+					if (buffer.get(i) == '\n')
+					{
+						newline = i;
+						break;
+					}
+					if (++count < n)
+						starts[count] = i + 1;
+				}
+			}
+			if (newline >= 0)
+				p = newline;
+			else
+				for (; p < limit; ++p)
+				{
+					byte b = buffer.get(p);
+					if (b == '\n')
+						break;
+					if (b == ',' && ++count < n)
+						starts[count] = p + 1;
+				}
+			if (p == limit && windowStart + limit < fileSize) // the line continues past the window
+			{
+				if (position == 0)
+					throw new IOException("line " + (line + 1) + ": longer than " + mapSize + " bytes");
+				map(windowStart + position);
+				continue;
+			}
+			if (p == position && p == limit)
+				return false;
+			++line;
+			fields = count + 1;
+			int end = p > position && buffer.get(p - 1) == '\r' ? p - 1 : p;
+			position = p < limit ? p + 1 : p;
+			if (fields > n)
+				throw new IOException("line " + line + ": too many fields");
+			starts[fields] = end + 1;
+			return true;
+		}
+	}
+
+	/**
+	 * Moves to the next row; returns false if there are no more rows. Empty lines are skipped.
+	 */
+	public boolean next() throws IOException
+	{
+		int n = starts.length - 1;
+		while (scan())
+		{
+			if (fields == 1 && starts[1] - 1 == starts[0]) // empty line
+				continue;
+			if (fields < n && !(fields == n - 1 && schema.isOptional(n - 1)))
+				throw new IOException("line " + line + ": too few fields");
+			return true;
+		}
+		return false;
+	}
+
+	public BinaryLogSchema getSchema()
+	{
+		return schema;
+	}
+
+	/**
+	 * Returns the line number of the row (the header is line 1).
+	 */
+	public long getLine()
+	{
+		return line;
+	}
+
+	/**
+	 * Returns true if the row has the column (only an optional last column can be absent).
+	 */
+	public boolean isPresent(int column)
+	{
+		return column < fields;
+	}
+
+	/**
+	 * Returns an INT column of the row.
+	 */
+	public int getInt(int column)
+	{
+		try
+		{
+			return NumberParser.parseInt(buffer, starts[column], starts[column + 1] - 1);
+		} catch (NumberFormatException e)
+		{
+			throw error(column, e);
+		}
+	}
+
+	/**
+	 * Returns a LONG or TIME column of the row.
+	 */
+	public long getLong(int column)
+	{
+		try
+		{
+			return NumberParser.parseLong(buffer, starts[column], starts[column + 1] - 1);
+		} catch (NumberFormatException e)
+		{
+			throw error(column, e);
+		}
+	}
+
+	/**
+	 * Returns a FLOAT or FIXED column of the row.
+	 */
+	public float getFloat(int column)
+	{
+		try
+		{
+			return NumberParser.parseFloat(buffer, starts[column], starts[column + 1] - 1);
+		} catch (NumberFormatException e)
+		{
+			throw error(column, e);
+		}
+	}
+
+	/**
+	 * Returns a STRING column of the row (null if absent). This creates a String; use it for the columns needed.
+	 */
+	public String getString(int column)
+	{
+		if (!isPresent(column))
+			return null;
+		return decode(starts[column], starts[column + 1] - 1);
+	}
+
+	private String decode(int start, int end)
+	{
+		byte[] bytes = new byte[end - start];
+		ByteBuffer b = buffer.duplicate();
+		b.position(start);
+		b.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private NumberFormatException error(int column, NumberFormatException e)
+	{
+		return new NumberFormatException("line " + line + ", column " + schema.getName(column) + ": "
+				+ e.getMessage());
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		buffer = null;
+		channel.close();
+	}
+}
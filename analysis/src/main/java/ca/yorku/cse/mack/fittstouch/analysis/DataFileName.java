@@ -0,0 +1,217 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * DataFileName -- the setup parameters of a data file, from its name.
+ *
+ * The activities name their data files by combining the setup parameters (see initializeFile in FittsActivity and
+ * ZoomActivity):
+ *
+ * <pre>
+ *     FittsTouch-&lt;participant&gt;-&lt;session&gt;-&lt;group&gt;-&lt;condition&gt;-&lt;mode&gt;-&lt;timestamp&gt;.sd1 (also .sd4)
+ *     Zoom-&lt;participant&gt;-&lt;session&gt;-&lt;group&gt;-&lt;condition&gt;-&lt;timestamp&gt;-trial.sd1 (also -scale.sd2, -touch.sd4)
+ * </pre>
+ *
+ * The timestamp is in seconds. A binary file has "b" added to the extension and a compressed file has ".gz" added.
+ * Names are ordered by app, kind, participant, session, group, condition, mode, and timestamp (i.e., the order the
+ * sessions were run for each participant).
+ *
+ * The schema is the one for the name (see BinaryLogSchema.forFile). readVersion gives the version of the schema that
+ * has the file's header (e.g., ZOOM_SD4_V1 for a Zoom sd4 file written before the DispatchDelay column).
+ */
+@SuppressWarnings("unused")
+public class DataFileName implements Comparable<DataFileName>
+{
+	final Path path;
+	final BinaryLogSchema schema;
+	final String app, kind; // e.g., "Zoom" and "-touch.sd4"
+	final String participant, session, group, mode; // mode is null for Zoom
+	final int condition;
+	final long timestamp;
+	final boolean binary, compressed;
+
+	private DataFileName(Path pathArg, BinaryLogSchema schemaArg, String kindArg, String[] fields, boolean binaryArg,
+						 boolean compressedArg)
+	{
+		path = pathArg;
+		schema = schemaArg;
+		kind = kindArg;
+		app = fields[0];
+		participant = fields[1];
+		session = fields[2];
+		group = fields[3];
+		condition = Integer.parseInt(fields[4]);
+		mode = fields.length == 7 ? fields[5] : null;
+		timestamp = Long.parseLong(fields[fields.length - 1]);
+		binary = binaryArg;
+		compressed = compressedArg;
+	}
+
+	// a copy with another version of the schema
+	private DataFileName(DataFileName name, BinaryLogSchema schemaArg)
+	{
+		path = name.path;
+		schema = schemaArg;
+		kind = name.kind;
+		app = name.app;
+		participant = name.participant;
+		session = name.session;
+		group = name.group;
+		condition = name.condition;
+		mode = name.mode;
+		timestamp = name.timestamp;
+		binary = name.binary;
+		compressed = name.compressed;
+	}
+
+	/**
+	 * Returns the parameters in the name of a data file, or null if the name is not that of a data file.
+	 */
+	public static DataFileName parse(Path path)
+	{
+		String name = path.getFileName().toString();
+		BinaryLogSchema schema = BinaryLogSchema.forFile(name);
+		if (schema == null)
+			return null;
+		boolean compressed = name.endsWith(CompressedDataFiles.SUFFIX);
+		if (compressed)
+			name = name.substring(0, name.length() - CompressedDataFiles.SUFFIX.length());
+		boolean binary = name.endsWith("b");
+		if (binary)
+			name = name.substring(0, name.length() - 1);
+		boolean fitts = schema == BinaryLogSchema.FITTS_SD1 || schema == BinaryLogSchema.FITTS_SD4;
+		String kind = fitts ? name.substring(name.lastIndexOf('.')) : name.substring(name.lastIndexOf('-'));
+		String[] fields = name.substring(0, name.length() - kind.length()).split("-", -1);
+		if (fields.length != (fitts ? 7 : 6))
+			return null;
+		try
+		{
+			return new DataFileName(path, schema, kind, fields, binary, compressed);
+		} catch (NumberFormatException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the parameters of the file with the version of its schema that has the file's header (see
+	 * BinaryLogSchema.forFile(Path); this, if that is the schema for the name).
+	 */
+	public DataFileName readVersion() throws IOException
+	{
+		BinaryLogSchema s = BinaryLogSchema.forFile(path);
+		return s == schema ? this : new DataFileName(this, s);
+	}
+
+	public Path getPath()
+	{
+		return path;
+	}
+
+	public BinaryLogSchema getSchema()
+	{
+		return schema;
+	}
+
+	public String getApp()
+	{
+		return app;
+	}
+
+	/**
+	 * Returns the end of the name after the parameters, without "b" or ".gz" (e.g., ".sd1" or "-touch.sd4").
+	 */
+	public String getKind()
+	{
+		return kind;
+	}
+
+	public String getParticipant()
+	{
+		return participant;
+	}
+
+	public String getSession()
+	{
+		return session;
+	}
+
+	public String getGroup()
+	{
+		return group;
+	}
+
+	public int getCondition()
+	{
+		return condition;
+	}
+
+	/**
+	 * Returns the mode (FittsTouch: e.g., "Tap"), or null.
+	 */
+	public String getMode()
+	{
+		return mode;
+	}
+
+	/**
+	 * Returns the time the file was created (s since 1970).
+	 */
+	public long getTimestamp()
+	{
+		return timestamp;
+	}
+
+	public boolean isBinary()
+	{
+		return binary;
+	}
+
+	public boolean isCompressed()
+	{
+		return compressed;
+	}
+
+	@Override
+	public int compareTo(DataFileName other)
+	{
+		int c = app.compareTo(other.app);
+		if (c == 0)
+			c = kind.compareTo(other.kind);
+		if (c == 0)
+			c = participant.compareTo(other.participant);
+		if (c == 0)
+			c = session.compareTo(other.session);
+		if (c == 0)
+			c = group.compareTo(other.group);
+		if (c == 0)
+			c = Integer.compare(condition, other.condition);
+		if (c == 0 && mode != null && other.mode != null)
+			c = mode.compareTo(other.mode);
+		if (c == 0)
+			c = Long.compare(timestamp, other.timestamp);
+		if (c == 0)
+			c = path.compareTo(other.path);
+		return c;
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		return o instanceof DataFileName && path.equals(((DataFileName)o).path);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return path.hashCode();
+	}
+
+	@Override
+	public String toString()
+	{
+		return path.toString();
+	}
+}
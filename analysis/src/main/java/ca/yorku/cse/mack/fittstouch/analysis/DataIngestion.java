@@ -0,0 +1,341 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * DataIngestion -- merges the data files of a study (e.g., copies of /FittsTouchData/ and /ZoomData/ from the devices)
+ * into one CSV file per kind of data file.
+ *
+ * The directory is walked (with its subdirectories) and the parameters of each data file are taken from its name (see
+ * DataFileName). The files of each kind (FittsTouch sd1 and sd4; Zoom sd1, sd2, and sd4) are sorted by participant,
+ * session, group, condition, mode, and timestamp, and their rows are written, in that order, to one file with the same
+ * header (e.g., FittsTouch-merged.sd1, Zoom-merged-touch.sd4), so the merged files can be read as usual (see
+ * DataTable, DataCursor). Compressed files are decompressed and binary files converted to CSV (see
+ * CompressedDataFiles, BinaryLogReader). Line endings are made \n and empty lines are removed. The header of each file
+ * must be that of the schema for its name, or of an earlier version of it (see BinaryLogSchema.getVersions); a file
+ * with another header is reported and skipped. The files of an earlier version are merged into a file of their own,
+ * with the version in its name (e.g., Zoom-merged-v1-touch.sd4 for the Zoom sd4 files written before the
+ * DispatchDelay column; see BinaryLogSchema.ZOOM_SD4_V1), as their rows differ from the current ones. Only complete
+ * lines are merged: a last line with no newline (e.g., of a file that was cut short, or that could not be read to its
+ * end) is reported and dropped, so the rows of the next file start on a line of their own.
+ *
+ * The files are read in parallel on a fixed pool of threads. The rows of each file are passed to the writer in chunks
+ * through a small queue, so the memory used is at most WINDOW files * (CHUNKS_PER_FILE + 1) chunks, regardless of the
+ * number or size of the files: a reader blocks when its queue is full, and files are started only as the writer gets
+ * to within WINDOW files of them. The files are started in the order they are written, so the file being written is
+ * always being read (or done).
+ *
+ * An index (merged-files.csv) gives the rows of each merged file that came from each source file, along with the
+ * parameters of the file (the timestamp, for example, is not in the rows).
+ *
+ * Usage: java ca.yorku.cse.mack.fittstouch.analysis.DataIngestion &lt;directory&gt; [&lt;output directory&gt;
+ * [&lt;threads&gt;]]
+ */
+@SuppressWarnings("unused")
+public class DataIngestion
+{
+	final static int CHUNK_SIZE = 1 << 20;
+	final static int CHUNKS_PER_FILE = 4; // queued for the writer, per file
+	final static String MERGED = "-merged";
+	final static String INDEX = "merged-files.csv";
+	final static String INDEX_HEADER = "MergedFile,FirstRow,Rows,SourceFile,Participant,Session,Group,Condition,Mode," +
+			"Timestamp\n";
+
+	private final static byte[] END = new byte[0]; // the end of a file's chunks
+
+	final int threads;
+	final int window; // files started ahead of the writer (including the file being written)
+
+	public DataIngestion(int threadsArg)
+	{
+		threads = threadsArg;
+		window = 2 * threads;
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length < 1)
+		{
+			System.err.println("usage: DataIngestion <directory> [<output directory> [<threads>]]");
+			System.exit(1);
+		}
+		Path directory = Paths.get(args[0]);
+		Path output = args.length > 1 ? Paths.get(args[1]) : directory;
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+		long start = System.nanoTime();
+		Map<String, List<DataFileName>> files = findFiles(directory);
+		Files.createDirectories(output);
+		new DataIngestion(threads).merge(files, output);
+		System.out.printf("%d threads, %.1f ms -> %s%n", threads, (System.nanoTime() - start) / 1000000.0,
+				output.resolve(INDEX));
+	}
+
+	/**
+	 * Returns the data files in the directory and its subdirectories, by the name of the merged file for their kind
+	 * and version (see getMergedName), each list sorted (see DataFileName). The version of a file is given by its
+	 * header (see DataFileName.readVersion).
+	 */
+	public static Map<String, List<DataFileName>> findFiles(Path directory) throws IOException
+	{
+		final Map<String, List<DataFileName>> files = new TreeMap<String, List<DataFileName>>();
+		Files.walkFileTree(directory, new SimpleFileVisitor<Path>()
+		{
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attributes)
+			{
+				DataFileName name = attributes.isRegularFile() ? DataFileName.parse(file) : null;
+				if (name != null)
+				{
+					try
+					{
+						name = name.readVersion();
+					} catch (IOException e)
+					{
+						// merged with the current version (and the error is reported as the file is read)
+					}
+					String merged = getMergedName(name);
+					List<DataFileName> list = files.get(merged);
+					if (list == null)
+					{
+						list = new ArrayList<DataFileName>();
+						files.put(merged, list);
+					}
+					list.add(name);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		for (List<DataFileName> list : files.values())
+			Collections.sort(list);
+		return files;
+	}
+
+	/**
+	 * Returns the name of the merged file for the kind and version of a data file (e.g., Zoom-merged-touch.sd4, or
+	 * Zoom-merged-v1-touch.sd4 for ZOOM_SD4_V1).
+	 */
+	public static String getMergedName(DataFileName name)
+	{
+		BinaryLogSchema[] versions = BinaryLogSchema.getVersions(name.getSchema());
+		int v = Arrays.asList(versions).indexOf(name.getSchema()); // 0 for the current version
+		return name.getApp() + MERGED + (v > 0 ? "-v" + (versions.length - v) : "") + name.getKind();
+	}
+
+	/**
+	 * Merges the files of each kind (see findFiles) into one file in the output directory, and writes the index.
+	 */
+	public void merge(Map<String, List<DataFileName>> files, Path output) throws IOException
+	{
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try (BufferedWriter index = Files.newBufferedWriter(output.resolve(INDEX), StandardCharsets.UTF_8))
+		{
+			index.write(INDEX_HEADER);
+			for (Map.Entry<String, List<DataFileName>> e : files.entrySet())
+			{
+				long start = System.nanoTime();
+				Path merged = output.resolve(e.getKey());
+				long rows = merge(pool, e.getValue(), merged, index);
+				System.out.printf("%s: %d files, %d rows, %d bytes, %.1f ms%n", merged, e.getValue().size(), rows,
+						Files.size(merged), (System.nanoTime() - start) / 1000000.0);
+			}
+		} finally
+		{
+			pool.shutdownNow(); // stops the readers if the writer failed
+		}
+	}
+
+	// write the rows of the files (all of one kind, sorted) to the merged file; returns the number of rows
+	private long merge(ExecutorService pool, List<DataFileName> files, Path merged, BufferedWriter index)
+			throws IOException
+	{
+		String name = merged.getFileName().toString();
+		ArrayDeque<SourceReader> readers = new ArrayDeque<SourceReader>();
+		int next = 0; // the next file to start
+		long rows = 0;
+		try (OutputStream out = Files.newOutputStream(merged))
+		{
+			out.write(files.get(0).getSchema().getCsvHeader().getBytes(StandardCharsets.UTF_8));
+			for (int i = 0; i < files.size(); ++i)
+			{
+				for (; next < files.size() && next < i + window; ++next)
+				{
+					SourceReader r = new SourceReader(files.get(next));
+					readers.add(r);
+					pool.execute(r);
+				}
+				SourceReader r = readers.remove();
+				for (byte[] chunk = r.chunks.take(); chunk != END; chunk = r.chunks.take())
+					out.write(chunk);
+				if (r.error != null)
+					System.err.println("ERROR READING " + r.file + (r.rows > 0 ? " (after " + r.rows + " rows)" : "")
+							+ ": " + r.error);
+				if (r.partialLine > 0)
+					System.err.println("INCOMPLETE LAST LINE IN " + r.file + " (" + r.partialLine
+							+ " bytes after row " + r.rows + "; not merged)");
+				DataFileName f = r.file;
+				index.write(name + "," + rows + "," + r.rows + "," + f.getPath() + "," + f.getParticipant() + ","
+						+ f.getSession() + "," + f.getGroup() + "," + f.getCondition() + ","
+						+ (f.getMode() != null ? f.getMode() : "") + "," + f.getTimestamp() + "\n");
+				rows += r.rows;
+			}
+		} catch (InterruptedException e)
+		{
+			throw new InterruptedIOException("merging " + merged);
+		}
+		return rows;
+	}
+
+	// reads one file (on the pool) and passes its rows (without the header) to the writer in chunks
+	static class SourceReader implements Runnable
+	{
+		final DataFileName file;
+		final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<byte[]>(CHUNKS_PER_FILE);
+		IOException error; // set before END is queued
+		long rows; // the rows passed to the writer
+		int partialLine; // bytes of a last line with no newline (dropped)
+
+		SourceReader(DataFileName fileArg)
+		{
+			file = fileArg;
+		}
+
+		@Override
+		public void run()
+		{
+			try
+			{
+				try (InputStream in = CompressedDataFiles.open(file.getPath()))
+				{
+					if (file.isBinary())
+						readBinary(in);
+					else
+						readCsv(in);
+				} catch (IOException e)
+				{
+					error = e;
+				}
+				chunks.put(END);
+			} catch (InterruptedException e)
+			{
+				// the writer has stopped
+			}
+		}
+
+		private void readBinary(InputStream in) throws IOException, InterruptedException
+		{
+			BinaryLogReader r = new BinaryLogReader(in);
+			if (!r.getSchema().getCsvHeader().equals(file.getSchema().getCsvHeader()))
+				throw new IOException("not the header of the schema: " + r.getSchema().getCsvHeader().trim());
+			StringBuilder sb = new StringBuilder(CHUNK_SIZE + 256);
+			try
+			{
+				while (r.next())
+				{
+					r.appendCsv(sb);
+					++rows;
+					if (sb.length() >= CHUNK_SIZE)
+					{
+						chunks.put(sb.toString().getBytes(StandardCharsets.UTF_8));
+						sb.setLength(0);
+					}
+				}
+			} finally
+			{
+				if (sb.length() > 0) // the rows counted (also if the file could not be read to its end)
+					chunks.put(sb.toString().getBytes(StandardCharsets.UTF_8));
+			}
+		}
+
+		private void readCsv(InputStream in) throws IOException, InterruptedException
+		{
+			byte[] buffer = new byte[DataTable.BUFFER_SIZE];
+			byte[] chunk = new byte[CHUNK_SIZE];
+			int length = 0; // bytes in the chunk
+			int lineStart = 0; // the start of the line in the chunk (the bytes before it are complete lines)
+			ByteArrayOutputStream header = new ByteArrayOutputStream();
+			boolean inHeader = true;
+			try
+			{
+				for (int n = in.read(buffer); n >= 0; n = in.read(buffer))
+					for (int i = 0; i < n; ++i)
+					{
+						byte b = buffer[i];
+						if (b == '\r')
+							continue;
+						if (inHeader)
+						{
+							if (b == '\n')
+							{
+								checkHeader(header.toByteArray());
+								inHeader = false;
+							} else
+								header.write(b);
+							continue;
+						}
+						if (b == '\n' && length == lineStart) // empty line
+							continue;
+						if (length == chunk.length) // pass the complete lines on, and keep the line so far
+						{
+							byte[] full = chunk;
+							if (lineStart == 0) // a line longer than a chunk
+								chunk = Arrays.copyOf(full, 2 * full.length);
+							else
+							{
+								chunks.put(Arrays.copyOf(full, lineStart));
+								chunk = new byte[Math.max(CHUNK_SIZE, 2 * (length - lineStart))];
+								System.arraycopy(full, lineStart, chunk, 0, length - lineStart);
+								length -= lineStart;
+								lineStart = 0;
+							}
+						}
+						chunk[length++] = b;
+						if (b == '\n')
+						{
+							++rows;
+							lineStart = length;
+						}
+					}
+				if (inHeader)
+					checkHeader(header.toByteArray());
+			} finally
+			{
+				// the complete lines (also if the file could not be read to its end); a last line with no newline is
+				// dropped
+				partialLine = length - lineStart;
+				if (lineStart > 0)
+					chunks.put(Arrays.copyOf(chunk, lineStart));
+			}
+		}
+
+		private void checkHeader(byte[] header) throws IOException
+		{
+			String s = new String(header, StandardCharsets.UTF_8);
+			if (!s.equals(file.getSchema().getCsvHeader().trim()))
+				throw new IOException("not the header of the schema: " + s);
+		}
+	}
+}
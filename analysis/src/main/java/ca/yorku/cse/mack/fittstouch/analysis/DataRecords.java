@@ -0,0 +1,126 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+/**
+ * DataRecords -- the rows written to the output data files.
+ *
+ * The rows are built here (rather than inline in the activities) so they can be used, and measured, without Android.
+ * Each row sets the columns of its schema (see BinaryLogSchema) on a RowWriter, so the same method writes the CSV file
+ * (CsvRowWriter) and the binary file (BinaryLogWriter). There is no String.format or regular expression per row. The
+ * leading columns (participant, session, ..., combination) are encoded once per combination (see RowLeader), so each
+ * row encodes only the fields that change.
+ */
+@SuppressWarnings("unused")
+public class DataRecords
+{
+	/**
+	 * Adds one trial row of the FittsTouch sd1 file (see BinaryLogSchema.FITTS_SD1). Times are in ms and are written
+	 * with one decimal place. The leader includes the block code.
+	 */
+	public static void appendFittsTrial(RowWriter w, RowLeader leader, String combination, int trialIdx,
+										int blockIdx, float fromX, float fromY, float targetX, float targetY,
+										int targetZoneNumber, float fingerDownX, float fingerDownY,
+										float fingerUpX, float fingerUpY, float fingerDownUpTime,
+										float distanceFromTargetCenter, int isMiss, int isFingerDownMiss,
+										int isFingerUpMiss, float trialTime)
+	{
+		w.setLeader(leader, combination);
+		w.setInt(6, trialIdx);
+		w.setInt(7, blockIdx);
+		w.setFloat(8, fromX);
+		w.setFloat(9, fromY);
+		w.setFloat(10, targetX);
+		w.setFloat(11, targetY);
+		w.setInt(12, targetZoneNumber);
+		w.setFloat(13, fingerDownX);
+		w.setFloat(14, fingerDownY);
+		w.setFloat(15, fingerUpX);
+		w.setFloat(16, fingerUpY);
+		w.setFloat(17, fingerDownUpTime);
+		w.setFloat(18, distanceFromTargetCenter);
+		w.setInt(19, isMiss);
+		w.setInt(20, isFingerDownMiss);
+		w.setInt(21, isFingerUpMiss);
+		w.setFloat(22, trialTime);
+		w.endRow();
+	}
+
+	/**
+	 * Adds one sample row of the FittsTouch sd4 file (see BinaryLogSchema.FITTS_SD4): the position of one pointer at
+	 * the event time (a wall-clock time, ms). The dispatch delay (ms, written with one decimal place) is the time from
+	 * the sample to the handling of its event. The marker ("Down", "Up", or "Cancel", for the sample of the pointer
+	 * that went down or up) is the optional last column; it is null for other rows. The leader includes the block
+	 * code.
+	 */
+	public static void appendFittsTouch(RowWriter w, RowLeader leader, String combination, int trialIdx,
+										int blockIdx, int pointer, float x, float y, long timeStamp,
+										float dispatchDelay, String marker)
+	{
+		w.setLeader(leader, combination);
+		w.setInt(6, trialIdx);
+		w.setInt(7, blockIdx);
+		w.setInt(8, pointer);
+		w.setFloat(9, x);
+		w.setFloat(10, y);
+		w.setLong(11, timeStamp);
+		w.setFloat(12, dispatchDelay);
+		w.setString(13, marker);
+		w.endRow();
+	}
+
+	/**
+	 * Adds one trial row of the Zoom sd1 file (see BinaryLogSchema.ZOOM_SD1). The trial time is in ms and is written
+	 * with one decimal place.
+	 */
+	public static void appendZoomTrial(RowWriter w, RowLeader leader, String combination, int trialIdx, int blockIdx,
+									   String taskType, int scaleCount, float trialTime)
+	{
+		w.setLeader(leader, combination);
+		w.setInt(5, trialIdx);
+		w.setInt(6, blockIdx);
+		w.setString(7, taskType);
+		w.setInt(8, scaleCount);
+		w.setFloat(9, trialTime);
+		w.endRow();
+	}
+
+	/**
+	 * Adds one scale row of the Zoom sd2 file (see BinaryLogSchema.ZOOM_SD2). The scale time (ms) is written with one
+	 * decimal place and the span with two. The start time is a wall-clock time (ms).
+	 */
+	public static void appendZoomScale(RowWriter w, RowLeader leader, String combination, int trialIdx, int blockIdx,
+									   int scaleCount, float scaleTime, float span, long startTime)
+	{
+		w.setLeader(leader, combination);
+		w.setInt(5, trialIdx);
+		w.setInt(6, blockIdx);
+		w.setInt(7, scaleCount);
+		w.setFloat(8, scaleTime);
+		w.setFloat(9, span);
+		w.setLong(10, startTime);
+		w.endRow();
+	}
+
+	/**
+	 * Adds one touch row of the Zoom sd4 file (see BinaryLogSchema.ZOOM_SD4). The time stamp is a wall-clock time
+	 * (ms). The dispatch delay (ms, written with one decimal place) is the time from the sample to the handling of its
+	 * event. The marker ("Start" or "End", for the first and last rows of a scale gesture) is the optional last column;
+	 * it is null for other rows.
+	 */
+	public static void appendZoomTouch(RowWriter w, RowLeader leader, String combination, int trialIdx, int blockIdx,
+									   int scaleCount, float xA, float yA, float xB, float yB, long timeStamp,
+									   float dispatchDelay, String marker)
+	{
+		w.setLeader(leader, combination);
+		w.setInt(5, trialIdx);
+		w.setInt(6, blockIdx);
+		w.setInt(7, scaleCount);
+		w.setFloat(8, xA);
+		w.setFloat(9, yA);
+		w.setFloat(10, xB);
+		w.setFloat(11, yB);
+		w.setLong(12, timeStamp);
+		w.setFloat(13, dispatchDelay);
+		w.setString(14, marker);
+		w.endRow();
+	}
+}
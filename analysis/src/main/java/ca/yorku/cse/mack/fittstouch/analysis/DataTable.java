@@ -0,0 +1,343 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * DataTable -- the rows of a CSV data file, loaded into one primitive array per column (e.g., for offline analysis of
+ * archived data).
+ *
+ * The file is read with its schema (see BinaryLogSchema; forFile gives the schema from the file name and its header,
+ * so files of an earlier version of a format are read with that version's schema). The header line must be the
+ * schema's, so the columns are parsed by position as the types in the schema give, with no header lookup per row. The
+ * bytes are parsed in place (see NumberParser): no String is created per line or per cell.
+ *
+ * Columns are returned as arrays: INT as int[], LONG and TIME as long[], and FLOAT and FIXED as float[]. A STRING
+ * column is dictionary coded: getInts gives an id per row (0 = absent) and getStrings the values, indexed by id. A
+ * String is created only for each distinct value in a column. The arrays returned are the table's own, and may be
+ * longer than size().
+ *
+ * Compressed files are read too (see CompressedDataFiles).
+ */
+@SuppressWarnings("unused")
+public class DataTable
+{
+	final static int BUFFER_SIZE = 65536;
+
+	final BinaryLogSchema schema;
+	final Object[] columns; // int[], long[], or float[], by type
+	final Dictionary[] dictionaries; // STRING columns
+	int size;
+
+	// the distinct values of a STRING column (open addressing, keyed by the bytes of the value)
+	private static class Dictionary
+	{
+		String[] values = new String[16]; // by id (id 0 is absent)
+		byte[][] keys = new byte[16][];
+		int[] table = new int[32]; // ids (0 = empty)
+		int count = 1;
+
+		int id(byte[] b, int start, int end)
+		{
+			int hash = 0;
+			for (int i = start; i < end; ++i)
+				hash = 31 * hash + b[i];
+			int mask = table.length - 1;
+			for (int slot = hash & mask; ; slot = (slot + 1) & mask)
+			{
+				int id = table[slot];
+				if (id == 0)
+					return add(b, start, end, slot);
+				if (equal(keys[id], b, start, end))
+					return id;
+			}
+		}
+
+		private int add(byte[] b, int start, int end, int slot)
+		{
+			int id = count++;
+			if (id == values.length)
+			{
+				values = Arrays.copyOf(values, 2 * id);
+				keys = Arrays.copyOf(keys, 2 * id);
+			}
+			keys[id] = Arrays.copyOfRange(b, start, end);
+			values[id] = new String(b, start, end - start, StandardCharsets.UTF_8);
+			table[slot] = id;
+			if (2 * count > table.length)
+				rehash();
+			return id;
+		}
+
+		private void rehash()
+		{
+			table = new int[2 * table.length];
+			int mask = table.length - 1;
+			for (int id = 1; id < count; ++id)
+			{
+				byte[] key = keys[id];
+				int hash = 0;
+				for (byte k : key)
+					hash = 31 * hash + k;
+				int slot = hash & mask;
+				while (table[slot] != 0)
+					slot = (slot + 1) & mask;
+				table[slot] = id;
+			}
+		}
+
+		private static boolean equal(byte[] key, byte[] b, int start, int end)
+		{
+			if (key.length != end - start)
+				return false;
+			for (int i = 0; i < key.length; ++i)
+				if (key[i] != b[start + i])
+					return false;
+			return true;
+		}
+	}
+
+	DataTable(BinaryLogSchema schemaArg)
+	{
+		schema = schemaArg;
+		int n = schema.getColumnCount();
+		columns = new Object[n];
+		dictionaries = new Dictionary[n];
+		for (int c = 0; c < n; ++c)
+			switch (schema.types[c])
+			{
+				case BinaryLogSchema.STRING:
+					dictionaries[c] = new Dictionary();
+					columns[c] = new int[1024];
+					break;
+				case BinaryLogSchema.INT:
+					columns[c] = new int[1024];
+					break;
+				case BinaryLogSchema.FLOAT:
+				case BinaryLogSchema.FIXED:
+					columns[c] = new float[1024];
+					break;
+				default: // LONG, TIME
+					columns[c] = new long[1024];
+					break;
+			}
+	}
+
+	/**
+	 * Reads a data file, with the schema for its name and header (see BinaryLogSchema.forFile).
+	 */
+	public static DataTable read(Path file) throws IOException
+	{
+		BinaryLogSchema schema;
+		try
+		{
+			schema = BinaryLogSchema.forFile(file);
+		} catch (IOException e)
+		{
+			throw new IOException(file + ": " + e.getMessage(), e);
+		}
+		if (schema == null)
+			throw new IOException("not a data file: " + file);
+		return read(file, schema);
+	}
+
+	/**
+	 * Reads a data file with the given schema.
+	 */
+	public static DataTable read(Path file, BinaryLogSchema schema) throws IOException
+	{
+		try (InputStream in = CompressedDataFiles.open(file))
+		{
+			return read(in, schema);
+		} catch (IOException e)
+		{
+			throw new IOException(file + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Reads the CSV data (header line and rows) in the stream with the given schema. The stream is not closed.
+	 */
+	public static DataTable read(InputStream in, BinaryLogSchema schema) throws IOException
+	{
+		DataTable t = new DataTable(schema);
+		byte[] header = schema.getCsvHeader().trim().getBytes(StandardCharsets.UTF_8);
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int length = 0; // bytes in the buffer
+		int line = 0;
+		boolean eof = false;
+		while (!eof)
+		{
+			int n = in.read(buffer, length, buffer.length - length);
+			if (n < 0)
+			{
+				eof = true;
+				if (length > 0 && buffer[length - 1] != '\n') // last line without a newline
+				{
+					if (length == buffer.length)
+						buffer = Arrays.copyOf(buffer, length + 1);
+					buffer[length++] = '\n';
+				}
+			} else
+				length += n;
+
+			// the complete lines in the buffer (each is scanned once, as it is parsed)
+			int last = length - 1;
+			while (last >= 0 && buffer[last] != '\n')
+				--last;
+			int start = 0;
+			while (start <= last)
+			{
+				++line;
+				if (line == 1)
+				{
+					int i = start;
+					while (buffer[i] != '\n')
+						++i;
+					int end = i > start && buffer[i - 1] == '\r' ? i - 1 : i;
+					if (!Dictionary.equal(header, buffer, start, end))
+						throw new IOException("line 1: not the header of the schema: "
+								+ new String(buffer, start, end - start, StandardCharsets.UTF_8));
+					start = i + 1;
+				} else
+					start = t.addRow(buffer, start, line);
+			}
+
+			// keep the partial line (the buffer grows if the line does not fit)
+			length -= start;
+			System.arraycopy(buffer, start, buffer, 0, length);
+			if (length == buffer.length)
+				buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+		}
+		if (line == 0)
+			throw new IOException("no header line");
+		return t;
+	}
+
+	// parse the line at start (it ends with a newline) into the columns; returns the start of the next line
+	private int addRow(byte[] b, int start, int line) throws IOException
+	{
+		if (b[start] == '\n' || b[start] == '\r' && b[start + 1] == '\n') // empty line
+			return b[start] == '\n' ? start + 1 : start + 2;
+		if (size == ((int[])columns[0]).length)
+			grow();
+		int n = columns.length;
+		int p = start;
+		boolean more = true; // more fields in the line
+		for (int c = 0; c < n; ++c)
+		{
+			if (!more)
+			{
+				if (c == n - 1 && schema.isOptional(c))
+				{
+					((int[])columns[c])[size] = 0;
+					break;
+				}
+				throw new IOException("line " + line + ": too few fields");
+			}
+			int q = p;
+			while (b[q] != ',' && b[q] != '\n')
+				++q;
+			more = b[q] == ',';
+			int end = !more && q > p && b[q - 1] == '\r' ? q - 1 : q;
+			try
+			{
+				switch (schema.types[c])
+				{
+					case BinaryLogSchema.STRING:
+						((int[])columns[c])[size] = dictionaries[c].id(b, p, end);
+						break;
+					case BinaryLogSchema.INT:
+						((int[])columns[c])[size] = NumberParser.parseInt(b, p, end);
+						break;
+					case BinaryLogSchema.FLOAT:
+					case BinaryLogSchema.FIXED:
+						((float[])columns[c])[size] = NumberParser.parseFloat(b, p, end);
+						break;
+					default: // LONG, TIME
+						((long[])columns[c])[size] = NumberParser.parseLong(b, p, end);
+						break;
+				}
+			} catch (NumberFormatException e)
+			{
+				throw new IOException("line " + line + ", column " + schema.getName(c) + ": " + e.getMessage());
+			}
+			p = q + 1;
+		}
+		if (more)
+			throw new IOException("line " + line + ": too many fields");
+		++size;
+		return p; // just after the newline
+	}
+
+	private void grow()
+	{
+		int capacity = 2 * size;
+		for (int c = 0; c < columns.length; ++c)
+		{
+			Object a = columns[c];
+			if (a instanceof int[])
+				columns[c] = Arrays.copyOf((int[])a, capacity);
+			else if (a instanceof float[])
+				columns[c] = Arrays.copyOf((float[])a, capacity);
+			else
+				columns[c] = Arrays.copyOf((long[])a, capacity);
+		}
+	}
+
+	public BinaryLogSchema getSchema()
+	{
+		return schema;
+	}
+
+	/**
+	 * Returns the number of rows.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns an INT column, or the ids of a STRING column.
+	 */
+	public int[] getInts(int column)
+	{
+		return (int[])columns[column];
+	}
+
+	/**
+	 * Returns a LONG or TIME column.
+	 */
+	public long[] getLongs(int column)
+	{
+		return (long[])columns[column];
+	}
+
+	/**
+	 * Returns a FLOAT or FIXED column.
+	 */
+	public float[] getFloats(int column)
+	{
+		return (float[])columns[column];
+	}
+
+	/**
+	 * Returns the values of a STRING column, indexed by id (the element for id 0, absent, is null).
+	 */
+	public String[] getStrings(int column)
+	{
+		return Arrays.copyOf(dictionaries[column].values, dictionaries[column].count);
+	}
+
+	/**
+	 * Returns the value of a STRING column in a row (null if absent).
+	 */
+	public String getString(int column, int row)
+	{
+		return dictionaries[column].values[getInts(column)[row]];
+	}
+}
@@ -0,0 +1,149 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import java.nio.ByteBuffer;
+
+/**
+ * FittsRegression -- an online least-squares fit of the Fitts' law model MT = a + b * IDe.
+ *
+ * Each sequence adds one point (IDe in bits, MT in ms). Only the sufficient statistics (n, sum x, sum y, sum xy, sum x^2,
+ * and sum y^2) are kept, so a point is added in O(1) and the intercept, slope, and R^2 are available in O(1) at any
+ * time.
+ *
+ * Two models can be merged (e.g., partial models built by different threads or from different files). The result is
+ * the same as if all the points were added to one model.
+ *
+ * A FittsRegression object is not thread-safe. Build one per thread and merge the results.
+ */
+@SuppressWarnings("unused")
+public class FittsRegression
+{
+	long n;
+	double sumX, sumY, sumXY, sumXX, sumYY;
+
+	public FittsRegression()
+	{
+		reset();
+	}
+
+	/**
+	 * Removes all points.
+	 */
+	public void reset()
+	{
+		n = 0;
+		sumX = sumY = sumXY = sumXX = sumYY = 0.0;
+	}
+
+	/**
+	 * Adds the point for one sequence (IDe in bits, MT in ms).
+	 */
+	public void add(float ide, float mt)
+	{
+		++n;
+		sumX += ide;
+		sumY += mt;
+		sumXY += (double)ide * mt;
+		sumXX += (double)ide * ide;
+		sumYY += (double)mt * mt;
+	}
+
+	/**
+	 * Adds the IDe and MT of the sequence in t.
+	 */
+	public void add(Throughput t)
+	{
+		add(t.getIDe(), t.getMT());
+	}
+
+	/**
+	 * Adds the IDe and MT of a sequence summary.
+	 */
+	public void add(ThroughputSummary s)
+	{
+		add(s.getIDe(), s.getMT());
+	}
+
+	/**
+	 * Adds the points of another model to this one. The other model is not changed.
+	 */
+	public void merge(FittsRegression other)
+	{
+		n += other.n;
+		sumX += other.sumX;
+		sumY += other.sumY;
+		sumXY += other.sumXY;
+		sumXX += other.sumXX;
+		sumYY += other.sumYY;
+	}
+
+	/**
+	 * Writes the model to b (e.g., for a checkpoint; see SessionJournal). 48 bytes are written.
+	 */
+	public void writeTo(ByteBuffer b)
+	{
+		b.putLong(n).putDouble(sumX).putDouble(sumY).putDouble(sumXY).putDouble(sumXX).putDouble(sumYY);
+	}
+
+	/**
+	 * Replaces the model with one read from b (as written by writeTo).
+	 */
+	public void readFrom(ByteBuffer b)
+	{
+		n = b.getLong();
+		sumX = b.getDouble();
+		sumY = b.getDouble();
+		sumXY = b.getDouble();
+		sumXX = b.getDouble();
+		sumYY = b.getDouble();
+	}
+
+	/**
+	 * Returns the number of points (sequences).
+	 */
+	public long getN()
+	{
+		return n;
+	}
+
+	/**
+	 * Returns the slope, b (ms/bit). NaN if there are fewer than 2 points or all IDe values are the same.
+	 */
+	public float getSlope()
+	{
+		double sxx = n * sumXX - sumX * sumX;
+		if (n < 2 || sxx <= 0.0)
+			return Float.NaN;
+		return (float)((n * sumXY - sumX * sumY) / sxx);
+	}
+
+	/**
+	 * Returns the intercept, a (ms). NaN if the slope is undefined.
+	 */
+	public float getIntercept()
+	{
+		float b = getSlope();
+		if (Float.isNaN(b))
+			return Float.NaN;
+		return (float)((sumY - b * sumX) / n);
+	}
+
+	/**
+	 * Returns the coefficient of determination, R^2. NaN if the slope is undefined or all MT values are the same.
+	 */
+	public float getRSquared()
+	{
+		double sxx = n * sumXX - sumX * sumX;
+		double syy = n * sumYY - sumY * sumY;
+		if (n < 2 || sxx <= 0.0 || syy <= 0.0)
+			return Float.NaN;
+		double sxy = n * sumXY - sumX * sumY;
+		return (float)(sxy * sxy / (sxx * syy));
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("MT = %.1f + %.1f * IDe (n = %d, R^2 = %.4f)", getIntercept(), getSlope(), n,
+				getRSquared());
+	}
+}
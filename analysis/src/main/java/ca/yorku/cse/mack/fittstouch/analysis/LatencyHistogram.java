@@ -0,0 +1,191 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * LatencyHistogram -- counts of latencies (e.g., how long touch events wait before they are handled, and how long the
+ * handlers take) in fixed log-linear buckets, so a latency is recorded in a few operations, with no allocation.
+ *
+ * The latencies are recorded in ns and bucketed in us. Below SUB_BUCKETS us, each us has its own bucket; above that,
+ * each power of two is split into SUB_BUCKETS buckets of equal width, so a bucket is no wider than 1 / SUB_BUCKETS of
+ * its values (6.25%). Latencies of MAX_US or more are counted in the last bucket. The percentiles are those of the
+ * buckets (the upper bound of the bucket the percentile falls in); the count, mean, minimum, and maximum are exact.
+ *
+ * appendRows writes the non-empty buckets as CSV rows (see CSV_HEADER), after the leading columns given, so a
+ * histogram can be dumped to a file and the percentiles recomputed from it, or histograms summed. A histogram is not
+ * thread-safe: it is recorded and dumped by one thread (the UI thread, in the activities).
+ */
+@SuppressWarnings("unused")
+public class LatencyHistogram
+{
+	public final static String CSV_HEADER = "Histogram,From(us),To(us),Count"; // after the leading columns
+	public final static int SUB_BITS = 4;
+	public final static int SUB_BUCKETS = 1 << SUB_BITS;
+	public final static int MAX_EXPONENT = 26; // MAX_US is 2^MAX_EXPONENT us (over a minute)
+	public final static long MAX_US = 1L << MAX_EXPONENT;
+	public final static int BUCKETS = (MAX_EXPONENT - SUB_BITS + 1) * SUB_BUCKETS + 1; // the last counts MAX_US and up
+
+	final String name;
+	final long[] counts = new long[BUCKETS];
+	long count, sum, min, max; // ns
+
+	public LatencyHistogram(String nameArg)
+	{
+		name = nameArg;
+		clear();
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * Counts a latency, in ns (a negative latency, e.g., from clock rounding, is counted as 0).
+	 */
+	public void record(long nanos)
+	{
+		if (nanos < 0)
+			nanos = 0;
+		++counts[bucket(nanos / 1000)];
+		++count;
+		sum += nanos;
+		if (nanos < min)
+			min = nanos;
+		if (nanos > max)
+			max = nanos;
+	}
+
+	/**
+	 * Returns the bucket of a latency in us.
+	 */
+	public static int bucket(long us)
+	{
+		if (us < SUB_BUCKETS)
+			return (int)us;
+		if (us >= MAX_US)
+			return BUCKETS - 1;
+		int exponent = 63 - Long.numberOfLeadingZeros(us);
+		int shift = exponent - SUB_BITS;
+		return (shift + 1 << SUB_BITS) + (int)(us >>> shift & SUB_BUCKETS - 1);
+	}
+
+	/**
+	 * Returns the lowest latency (us) in a bucket.
+	 */
+	public static long getBucketFrom(int bucket)
+	{
+		if (bucket < SUB_BUCKETS)
+			return bucket;
+		int shift = (bucket >> SUB_BITS) - 1;
+		return (long)(SUB_BUCKETS | bucket & SUB_BUCKETS - 1) << shift;
+	}
+
+	/**
+	 * Returns the end (us, exclusive) of a bucket (Long.MAX_VALUE for the last).
+	 */
+	public static long getBucketTo(int bucket)
+	{
+		if (bucket == BUCKETS - 1)
+			return Long.MAX_VALUE;
+		if (bucket < SUB_BUCKETS)
+			return bucket + 1;
+		return getBucketFrom(bucket) + (1L << (bucket >> SUB_BITS) - 1);
+	}
+
+	public long getCount()
+	{
+		return count;
+	}
+
+	public long getCount(int bucket)
+	{
+		return counts[bucket];
+	}
+
+	/**
+	 * Returns the mean latency (ms), or NaN if none was recorded.
+	 */
+	public float getMean()
+	{
+		return count == 0 ? Float.NaN : (float)((double)sum / count / 1e6);
+	}
+
+	/**
+	 * Returns the smallest latency recorded (ms), or NaN if none was recorded.
+	 */
+	public float getMin()
+	{
+		return count == 0 ? Float.NaN : min / 1e6f;
+	}
+
+	/**
+	 * Returns the largest latency recorded (ms), or NaN if none was recorded.
+	 */
+	public float getMax()
+	{
+		return count == 0 ? Float.NaN : max / 1e6f;
+	}
+
+	/**
+	 * Returns the latency (ms) that p percent of the latencies recorded are below (0 &lt; p &lt;= 100): the end of the
+	 * bucket it falls in, or the maximum, if that is less. Returns NaN if none was recorded.
+	 */
+	public float getPercentile(float p)
+	{
+		if (count == 0)
+			return Float.NaN;
+		long rank = (long)Math.ceil(p / 100.0 * count);
+		long seen = 0;
+		int i = 0;
+		for (; i < BUCKETS - 1; ++i)
+		{
+			seen += counts[i];
+			if (seen >= rank)
+				break;
+		}
+		return Math.min(getBucketTo(i) / 1e3f, getMax());
+	}
+
+	/**
+	 * Empties the histogram (e.g., at the start of a sequence).
+	 */
+	public void clear()
+	{
+		Arrays.fill(counts, 0);
+		count = 0;
+		sum = 0;
+		min = Long.MAX_VALUE;
+		max = 0;
+	}
+
+	/**
+	 * Appends a CSV row for each non-empty bucket: the leading columns (e.g., the sequence; ending with a comma, or
+	 * empty), then the columns of CSV_HEADER. The last bucket has no end ("To" is empty).
+	 */
+	public void appendRows(StringBuilder sb, String leading)
+	{
+		for (int i = 0; i < BUCKETS; ++i)
+		{
+			if (counts[i] == 0)
+				continue;
+			sb.append(leading).append(name).append(',').append(getBucketFrom(i)).append(',');
+			if (i < BUCKETS - 1)
+				sb.append(getBucketTo(i));
+			sb.append(',').append(counts[i]).append('\n');
+		}
+	}
+
+	/**
+	 * Returns a summary of the histogram, e.g., for the results display: "name: n = 240, p50 = 2.1 ms, p99 = 8.5 ms,
+	 * max = 11.0 ms".
+	 */
+	public String getSummary()
+	{
+		if (count == 0)
+			return name + ": n = 0";
+		return String.format(Locale.US, "%s: n = %d, p50 = %.1f ms, p99 = %.1f ms, max = %.1f ms", name,
+				count, getPercentile(50), getPercentile(99), getMax());
+	}
+}
@@ -0,0 +1,206 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * NumberParser -- parses the numbers in the data files from bytes (ASCII), without creating a String.
+ *
+ * The results are the same as Integer.parseInt, Long.parseLong, and Float.parseFloat on the same characters, and a
+ * field that is not a number throws NumberFormatException, as they do.
+ *
+ * parseFloat handles the numbers written by the app (Float.toString and %.Nf: an optional sign, digits, and a point)
+ * directly. The digits (at most 15) form a long m, exact in double, and with k digits after the point (at most 7), the
+ * value is m / 10^k, a correctly rounded division of exact doubles. Rounding that double to float gives the float
+ * nearest the decimal value (as Float.parseFloat does): a decimal with k &lt;= 7 places that is not halfway between two
+ * floats is more than 2^-52 (relative) from the halfway point, so the first rounding cannot move it to, or across,
+ * that point. Other forms (an exponent, NaN, Infinity, more digits) are parsed with Float.parseFloat.
+ *
+ * Each method also takes a ByteBuffer (e.g., a mapped file; see DataCursor), read with absolute gets, so the buffer's
+ * position is not changed.
+ */
+@SuppressWarnings("unused")
+public class NumberParser
+{
+	final static int MAX_DIGITS = 15;
+	final static int MAX_DECIMALS = 7;
+	final static long MULTIPLY_MIN = Long.MIN_VALUE / 10; // the least value that can be multiplied by 10
+
+	private final static double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7};
+
+	private NumberParser()
+	{
+	}
+
+	/**
+	 * Parses the int in bytes start to end - 1 of b.
+	 */
+	public static int parseInt(byte[] b, int start, int end)
+	{
+		long value = parseLong(b, start, end);
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+			throw error(b, start, end);
+		return (int)value;
+	}
+
+	/**
+	 * Parses the long in bytes start to end - 1 of b.
+	 */
+	public static long parseLong(byte[] b, int start, int end)
+	{
+		int i = start;
+		boolean negative = false;
+		if (i < end && (b[i] == '-' || b[i] == '+'))
+			negative = b[i++] == '-';
+		if (i == end)
+			throw error(b, start, end);
+		long value = 0; // accumulated as a negative number, so Long.MIN_VALUE can be parsed
+		for (; i < end; ++i)
+		{
+			int d = b[i] - '0';
+			if (d < 0 || d > 9 || value < MULTIPLY_MIN)
+				throw error(b, start, end);
+			value *= 10;
+			if (value < Long.MIN_VALUE + d)
+				throw error(b, start, end);
+			value -= d;
+		}
+		if (!negative)
+		{
+			if (value == Long.MIN_VALUE)
+				throw error(b, start, end);
+			value = -value;
+		}
+		return value;
+	}
+
+	/**
+	 * Parses the float in bytes start to end - 1 of b.
+	 */
+	public static float parseFloat(byte[] b, int start, int end)
+	{
+		int i = start;
+		boolean negative = false;
+		if (i < end && (b[i] == '-' || b[i] == '+'))
+			negative = b[i++] == '-';
+		long m = 0;
+		int digits = 0, decimals = 0;
+		boolean point = false;
+		for (; i < end; ++i)
+		{
+			int d = b[i] - '0';
+			if (d >= 0 && d <= 9)
+			{
+				m = m * 10 + d;
+				++digits;
+				if (point)
+					++decimals;
+			} else if (b[i] == '.' && !point)
+				point = true;
+			else
+				break;
+		}
+		if (i < end || digits == 0 || digits > MAX_DIGITS || decimals > MAX_DECIMALS)
+			return slowParseFloat(b, start, end);
+		float value = (float)(m / POWERS_OF_TEN[decimals]);
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Parses the int in bytes start to end - 1 of b.
+	 */
+	public static int parseInt(ByteBuffer b, int start, int end)
+	{
+		long value = parseLong(b, start, end);
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+			throw error(b, start, end);
+		return (int)value;
+	}
+
+	/**
+	 * Parses the long in bytes start to end - 1 of b.
+	 */
+	public static long parseLong(ByteBuffer b, int start, int end)
+	{
+		int i = start;
+		boolean negative = false;
+		if (i < end && (b.get(i) == '-' || b.get(i) == '+'))
+			negative = b.get(i++) == '-';
+		if (i == end)
+			throw error(b, start, end);
+		long value = 0;
+		for (; i < end; ++i)
+		{
+			int d = b.get(i) - '0';
+			if (d < 0 || d > 9 || value < MULTIPLY_MIN)
+				throw error(b, start, end);
+			value *= 10;
+			if (value < Long.MIN_VALUE + d)
+				throw error(b, start, end);
+			value -= d;
+		}
+		if (!negative)
+		{
+			if (value == Long.MIN_VALUE)
+				throw error(b, start, end);
+			value = -value;
+		}
+		return value;
+	}
+
+	/**
+	 * Parses the float in bytes start to end - 1 of b.
+	 */
+	public static float parseFloat(ByteBuffer b, int start, int end)
+	{
+		int i = start;
+		boolean negative = false;
+		if (i < end && (b.get(i) == '-' || b.get(i) == '+'))
+			negative = b.get(i++) == '-';
+		long m = 0;
+		int digits = 0, decimals = 0;
+		boolean point = false;
+		for (; i < end; ++i)
+		{
+			int d = b.get(i) - '0';
+			if (d >= 0 && d <= 9)
+			{
+				m = m * 10 + d;
+				++digits;
+				if (point)
+					++decimals;
+			} else if (b.get(i) == '.' && !point)
+				point = true;
+			else
+				break;
+		}
+		if (i < end || digits == 0 || digits > MAX_DIGITS || decimals > MAX_DECIMALS)
+			return Float.parseFloat(toString(b, start, end));
+		float value = (float)(m / POWERS_OF_TEN[decimals]);
+		return negative ? -value : value;
+	}
+
+	private static float slowParseFloat(byte[] b, int start, int end)
+	{
+		return Float.parseFloat(new String(b, start, end - start, StandardCharsets.ISO_8859_1));
+	}
+
+	private static NumberFormatException error(byte[] b, int start, int end)
+	{
+		return new NumberFormatException("For input string: \""
+				+ new String(b, start, end - start, StandardCharsets.ISO_8859_1) + "\"");
+	}
+
+	private static NumberFormatException error(ByteBuffer b, int start, int end)
+	{
+		return new NumberFormatException("For input string: \"" + toString(b, start, end) + "\"");
+	}
+
+	private static String toString(ByteBuffer b, int start, int end)
+	{
+		byte[] bytes = new byte[end - start];
+		for (int i = start; i < end; ++i)
+			bytes[i - start] = b.get(i);
+		return new String(bytes, StandardCharsets.ISO_8859_1);
+	}
+}
@@ -0,0 +1,104 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import java.util.Locale;
+
+/**
+ * RecordEncoder -- appends the fields of a data file row to a StringBuilder without String.format.
+ *
+ * The output is the same, character for character, as the String.format conversions used previously for the data
+ * files: %d for ints (appendInt), %.Nf for floats (appendFixed), and replaceAll("\\s+", "") for the combination
+ * string (appendStripped). Floats written with %s are the same as StringBuilder.append(float), and longs written via
+ * Long.toString are the same as StringBuilder.append(long), so no method is needed for them.
+ *
+ * appendFixed rounds half up (away from zero), as Formatter does. A float multiplied by 10^N (N &lt;= 6) is exact in
+ * double, so the rounding is done on the exact value. The sign of a negative value that rounds to zero is kept (e.g.,
+ * "-0.0"), also as Formatter does.
+ *
+ * Formatter uses the default locale's digits and decimal separator. If these are not plain ASCII ('0'...'9' and
+ * '.'), or the value is NaN, infinite, or very large, the field is formatted with String.format, so the output is
+ * still the same. Otherwise, nothing is allocated.
+ */
+@SuppressWarnings("unused")
+public class RecordEncoder
+{
+	public final static int MAX_DECIMALS = 6;
+
+	// values at or above this are formatted with String.format (value x 10^MAX_DECIMALS stays well within 2^53)
+	final static float FIXED_LIMIT = 1.0e9f;
+
+	private final static long[] POWERS_OF_TEN = {1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L};
+	private final static String[] FIXED_FORMATS = {"%.0f", "%.1f", "%.2f", "%.3f", "%.4f", "%.5f", "%.6f"};
+
+	// the locale last checked, and whether String.format in that locale gives plain ASCII numbers
+	private static volatile Locale checkedLocale;
+	private static volatile boolean plainLocale;
+
+	private RecordEncoder()
+	{
+	}
+
+	/**
+	 * Appends an int, as String.format("%d", value).
+	 */
+	public static void appendInt(StringBuilder sb, int value)
+	{
+		if (isPlainLocale())
+			sb.append(value);
+		else
+			sb.append(String.format("%d", value));
+	}
+
+	/**
+	 * Appends a float with the given number of decimal places (0 to MAX_DECIMALS), as String.format("%.Nf", value).
+	 */
+	public static void appendFixed(StringBuilder sb, float value, int decimals)
+	{
+		if (decimals < 0 || decimals > MAX_DECIMALS)
+			throw new IllegalArgumentException("decimals must be 0 to " + MAX_DECIMALS + ": " + decimals);
+		if (!(Math.abs(value) < FIXED_LIMIT) || !isPlainLocale()) // also NaN and infinity
+		{
+			sb.append(String.format(FIXED_FORMATS[decimals], value));
+			return;
+		}
+
+		long power = POWERS_OF_TEN[decimals];
+		long rounded = (long)Math.floor(Math.abs((double)value) * power + 0.5); // half up
+		if (Float.floatToRawIntBits(value) < 0) // negative (including -0.0)
+			sb.append('-');
+		sb.append(rounded / power);
+		if (decimals > 0)
+		{
+			long fraction = rounded % power;
+			sb.append('.');
+			for (long p = power / 10; p > 1 && fraction < p; p /= 10)
+				sb.append('0');
+			sb.append(fraction);
+		}
+	}
+
+	/**
+	 * Appends s with whitespace removed, as s.replaceAll("\\s+", "") (whitespace is space, tab, newline, vertical tab,
+	 * form feed, and carriage return).
+	 */
+	public static void appendStripped(StringBuilder sb, String s)
+	{
+		for (int i = 0; i < s.length(); ++i)
+		{
+			char c = s.charAt(i);
+			if (c != ' ' && c != '\t' && c != '\n' && c != '\u000B' && c != '\f' && c != '\r')
+				sb.append(c);
+		}
+	}
+
+	// true if String.format in the default locale gives plain ASCII digits, '-', and '.' (checked on locale change)
+	static boolean isPlainLocale()
+	{
+		Locale locale = Locale.getDefault();
+		if (locale != checkedLocale)
+		{
+			plainLocale = String.format("%d|%.1f", -1234567890, -0.5f).equals("-1234567890|-0.5");
+			checkedLocale = locale;
+		}
+		return plainLocale;
+	}
+}
@@ -0,0 +1,94 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+/**
+ * RowLeader -- the leading columns of the data file rows: participant, session, block (FittsTouch only), group,
+ * condition, and combination (with whitespace removed).
+ *
+ * These columns are the same in every row written for a combination, so the leader is encoded once and the encoded
+ * characters are appended to each row. The leader is rebuilt only when the combination changes; it is compared by
+ * reference, so the check costs one comparison per row (the activities take the combination strings from a fixed
+ * array). The rows in DataRecords append the leader, then only the fields that change from row to row.
+ *
+ * The condition code is written as String.format("%d", ...) (see RecordEncoder.appendInt), in every file.
+ *
+ * A RowWriter takes the leader with setLeader: CsvRowWriter appends the encoded leader, and BinaryLogWriter sets the
+ * leading columns (see setColumns). BinaryLogWriter skips the dictionary lookup when a STRING column is set to the
+ * same string as in the last row, so the leading columns cost nothing after the first row either.
+ */
+@SuppressWarnings("unused")
+public class RowLeader
+{
+	final String participantCode, sessionCode, blockCode, groupCode;
+	final int conditionCode;
+
+	String combination; // the combination the leader was encoded for (null: not yet encoded)
+	final StringBuilder builder = new StringBuilder(64);
+	char[] text = new char[64];
+	int length;
+
+	/**
+	 * Creates the leader. blockCode is null if the rows have no block column.
+	 */
+	public RowLeader(String participantCodeArg, String sessionCodeArg, String blockCodeArg, String groupCodeArg,
+					 int conditionCodeArg)
+	{
+		participantCode = participantCodeArg;
+		sessionCode = sessionCodeArg;
+		blockCode = blockCodeArg;
+		groupCode = groupCodeArg;
+		conditionCode = conditionCodeArg;
+	}
+
+	/**
+	 * Appends the leader for the combination, including the comma after it.
+	 */
+	public void appendTo(StringBuilder sb, String combinationArg)
+	{
+		if (combinationArg != combination)
+			encode(combinationArg);
+		sb.append(text, 0, length);
+	}
+
+	/**
+	 * Returns the number of leading columns (6 with a block code, otherwise 5).
+	 */
+	public int getColumnCount()
+	{
+		return blockCode != null ? 6 : 5;
+	}
+
+	/**
+	 * Sets the leading columns of a row (Participant, Session, [Block,] Group, the condition code, and
+	 * CurrentCombination, as in the schemas in BinaryLogSchema).
+	 */
+	public void setColumns(RowWriter w, String combinationArg)
+	{
+		int c = 0;
+		w.setString(c++, participantCode);
+		w.setString(c++, sessionCode);
+		if (blockCode != null)
+			w.setString(c++, blockCode);
+		w.setString(c++, groupCode);
+		w.setInt(c++, conditionCode);
+		w.setString(c, combinationArg);
+	}
+
+	private void encode(String combinationArg)
+	{
+		StringBuilder sb = builder;
+		sb.setLength(0);
+		sb.append(participantCode).append(',').append(sessionCode).append(',');
+		if (blockCode != null)
+			sb.append(blockCode).append(',');
+		sb.append(groupCode).append(',');
+		RecordEncoder.appendInt(sb, conditionCode);
+		sb.append(',');
+		RecordEncoder.appendStripped(sb, combinationArg);
+		sb.append(',');
+		length = sb.length();
+		if (length > text.length)
+			text = new char[Math.max(length, 2 * text.length)];
+		sb.getChars(0, length, text, 0);
+		combination = combinationArg;
+	}
+}
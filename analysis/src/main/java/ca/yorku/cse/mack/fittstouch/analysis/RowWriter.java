@@ -0,0 +1,44 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+/**
+ * RowWriter -- adds the rows of a data file, column by column, in the format of the writer: CSV (CsvRowWriter) or
+ * binary (BinaryLogWriter).
+ *
+ * The columns are those of the writer's schema (see BinaryLogSchema). To add a row, set the leading columns
+ * (setLeader) and every other column, then call endRow. The rows in DataRecords are written this way, so the same
+ * code writes a CSV file and a binary file.
+ */
+public interface RowWriter
+{
+	BinaryLogSchema getSchema();
+
+	/**
+	 * Sets the leading columns (participant ... combination; see RowLeader).
+	 */
+	void setLeader(RowLeader leader, String combination);
+
+	/**
+	 * Sets a STRING column (null for absent).
+	 */
+	void setString(int column, String s);
+
+	/**
+	 * Sets an INT column.
+	 */
+	void setInt(int column, int value);
+
+	/**
+	 * Sets a LONG or TIME column.
+	 */
+	void setLong(int column, long value);
+
+	/**
+	 * Sets a FLOAT or FIXED column.
+	 */
+	void setFloat(int column, float value);
+
+	/**
+	 * Adds the row.
+	 */
+	void endRow();
+}
@@ -0,0 +1,507 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * SessionJournal -- a memory-mapped, append-only journal of the data records and state of a session, so a session can
+ * be resumed if the app is killed (e.g., a low-memory kill, or the participant presses Home).
+ *
+ * The activity appends each data record (an sd1 row, an sd4 sample, ...) to the journal when it adds it to its
+ * StringBuilder (or BinaryLogWriter), and adds a checkpoint at the end of each trial with the state needed to carry on
+ * (block, combination, trial, target order, ...). The journal file is mapped into memory, so an append is a copy into
+ * memory: there is no system call and no fsync. Once copied, the data survive the app being killed (the pages belong to
+ * the operating system, which writes them to storage). Only a power failure can lose the last entries; a checksum on
+ * each entry detects one that was partly written.
+ *
+ * A checkpoint commits the records before it. When a journal is opened, its entries are read up to the last
+ * checkpoint; records after it (from a trial that did not finish) are dropped. If there is a checkpoint, getCheckpoint
+ * returns its state, getName returns the name of each data file, and restore truncates each data file to the length
+ * it had when the journal was last compacted and appends the records committed since, so the activity can resume at
+ * the trial where it stopped. Otherwise, call reset() to start a new journal. Call delete() when the session is done
+ * and the data files are closed.
+ *
+ * The records only need to stay in the journal until they are in the data files. Once the records up to a checkpoint
+ * are written and flushed (at the end of each sequence, on the data writer's thread; see AsyncDataWriter.submit),
+ * discard rewrites the journal with the names, the lengths of the data files, and the entries from that checkpoint
+ * on. So the journal (and the records read when it is opened) hold about one sequence, however long the session.
+ *
+ * File format (numbers are little-endian):
+ *
+ * <pre>
+ *     magic "FTJ1"
+ *     entries: i32 length (n), i32 CRC-32 of the next n bytes, u8 type, u8 stream, n - 2 bytes of data
+ *         'N' -- the name of the data file for the stream (UTF-8)
+ *         'R' -- records for the stream (the bytes of the file)
+ *         'C' -- checkpoint (the state; stream is 0)
+ *         'L' -- i64 length, i64 trailer: the length of the data file for the stream, which holds the records before
+ *                the entry (and the gzip trailer that ends the file's last member, if it is compressed; see discard)
+ *     a zero length marks the end
+ * </pre>
+ *
+ * The length of an entry is written last, so an entry is not seen until it is complete. The methods are synchronized
+ * (records may be added from another thread, e.g., ZoomActivity's sd4 writer).
+ */
+@SuppressWarnings("unused")
+public class SessionJournal implements Closeable
+{
+	public final static int INITIAL_CAPACITY = 1 << 20; // bytes (the file grows as needed)
+
+	final static byte[] MAGIC = {'F', 'T', 'J', '1'};
+	final static byte NAME = 'N';
+	final static byte RECORD = 'R';
+	final static byte CHECKPOINT = 'C';
+	final static byte LENGTH = 'L';
+	final static int STREAMS = 256;
+
+	final File file;
+	RandomAccessFile raf;
+	FileChannel channel;
+	final CRC32 crc = new CRC32();
+	MappedByteBuffer map;
+	int position; // where the next entry goes
+	int checkpointAt = -1; // where the last checkpoint begins
+	long base; // the position (see getCheckpointPosition) of the start of the file, once entries are discarded
+	byte[] scratch = new byte[1024];
+	IOException error;
+
+	// recovered when the journal is opened
+	final String[] names = new String[STREAMS];
+	final byte[][] records = new byte[STREAMS][];
+	final int[] sizes = new int[STREAMS];
+	final int[] committed = new int[STREAMS]; // bytes of records up to the last checkpoint
+	final long[] lengths = new long[STREAMS]; // data file lengths (see LENGTH)
+	final long[] trailers = new long[STREAMS];
+	final long[] committedLengths = new long[STREAMS]; // ... up to the last checkpoint
+	final long[] committedTrailers = new long[STREAMS];
+	ByteBuffer checkpoint;
+
+	/**
+	 * Opens (or creates) the journal and reads the entries up to the last checkpoint.
+	 */
+	public SessionJournal(File fileArg) throws IOException
+	{
+		file = fileArg;
+		raf = new RandomAccessFile(file, "rw");
+		channel = raf.getChannel();
+		long length = raf.length();
+		if (length > Integer.MAX_VALUE)
+			throw new IOException("journal too large: " + file);
+		map(Math.max(INITIAL_CAPACITY, (int)length));
+		if (length < MAGIC.length || !hasMagic())
+			reset();
+		else
+			recover();
+	}
+
+	/**
+	 * Returns the state in the last checkpoint (from position 0), or null if there is none.
+	 */
+	public synchronized ByteBuffer getCheckpoint()
+	{
+		return checkpoint == null ? null : checkpoint.duplicate();
+	}
+
+	/**
+	 * Returns the name of the data file for the stream, or null if none was recorded.
+	 */
+	public synchronized String getName(int stream)
+	{
+		return names[stream];
+	}
+
+	/**
+	 * Returns the records for the stream up to the last checkpoint, since the journal was last compacted (see
+	 * discard); i.e., the bytes of the data file after getLength bytes when the checkpoint was made.
+	 */
+	public synchronized byte[] getRecords(int stream)
+	{
+		if (records[stream] == null)
+			return new byte[0];
+		return Arrays.copyOf(records[stream], committed[stream]);
+	}
+
+	/**
+	 * Returns the length of the data file for the stream when the journal was last compacted, up to the last
+	 * checkpoint (0 if it was not compacted).
+	 */
+	public synchronized long getLength(int stream)
+	{
+		return committedLengths[stream];
+	}
+
+	/**
+	 * Restores the data file for the stream (see getName) as it was at the last checkpoint: truncates it to getLength
+	 * and appends getRecords. A compressed file (see CompressedDataFiles) has its last member ended (see
+	 * CompressedDataFiles.truncate) and the records added as a new member.
+	 */
+	public synchronized void restore(int stream) throws IOException
+	{
+		File f = new File(names[stream]);
+		long length = committedLengths[stream];
+		boolean compressed = CompressedDataFiles.isCompressed(f);
+		if (compressed)
+			CompressedDataFiles.truncate(f, length, committedTrailers[stream]);
+		else
+		{
+			RandomAccessFile r = new RandomAccessFile(f, "rw");
+			try
+			{
+				if (r.length() < length)
+					throw new IOException("data file shorter than journaled (" + length + " bytes): " + f);
+				r.setLength(length);
+			} finally
+			{
+				r.close();
+			}
+		}
+		if (committed[stream] == 0)
+			return;
+		OutputStream out = compressed ? CompressedDataFiles.create(f, true) : new FileOutputStream(f, true);
+		try
+		{
+			out.write(records[stream], 0, committed[stream]);
+		} finally
+		{
+			out.close();
+		}
+	}
+
+	/**
+	 * Returns the position of the last checkpoint, for discard (it stays valid when the journal is compacted), or -1
+	 * if there is none.
+	 */
+	public synchronized long getCheckpointPosition()
+	{
+		return checkpointAt < 0 ? -1 : base + checkpointAt;
+	}
+
+	/**
+	 * Empties the journal (for a new session).
+	 */
+	public synchronized void reset() throws IOException
+	{
+		map = null; // not used again (the file is truncated)
+		raf.setLength(0);
+		map(INITIAL_CAPACITY);
+		map.position(0);
+		map.put(MAGIC);
+		position = MAGIC.length;
+		checkpointAt = -1;
+		base = 0;
+		checkpoint = null;
+		error = null;
+		Arrays.fill(names, null);
+		Arrays.fill(records, null);
+		Arrays.fill(sizes, 0);
+		Arrays.fill(committed, 0);
+		Arrays.fill(lengths, 0);
+		Arrays.fill(trailers, 0);
+		Arrays.fill(committedLengths, 0);
+		Arrays.fill(committedTrailers, 0);
+	}
+
+	/**
+	 * Records the name of the data file for the stream.
+	 */
+	public synchronized void setName(int stream, String name)
+	{
+		names[stream] = name;
+		byte[] b = name.getBytes(StandardCharsets.UTF_8);
+		put(NAME, stream, b, 0, b.length);
+	}
+
+	/**
+	 * Appends the characters start to end - 1 of s (as UTF-8) to the records for the stream.
+	 */
+	public synchronized void append(int stream, CharSequence s, int start, int end)
+	{
+		ensureScratch(3 * (end - start));
+		int n = 0;
+		for (int i = start; i < end; ++i)
+		{
+			char c = s.charAt(i);
+			if (c < 0x80)
+				scratch[n++] = (byte)c;
+			else if (c < 0x800)
+			{
+				scratch[n++] = (byte)(0xC0 | c >> 6);
+				scratch[n++] = (byte)(0x80 | c & 0x3F);
+			} else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(s.charAt(i + 1)))
+			{
+				int cp = Character.toCodePoint(c, s.charAt(++i));
+				scratch[n++] = (byte)(0xF0 | cp >> 18);
+				scratch[n++] = (byte)(0x80 | cp >> 12 & 0x3F);
+				scratch[n++] = (byte)(0x80 | cp >> 6 & 0x3F);
+				scratch[n++] = (byte)(0x80 | cp & 0x3F);
+			} else
+			{
+				scratch[n++] = (byte)(0xE0 | c >> 12);
+				scratch[n++] = (byte)(0x80 | c >> 6 & 0x3F);
+				scratch[n++] = (byte)(0x80 | c & 0x3F);
+			}
+		}
+		put(RECORD, stream, scratch, 0, n);
+	}
+
+	/**
+	 * Appends length bytes of b, starting at offset, to the records for the stream.
+	 */
+	public synchronized void append(int stream, byte[] b, int offset, int length)
+	{
+		put(RECORD, stream, b, offset, length);
+	}
+
+	/**
+	 * Adds a checkpoint with the state in bytes 0 to state.position() - 1. This commits the records appended so far.
+	 * An error adding an earlier entry (e.g., the file could not grow) is thrown from here.
+	 */
+	public synchronized void checkpoint(ByteBuffer state) throws IOException
+	{
+		int n = state.position();
+		ensureScratch(n);
+		ByteBuffer b = state.duplicate();
+		b.flip();
+		b.get(scratch, 0, n);
+		int at = position;
+		put(CHECKPOINT, 0, scratch, 0, n);
+		if (error != null)
+			throw error;
+		checkpointAt = at;
+	}
+
+	/**
+	 * Discards the entries before the checkpoint at checkpointPosition (see getCheckpointPosition), once their records
+	 * are in the data files: fileLengths[stream] is the length of the data file for each stream with a name (see
+	 * setName) after those records were written and flushed, and fileTrailers[stream] its gzip trailer, if it is
+	 * compressed (see CompressedDataFiles.getTrailer; fileTrailers may be null if no file is). Call it on the thread
+	 * that writes the data files, after it has written them (e.g., from an AsyncDataWriter task submitted after the
+	 * checkpoint).
+	 *
+	 * The journal is rewritten with the names, the lengths, and the entries from the checkpoint on: to a new file,
+	 * renamed over the journal, so a kill leaves one or the other. The new file is mapped at its own size (the old
+	 * mapping is released when it is collected).
+	 */
+	public synchronized void discard(long checkpointPosition, long[] fileLengths, long[] fileTrailers)
+			throws IOException
+	{
+		if (error != null)
+			throw error;
+		long p = checkpointPosition - base;
+		if (p < MAGIC.length || p > checkpointAt)
+			throw new IOException("no checkpoint at " + checkpointPosition + ": " + file);
+		int start = (int)p;
+
+		// the new journal, in memory: the magic, the names and lengths, and the entries from start
+		int size = MAGIC.length + position - start + 4;
+		byte[][] nameBytes = new byte[STREAMS][];
+		for (int s = 0; s < STREAMS; ++s)
+			if (names[s] != null)
+			{
+				nameBytes[s] = names[s].getBytes(StandardCharsets.UTF_8);
+				size += 10 + nameBytes[s].length + 10 + 16;
+			}
+		ByteBuffer b = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		b.put(MAGIC);
+		byte[] length = new byte[16];
+		ByteBuffer lb = ByteBuffer.wrap(length).order(ByteOrder.LITTLE_ENDIAN);
+		int q = MAGIC.length;
+		for (int s = 0; s < STREAMS; ++s)
+			if (nameBytes[s] != null)
+			{
+				q = putEntry(b, q, NAME, s, nameBytes[s], 0, nameBytes[s].length);
+				lb.putLong(0, fileLengths[s]).putLong(8, fileTrailers == null ? 0 : fileTrailers[s]);
+				q = putEntry(b, q, LENGTH, s, length, 0, length.length);
+			}
+		map.position(start);
+		map.get(b.array(), q, position - start);
+		int end = q + position - start;
+
+		File tmp = new File(file.getPath() + ".tmp");
+		RandomAccessFile r = new RandomAccessFile(tmp, "rw");
+		try
+		{
+			r.setLength(0);
+			r.write(b.array(), 0, size);
+		} catch (IOException e)
+		{
+			r.close();
+			tmp.delete();
+			throw e;
+		}
+		if (!tmp.renameTo(file))
+		{
+			r.close();
+			tmp.delete();
+			throw new IOException("cannot rename " + tmp + " to " + file);
+		}
+		channel.close();
+		raf.close();
+		raf = r;
+		channel = r.getChannel();
+		map = null;
+		map(Math.max(INITIAL_CAPACITY, 2 * size));
+		base += start - q;
+		checkpointAt += q - start;
+		position = end;
+	}
+
+	/**
+	 * Closes and deletes the journal (call when the session is done and its data files are closed).
+	 */
+	public synchronized void delete() throws IOException
+	{
+		close();
+		map = null;
+		if (!file.delete())
+			throw new IOException("cannot delete " + file);
+	}
+
+	@Override
+	public synchronized void close() throws IOException
+	{
+		channel.close();
+		raf.close();
+	}
+
+	private boolean hasMagic()
+	{
+		for (int i = 0; i < MAGIC.length; ++i)
+			if (map.get(i) != MAGIC[i])
+				return false;
+		return true;
+	}
+
+	// read the entries (up to a bad or incomplete one), keeping those up to the last checkpoint
+	private void recover()
+	{
+		int p = MAGIC.length;
+		int end = p; // just after the last checkpoint
+		int limit = map.capacity();
+		while (p + 10 <= limit)
+		{
+			int n = map.getInt(p);
+			if (n < 2 || n > limit - p - 8)
+				break;
+			ensureScratch(n);
+			map.position(p + 8);
+			map.get(scratch, 0, n);
+			crc.reset();
+			crc.update(scratch, 0, n);
+			if ((int)crc.getValue() != map.getInt(p + 4))
+				break;
+			int stream = scratch[1] & 0xFF;
+			switch (scratch[0])
+			{
+				case NAME:
+					names[stream] = new String(scratch, 2, n - 2, StandardCharsets.UTF_8);
+					break;
+				case RECORD:
+				{
+					byte[] r = records[stream];
+					int size = sizes[stream] + n - 2;
+					if (r == null)
+						r = records[stream] = new byte[Math.max(size, 4096)];
+					else if (size > r.length)
+						r = records[stream] = Arrays.copyOf(r, (int)Math.max(size,
+								Math.min(Integer.MAX_VALUE - 8, 2L * r.length)));
+					System.arraycopy(scratch, 2, r, sizes[stream], n - 2);
+					sizes[stream] = size;
+					break;
+				}
+				case CHECKPOINT:
+					checkpoint = ByteBuffer.wrap(Arrays.copyOfRange(scratch, 2, n));
+					System.arraycopy(sizes, 0, committed, 0, STREAMS);
+					System.arraycopy(lengths, 0, committedLengths, 0, STREAMS);
+					System.arraycopy(trailers, 0, committedTrailers, 0, STREAMS);
+					checkpointAt = p;
+					end = p + 8 + n;
+					break;
+				case LENGTH:
+				{
+					ByteBuffer b = ByteBuffer.wrap(scratch, 2, n - 2).order(ByteOrder.LITTLE_ENDIAN);
+					lengths[stream] = b.getLong();
+					trailers[stream] = b.getLong();
+					sizes[stream] = 0; // the records before are in the file
+					break;
+				}
+				default:
+					break;
+			}
+			p += 8 + n;
+		}
+
+		// drop the entries after the last checkpoint (new entries are added from there)
+		position = end;
+		Arrays.fill(scratch, (byte)0);
+		for (int q = end; q < limit; q += scratch.length)
+		{
+			map.position(q);
+			map.put(scratch, 0, Math.min(scratch.length, limit - q));
+		}
+	}
+
+	private void put(byte type, int stream, byte[] b, int offset, int length)
+	{
+		if (error != null)
+			return;
+		int n = length + 2;
+		try
+		{
+			ensureCapacity(position + 8 + n + 4); // room for the entry and the end mark
+		} catch (IOException e)
+		{
+			error = e;
+			return;
+		}
+		position = putEntry(map, position, type, stream, b, offset, length);
+	}
+
+	// write an entry at p in buffer; returns the position after it
+	private int putEntry(ByteBuffer buffer, int p, byte type, int stream, byte[] b, int offset, int length)
+	{
+		crc.reset();
+		crc.update(type);
+		crc.update(stream);
+		crc.update(b, offset, length);
+		buffer.putInt(p + 4, (int)crc.getValue());
+		buffer.put(p + 8, type);
+		buffer.put(p + 9, (byte)stream);
+		buffer.position(p + 10);
+		buffer.put(b, offset, length);
+		buffer.putInt(p, length + 2); // last, so the entry is complete when it is seen
+		return p + 10 + length;
+	}
+
+	private void ensureCapacity(int size) throws IOException
+	{
+		if (size <= map.capacity())
+			return;
+		if (size < 0)
+			throw new IOException("journal too large: " + file);
+		map((int)Math.min(Integer.MAX_VALUE, Math.max(2L * map.capacity(), size)));
+	}
+
+	private void map(int capacity) throws IOException
+	{
+		map = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+		map.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private void ensureScratch(int n)
+	{
+		if (n > scratch.length)
+			scratch = new byte[Math.max(n, 2 * scratch.length)];
+	}
+}
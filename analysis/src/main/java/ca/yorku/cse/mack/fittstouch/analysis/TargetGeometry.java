@@ -0,0 +1,73 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+/**
+ * TargetGeometry -- the position, size, and shape of a target, with hit-testing.
+ *
+ * The class has no Android dependencies. Rectangles are tested in the same way as android.graphics.RectF.contains (left
+ * and top edges inclusive, right and bottom edges exclusive), so results are identical on and off the device.
+ */
+@SuppressWarnings("unused")
+public class TargetGeometry
+{
+	public final static int RECTANGLE = 0;
+	public final static int CIRCLE = 1;
+
+	public float xCenter, yCenter, width, height;
+	public int type;
+
+	public TargetGeometry(int typeArg, float xCenterArg, float yCenterArg, float widthArg, float heightArg)
+	{
+		type = typeArg;
+		xCenter = xCenterArg;
+		yCenter = yCenterArg;
+		width = widthArg;
+		height = heightArg;
+	}
+
+	/**
+	 * Moves the target so it is centered on the specified coordinate.
+	 */
+	public void moveTo(float xCenterArg, float yCenterArg)
+	{
+		xCenter = xCenterArg;
+		yCenter = yCenterArg;
+	}
+
+	/**
+	 * Returns true if the specified coordinate is inside the target.
+	 */
+	public boolean inTarget(float xTest, float yTest)
+	{
+		if (type == CIRCLE)
+			return distanceFromTargetCenter(xTest, yTest) <= (width / 2f);
+		else
+			return inRectangle(xTest, yTest);
+	}
+
+	/**
+	 * Returns true if a circle (of the same size as this target) centered on the specified coordinate overlaps the
+	 * center of this target (e.g., a dragged target is on its destination).
+	 */
+	public boolean circleInTarget(float xTest, float yTest)
+	{
+		return distanceFromTargetCenter(xTest, yTest) <= (width);
+	}
+
+	/**
+	 * Returns the Pythagorean distance from the specified coordinate to the center of the target.
+	 */
+	public float distanceFromTargetCenter(float xTest, float yTest)
+	{
+		return (float) Math.sqrt((xCenter - xTest) * (xCenter - xTest) + (yCenter - yTest) * (yCenter - yTest));
+	}
+
+	// same test as RectF.contains for the bounding rectangle of the target
+	private boolean inRectangle(float xTest, float yTest)
+	{
+		float left = xCenter - width / 2f;
+		float top = yCenter - height / 2f;
+		float right = xCenter + width / 2f;
+		float bottom = yCenter + height / 2f;
+		return left < right && top < bottom && xTest >= left && xTest < right && yTest >= top && yTest < bottom;
+	}
+}
@@ -0,0 +1,550 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+/**
+ * Throughput -- class to provide a simple and accurate calculation of Fitts' throughput.
+ *
+ * This is a version of the Throughput class included with FittsTaskTwo. It has no Android dependencies, so it is used
+ * both by the app and for analyses on a desktop or server JVM. Coordinates are given as separate x and y arrays.
+ */
+@SuppressWarnings("unused")
+public class Throughput
+{
+	public final static float LOG_TWO = 0.693147181f;
+	public final static float SQRT_2_PI_E = 4.132731354f;
+
+	// int constants for response type
+	public final static int SERIAL = 100;
+	public final static int DISCRETE = 101;
+
+	// int constants for tasks type
+	public final static int ONE_DIMENSIONAL = 200;
+	public final static int TWO_DIMENSIONAL = 201;
+
+	/*
+	 * The following are the core set of data values needed to compute throughput and other measures provided in this
+	 * class.
+	 */
+	String code;
+	float amplitude, width;
+	float[] fromX, fromY, toX, toY, selectX, selectY;
+	float[] mt;
+	int numberOfTrials;
+	boolean serialTask;
+	int responseType, taskType;
+
+	/*
+	 * In high-precision mode, the means and standard deviations are accumulated in double, using Neumaier's
+	 * compensated summation. Use it when pooling many trials (e.g., a whole session), where float sums lose accuracy.
+	 * The default is float accumulation, as in the app.
+	 */
+	boolean highPrecision;
+
+	/*
+	 * The following arrays are populated with values calculated from the data in the arrays above. Only the first
+	 * numberOfTrials entries of each array are used (the arrays are reused and may be longer).
+	 */
+	float[] deltaX;
+	float[] ae;
+	int[] miss;
+
+	// the statistics computed from the arrays above (computed on first use; cleared when new data are set)
+	ThroughputSummary summary;
+
+	// the result of verifying the amplitude data (see AmplitudeCheck)
+	AmplitudeCheck amplitudeCheck = new AmplitudeCheck();
+
+	// Blank constructor. Must be followed with setData
+	Throughput()
+	{
+	}
+
+	// Constructor with data (one array entry per trial)
+	public Throughput(String codeArg, float amplitudeArg, float widthArg, int taskTypeArg, int responseTypeArg,
+					  float[] fromXArg, float[] fromYArg, float[] toXArg, float[] toYArg, float[] selectXArg,
+					  float[] selectYArg, float[] mtArg)
+	{
+		setData(codeArg, amplitudeArg, widthArg, taskTypeArg, responseTypeArg, fromXArg, fromYArg, toXArg, toYArg,
+				selectXArg, selectYArg, mtArg, mtArg.length);
+	}
+
+	/*
+	 * Constructor with data held in a TrialBuffer. The buffer's columns are used directly (they are not copied), so
+	 * the buffer must not be changed while this Throughput object is in use.
+	 */
+	public Throughput(String codeArg, float amplitudeArg, float widthArg, int taskTypeArg, int responseTypeArg,
+					  TrialBuffer trials)
+	{
+		setData(codeArg, amplitudeArg, widthArg, taskTypeArg, responseTypeArg, trials.fromX, trials.fromY,
+				trials.toX, trials.toY, trials.selectX, trials.selectY, trials.mt, trials.size());
+	}
+
+	/**
+	 * Set the data for this Throughput object. This method can be used to provide a new set of the data to the
+	 * Throughput object (without instantiated a new object).
+	 *
+	 */
+	private void setData(String codeArg, float amplitudeArg, float widthArg, int taskTypeArg, int responseTypeArg,
+						 float[] fromXArg, float[] fromYArg, float[] toXArg, float[] toYArg, float[] selectXArg,
+						 float[] selectYArg, float[] mtArg, int numberOfTrialsArg)
+	{
+		// load core requisite data
+		code = codeArg;
+		amplitude = amplitudeArg;
+		width = widthArg;
+		taskType = taskTypeArg;
+		responseType = responseTypeArg;
+		fromX = fromXArg;
+		fromY = fromYArg;
+		toX = toXArg;
+		toY = toYArg;
+		selectX = selectXArg;
+		selectY = selectYArg;
+		mt = mtArg;
+
+		serialTask = responseType == SERIAL ? true : false;
+		summary = null;
+
+		// calculate data that depend on the core data loaded above (begin by initializing arrays, if necessary)
+		numberOfTrials = numberOfTrialsArg;
+		if (deltaX == null || deltaX.length < numberOfTrials)
+		{
+			deltaX = new float[numberOfTrials];
+			ae = new float[numberOfTrials];
+			miss = new int[numberOfTrials];
+		}
+
+		// the amplitude data are verified if the amplitude is known (for a grid layout, see checkGridLayout)
+		boolean verify = amplitude > 0f;
+		if (verify)
+			amplitudeCheck.begin(amplitude, taskType, numberOfTrials);
+		else
+			amplitudeCheck.skip();
+
+		// fill deltaX, ae, and miss arrays
+		for (int i = 0; i < numberOfTrials; ++i)
+		{
+			// start-of-trial coordinate (centre of the "from" target)
+			float x1 = fromX[i];
+			float y1 = fromY[i];
+
+			// centre coordinate of the target to select (center of the "to" target)
+			float x2 = toX[i];
+			float y2 = toY[i];
+
+			// actual selection coordinate ("select")
+			float x = selectX[i];
+			float y = selectY[i];
+
+			// compute length of the sides of the triangle formed by the three points above
+			float a = (float)Math.hypot(x1 - x2, y1 - y2); // a: the specified amplitude
+			float b = (float)Math.hypot(x - x2, y - y2); // b: distance from the selection point to the target center
+			float c = (float)Math.hypot(x1 - x, y1 - y); // c: distance from "from" to "to"
+
+			if (verify)
+				amplitudeCheck.check(i, a);
+
+			/*
+			 * Compute dx. This calculation is correct, but a diagram helps to visualize the geometry. dx is negative
+			 * for a selection on the "near side" of the target center (undershoot) and positive for a selection on the
+			 * "far side" of the target center (overshoot). For a near-side selection, the a-b-c triangle is acute
+			 * (i.e., a^2 + b^2 > c^2). For a far-side selection the a-b-c triangle is obtuse (i.e., a^2 + b^2 < c^2).
+			 */
+			deltaX[i] = (c * c - b * b - a * a) / (2.0f * a); // Pythagorean identity
+
+			// debug/demo code...
+			// String type = (a * a + b * b) > (c * c) ? "ACUTE" : "obtuse";
+			// System.out.printf("a=%7.2f   b=%7.2f   c=%7.2f   type=%6s   dx=%7.2f\n", a, b, c, type, deltaX[i]);
+
+			/*
+			 * Compute the effective movement amplitude. The computed amplitude, a, is adjusted by adding dx at the end
+			 * of the trial to give the actual amplitude moved (as projected on the task axis).
+			 *
+			 * For serial tasks, we also adjust for the starting position by adding dx from the previous trial (if i >
+			 * 0).
+			 */
+			ae[i] = a + deltaX[i];
+			if (serialTask && i > 0)
+				ae[i] += deltaX[i - 1];
+
+			/*
+			 * Compute whether or not the target was missed. This information is not explicitly provided to the
+			 * Throughput class, so we need to calculate it. For the 1D case, the target is missed if dx is more than
+			 * half the target width. For the 2D case, we assume the targets are circular, which is typically the case.
+			 * The target is missed if b (the distance from the selection coordinate to the center of the target; see
+			 * above) is greater than half the diameter (i.e., width) of the target circle.
+			 */
+			//if (taskType == Throughput.ONE_DIMENSIONAL)
+			miss[i] = Math.abs(deltaX[i]) > width / 2.0 ? 1 : 0;
+			/*
+			else if (taskType == Throughput.TWO_DIMENSIONAL)
+				miss[i] = b > width / 2.0 ? 1 : 0;
+			else
+				miss[i] = -1;
+			*/
+		}
+	}
+
+	/**
+	 * Returns the result of verifying the amplitude data for the sequence of trials. The data are verified in setData
+	 * if the amplitude given is greater than 0, or by checkGridLayout.
+	 */
+	public AmplitudeCheck getAmplitudeCheck()
+	{
+		return amplitudeCheck;
+	}
+
+	/**
+	 * Verifies the amplitude data against a grid layout, in place of the check in setData, and returns the result. The
+	 * expected amplitudes are from AmplitudeCheck.gridAmplitudes for the layout, and the target order gives the index
+	 * of the "to" target of each trial (see AmplitudeCheck).
+	 */
+	public AmplitudeCheck checkGridLayout(float[][] gridAmplitudes, int[] targetOrder)
+	{
+		amplitudeCheck.beginGrid(gridAmplitudes, targetOrder);
+		for (int i = 0; i < numberOfTrials; ++i)
+			amplitudeCheck.check(i, (float)Math.hypot(fromX[i] - toX[i], fromY[i] - toY[i]));
+		return amplitudeCheck;
+	}
+
+	/**
+	 * Returns the code associated with this sequence of trials. The code is the string assigned to the sequence to
+	 * associate text conditions (e.g., participant code, device code, etc.) with the sequence.
+	 */
+	public String getCode()
+	{
+		return code;
+	}
+
+	/**
+	 * Selects high-precision (double, compensated) or float accumulation for the statistics. The summary is recomputed
+	 * on next use if the mode changes.
+	 */
+	public void setHighPrecision(boolean highPrecisionArg)
+	{
+		if (highPrecisionArg != highPrecision)
+			summary = null;
+		highPrecision = highPrecisionArg;
+	}
+
+	/**
+	 * Returns true if the statistics are accumulated in high-precision mode.
+	 */
+	public boolean isHighPrecision()
+	{
+		return highPrecision;
+	}
+
+	/**
+	 * Returns the summary statistics for the sequence of trials. The summary is computed on the first call (after the
+	 * data are set) and the same object is returned thereafter.
+	 */
+	public ThroughputSummary getSummary()
+	{
+		if (summary == null)
+		{
+			int misses = 0;
+			for (int i = 0; i < numberOfTrials; ++i)
+				misses += miss[i];
+			if (highPrecision)
+				summary = new ThroughputSummary(numberOfTrials, (float)meanHigh(ae), (float)sdHigh(deltaX),
+						(float)meanHigh(deltaX), (float)meanHigh(mt), misses);
+			else
+				summary = new ThroughputSummary(numberOfTrials, mean(ae), sd(deltaX), mean(deltaX), mean(mt),
+						misses);
+		}
+		return summary;
+	}
+
+	/**
+	 * Returns the Throughput for the sequence of trials.
+	 */
+	public float getThroughput()
+	{
+		return getSummary().getThroughput(); // bits per second
+	}
+
+	/**
+	 * Returns the mean movement time (ms) for the sequence of trials.
+	 */
+	public float getMT()
+	{
+		return getSummary().getMT(); // milliseconds
+	}
+
+	/**
+	 * Returns the number of trials in this sequence.
+	 */
+	public int getNumberOfTrials()
+	{
+		return numberOfTrials;
+	}
+
+	/**
+	 * Returns the task type for this sequence. The return value is the int given to the Throughput object (via the
+	 * constructor of setData). Should be Throughput.ONE_DIMENSIONAL or Throughout.TWO_DIMENSIONAL.
+	 */
+	public int getTaskType()
+	{
+		return taskType;
+	}
+
+	/**
+	 * Returns a string representing the task type for this sequence. The string returned is "1D", "2D", or "?" (if the
+	 * task type is unknown).
+	 *
+	 * @return
+	 */
+
+	public String getTaskTypeString(int taskType)
+	{
+		if (taskType == ONE_DIMENSIONAL)
+			return "1D";
+		else if (taskType == TWO_DIMENSIONAL)
+			return "2D";
+		else
+			return "?";
+	}
+
+	/**
+	 * Returns the response type for this sequence. The value returned is the int constant passed to the Throughput
+	 * object in the first place (via the constructor or setData). Should be Throughput.SERIAL or Throughput.DISCRETE.
+	 */
+	public int getResponseType()
+	{
+		return responseType;
+	}
+
+	/**
+	 * Returns a string representing the response type for this sequence. The string returned is "Serial", "Discrete",
+	 * of "?" (if the response type is unknown).
+	 */
+	public String getResponseTypeString(int responseType)
+	{
+		if (responseType == SERIAL)
+			return "Serial";
+		else if (responseType == DISCRETE)
+			return "Discrete";
+		else
+			return "?";
+	}
+
+	/**
+	 * Returns the x coordinates of the "from" points for the trials in this sequence. The "from" points are the
+	 * coordinates of the center of the target from which each trial begins. Only the first getNumberOfTrials()
+	 * entries are used (likewise for the other coordinate arrays below).
+	 */
+	public float[] getFromX()
+	{
+		return fromX;
+	}
+
+	/**
+	 * Returns the y coordinates of the "from" points for the trials in this sequence.
+	 */
+	public float[] getFromY()
+	{
+		return fromY;
+	}
+
+	/**
+	 * Returns the x coordinates of the "to" points for the trials in this sequence. The "to" points are the
+	 * coordinates of the center of the target to which each trial proceeds.
+	 */
+	public float[] getToX()
+	{
+		return toX;
+	}
+
+	/**
+	 * Returns the y coordinates of the "to" points for the trials in this sequence.
+	 */
+	public float[] getToY()
+	{
+		return toY;
+	}
+
+	/**
+	 * Returns the x coordinates of the "select" points for the trials in this sequence. The "select" points are the
+	 * coordinates of the point of selection where each trial terminated.
+	 */
+	public float[] getSelectX()
+	{
+		return selectX;
+	}
+
+	/**
+	 * Returns the y coordinates of the "select" points for the trials in this sequence.
+	 */
+	public float[] getSelectY()
+	{
+		return selectY;
+	}
+
+	/**
+	 * Returns the float array holding the mt (movement time) values for the trials in this sequence. Only the first
+	 * getNumberOfTrials() entries are used.
+	 *
+	 * @return
+	 */
+	public float[] getMTArray()
+	{
+		return mt;
+	}
+
+	/**
+	 * Returns the standard deviation in the selection coordinates for this sequence of trials. The coordinates are
+	 * projected onto the task axis.
+	 */
+	public float getSDx()
+	{
+		return getSummary().getSDx();
+	}
+
+	/**
+	 * Returns the mean of the selection coordinates for this sequence of trials. The coordinates are projected onto the
+	 * task axis.
+	 */
+	public float getX()
+	{
+		return getSummary().getX();
+	}
+
+	/**
+	 * Returns the array of selection coordinates for this sequence of trials. The coordinates are projected onto the
+	 * task axis. Only the first getNumberOfTrials() entries are used.
+	 */
+	public float[] getDeltaX()
+	{
+		return deltaX;
+	}
+
+	/**
+	 * Returns the specified amplitude for the trials in this sequence.
+	 *
+	 * NOTE: This value is not used in calculating Throughput. It is provided only as a convenience.
+	 */
+	public float getA()
+	{
+		return amplitude;
+	}
+
+	/**
+	 * Returns the effective amplitude for the trials in this sequence. The effective amplitude is the mean of the
+	 * actual movement amplitudes for the sequence of trials, as projected on the task axis.
+	 */
+	public float getAe()
+	{
+		return getSummary().getAe();
+	}
+
+	/**
+	 * Returns the specified target width for this sequence of trials.
+	 *
+	 * NOTE: This value is not used in calculating Throughput. It is provided only as a convenience.
+	 */
+	public float getW()
+	{
+		return width;
+	}
+
+	/**
+	 * Returns the effective target width for this sequence of trials. The effective target width is 4.133 x SDx, where
+	 * SDx is the standard deviation in the selection coordinates, as projected onto the task axis.
+	 */
+	public float getWe()
+	{
+		return getSummary().getWe();
+	}
+
+	/**
+	 * Returns the specified index of difficulty for this sequence of trials. The specified index of difficulty is ID =
+	 * log2(A/W + 1).
+	 *
+	 * NOTE: This value is not used in calculating Throughput. It is provided only as a convenience.
+	 */
+	public float getID()
+	{
+		return (float)Math.log(getA() / getW() + 1.0f) / LOG_TWO;
+	}
+
+	/**
+	 * Returns the effective index of difficulty for this sequence of trials. The effective index of difficulty, IDe =
+	 * log2(Ae/We + 1).
+	 */
+	public float getIDe()
+	{
+		return getSummary().getIDe();
+	}
+
+	/**
+	 * Returns the number of misses for this sequence.
+	 */
+	public int getMisses()
+	{
+		return getSummary().getMisses();
+	}
+
+	/**
+	 * Returns the error rate as a percentage.
+	 */
+	public float getErrorRate()
+	{
+		return getSummary().getErrorRate();
+	}
+
+	// Calculate the mean of the first numberOfTrials values in a float array.
+	private float mean(float n[])
+	{
+		float mean = 0.0f;
+		for (int j = 0; j < numberOfTrials; j++)
+			mean += n[j];
+		return mean / numberOfTrials;
+	}
+
+	// Calculate the standard deviation of the first numberOfTrials values in a float array.
+	private float sd(float[] n)
+	{
+		float m = mean(n);
+		float t = 0.0f;
+		for (int j = 0; j < numberOfTrials; j++)
+			t += (m - n[j]) * (m - n[j]);
+		return (float)Math.sqrt(t / (numberOfTrials - 1.0f));
+	}
+
+	// Calculate the mean of the first numberOfTrials values in a float array (double, compensated summation).
+	private double meanHigh(float[] n)
+	{
+		double sum = 0.0, c = 0.0; // c is the running compensation (Neumaier)
+		for (int j = 0; j < numberOfTrials; j++)
+		{
+			double v = n[j];
+			double t = sum + v;
+			if (Math.abs(sum) >= Math.abs(v))
+				c += (sum - t) + v;
+			else
+				c += (v - t) + sum;
+			sum = t;
+		}
+		return (sum + c) / numberOfTrials;
+	}
+
+	// Calculate the standard deviation of the first numberOfTrials values in a float array (double, compensated).
+	private double sdHigh(float[] n)
+	{
+		double m = meanHigh(n);
+		double sum = 0.0, c = 0.0;
+		for (int j = 0; j < numberOfTrials; j++)
+		{
+			double v = (n[j] - m) * (n[j] - m);
+			double t = sum + v;
+			if (sum >= v) // both are non-negative
+				c += (sum - t) + v;
+			else
+				c += (v - t) + sum;
+			sum = t;
+		}
+		return Math.sqrt((sum + c) / (numberOfTrials - 1.0));
+	}
+
+}
+
@@ -0,0 +1,265 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+/**
+ * ThroughputAccumulator -- incremental calculation of Fitts' throughput, one trial at a time.
+ *
+ * The Throughput class is given the data for a complete sequence and computes its statistics by scanning the
+ * per-trial arrays. This class computes the same statistics as trials are added. The mean and variance of deltaX are
+ * maintained with Welford's running update; running sums are maintained for ae and mt along with a count of misses.
+ * All statistics are therefore available in constant time, both at the end of a sequence and part way through it.
+ *
+ * The calculations of deltaX, ae, and misses follow the Throughput class exactly (see the comments there). If the grid
+ * layout of the targets is given (see setGridLayout), the amplitude of each trial is verified as it is added (see
+ * AmplitudeCheck).
+ */
+@SuppressWarnings("unused")
+public class ThroughputAccumulator
+{
+	float width;
+	int responseType;
+	boolean serialTask;
+
+	// running statistics
+	int numberOfTrials;
+	double deltaXMean, deltaXM2; // Welford's running mean and sum of squared deviations
+	double aeSum, mtSum;
+	int misses;
+
+	// the grid layout of the targets, its expected amplitudes (null if not known), and the result of the verification
+	int gridColumns, gridRows;
+	float cellWidth, cellHeight;
+	float[][] gridAmplitudes;
+	int[] targetOrder;
+	final AmplitudeCheck amplitudeCheck = new AmplitudeCheck();
+
+	// the contribution of the most recent trial (needed to remove it again; see removeLastTrial)
+	float lastDeltaX, lastAe, lastMt, previousDeltaX;
+	int lastMiss;
+
+	/**
+	 * Creates an accumulator for a sequence of trials. The width is the specified target width (used to determine
+	 * misses) and the response type is Throughput.SERIAL or Throughput.DISCRETE.
+	 */
+	public ThroughputAccumulator(float widthArg, int responseTypeArg)
+	{
+		width = widthArg;
+		responseType = responseTypeArg;
+		serialTask = responseType == Throughput.SERIAL;
+		reset();
+	}
+
+	/**
+	 * Sets the grid the targets are laid out on (the number of columns and rows, and the cell size; the targets are at
+	 * the centres of the cells) and the target order, so the amplitude of each trial is verified (see AmplitudeCheck).
+	 * The expected amplitudes are computed only when the layout changes. The target order is read as trials are added,
+	 * so it may be refilled for each sequence. Takes effect at the next reset.
+	 */
+	public void setGridLayout(int columns, int rows, float cellWidthArg, float cellHeightArg, int[] targetOrderArg)
+	{
+		if (gridAmplitudes == null || columns != gridColumns || rows != gridRows || cellWidthArg != cellWidth
+				|| cellHeightArg != cellHeight)
+		{
+			gridAmplitudes = AmplitudeCheck.gridAmplitudes(columns, rows, cellWidthArg, cellHeightArg);
+			gridColumns = columns;
+			gridRows = rows;
+			cellWidth = cellWidthArg;
+			cellHeight = cellHeightArg;
+		}
+		targetOrder = targetOrderArg;
+	}
+
+	/**
+	 * Clears all trials. Call at the beginning of each sequence.
+	 */
+	public void reset()
+	{
+		if (gridAmplitudes != null)
+			amplitudeCheck.beginGrid(gridAmplitudes, targetOrder);
+		else
+			amplitudeCheck.skip();
+		numberOfTrials = 0;
+		deltaXMean = 0.0;
+		deltaXM2 = 0.0;
+		aeSum = 0.0;
+		mtSum = 0.0;
+		misses = 0;
+		lastDeltaX = 0f;
+		lastAe = 0f;
+		lastMt = 0f;
+		previousDeltaX = 0f;
+		lastMiss = 0;
+	}
+
+	/**
+	 * Adds a trial. The arguments are the center of the "from" target, the center of the "to" target, the selection
+	 * coordinate, and the movement time (ms) for the trial.
+	 */
+	public void addTrial(float fromX, float fromY, float toX, float toY, float selectX, float selectY, float mt)
+	{
+		// compute length of the sides of the triangle formed by the three points (as in Throughput.setData)
+		float a = (float)Math.hypot(fromX - toX, fromY - toY);
+		float b = (float)Math.hypot(selectX - toX, selectY - toY);
+		float c = (float)Math.hypot(fromX - selectX, fromY - selectY);
+
+		if (amplitudeCheck.isChecked())
+			amplitudeCheck.check(numberOfTrials, a);
+
+		float deltaX = (c * c - b * b - a * a) / (2.0f * a);
+
+		// for serial tasks, the start position is adjusted by deltaX of the previous trial
+		float ae = a + deltaX;
+		if (serialTask && numberOfTrials > 0)
+			ae += lastDeltaX;
+
+		int miss = Math.abs(deltaX) > width / 2.0 ? 1 : 0;
+
+		// Welford's update for the running mean and variance of deltaX
+		++numberOfTrials;
+		double d = deltaX - deltaXMean;
+		deltaXMean += d / numberOfTrials;
+		deltaXM2 += d * (deltaX - deltaXMean);
+
+		aeSum += ae;
+		mtSum += mt;
+		misses += miss;
+
+		previousDeltaX = lastDeltaX;
+		lastDeltaX = deltaX;
+		lastAe = ae;
+		lastMt = mt;
+		lastMiss = miss;
+	}
+
+	/**
+	 * Adds the trials in a buffer, in order (e.g., to rebuild the statistics of a sequence that was resumed).
+	 */
+	public void addTrials(TrialBuffer b)
+	{
+		for (int i = 0; i < b.size; ++i)
+			addTrial(b.fromX[i], b.fromY[i], b.toX[i], b.toY[i], b.selectX[i], b.selectY[i], b.mt[i]);
+	}
+
+	/**
+	 * Removes the most recently added trial. This is needed when a trial is repeated (e.g., a double tap), in which
+	 * case the repeated trial replaces the last one. Only one trial can be removed between calls to addTrial.
+	 */
+	public void removeLastTrial()
+	{
+		if (numberOfTrials == 0)
+			return;
+
+		// reverse Welford's update
+		if (numberOfTrials == 1)
+		{
+			deltaXMean = 0.0;
+			deltaXM2 = 0.0;
+		} else
+		{
+			double oldMean = deltaXMean;
+			deltaXMean = (numberOfTrials * oldMean - lastDeltaX) / (numberOfTrials - 1);
+			deltaXM2 -= (lastDeltaX - deltaXMean) * (lastDeltaX - oldMean);
+			if (deltaXM2 < 0.0)
+				deltaXM2 = 0.0;
+		}
+		--numberOfTrials;
+		amplitudeCheck.removeTrial(numberOfTrials);
+
+		aeSum -= lastAe;
+		mtSum -= lastMt;
+		misses -= lastMiss;
+
+		lastDeltaX = previousDeltaX;
+		lastAe = 0f;
+		lastMt = 0f;
+		lastMiss = 0;
+	}
+
+	/**
+	 * Returns the result of verifying the amplitudes of the trials added so far (not checked unless the grid layout
+	 * was set; see setGridLayout).
+	 */
+	public AmplitudeCheck getAmplitudeCheck()
+	{
+		return amplitudeCheck;
+	}
+
+	/**
+	 * Returns the number of trials added so far.
+	 */
+	public int getNumberOfTrials()
+	{
+		return numberOfTrials;
+	}
+
+	/**
+	 * Returns the Throughput for the trials added so far.
+	 */
+	public float getThroughput()
+	{
+		return getIDe() / (getMT() / 1000.0f); // bits per second
+	}
+
+	/**
+	 * Returns the mean movement time (ms) for the trials added so far.
+	 */
+	public float getMT()
+	{
+		return (float)(mtSum / numberOfTrials);
+	}
+
+	/**
+	 * Returns the standard deviation in the selection coordinates, as projected onto the task axis.
+	 */
+	public float getSDx()
+	{
+		return (float)Math.sqrt(deltaXM2 / (numberOfTrials - 1.0));
+	}
+
+	/**
+	 * Returns the mean of the selection coordinates, as projected onto the task axis.
+	 */
+	public float getX()
+	{
+		return (float)deltaXMean;
+	}
+
+	/**
+	 * Returns the effective amplitude (the mean of the movement amplitudes, as projected on the task axis).
+	 */
+	public float getAe()
+	{
+		return (float)(aeSum / numberOfTrials);
+	}
+
+	/**
+	 * Returns the effective target width (4.133 x SDx).
+	 */
+	public float getWe()
+	{
+		return Throughput.SQRT_2_PI_E * getSDx();
+	}
+
+	/**
+	 * Returns the effective index of difficulty, IDe = log2(Ae/We + 1).
+	 */
+	public float getIDe()
+	{
+		return (float)Math.log(getAe() / getWe() + 1.0f) / Throughput.LOG_TWO;
+	}
+
+	/**
+	 * Returns the number of misses for the trials added so far.
+	 */
+	public int getMisses()
+	{
+		return misses;
+	}
+
+	/**
+	 * Returns the error rate as a percentage.
+	 */
+	public float getErrorRate()
+	{
+		return (float)misses / numberOfTrials * 100.0f;
+	}
+}
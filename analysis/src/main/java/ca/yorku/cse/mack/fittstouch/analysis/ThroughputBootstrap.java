@@ -0,0 +1,244 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ThroughputBootstrap -- bootstrap confidence intervals for the throughput, IDe, and We of a sequence.
+ *
+ * Each resample draws numberOfTrials trials, with replacement, from the deltaX, ae, and mt values already computed by a
+ * Throughput object. Trials are resampled as units, so a trial's deltaX, ae, and mt stay together. The statistics of a
+ * resample are computed exactly as in ThroughputSummary. The intervals are percentile intervals.
+ *
+ * The resamples are divided into fixed chunks of CHUNK resamples. Each chunk has its own random number stream, split
+ * from the seed before any work starts, and writes its results to its own slice of the result arrays. The chunks are
+ * run in parallel on a fork/join pool. So, for a given seed, the intervals are the same regardless of the number of
+ * threads. The inner loop works on primitive arrays and does not allocate.
+ *
+ * A ThroughputBootstrap object reuses its result arrays and is not thread-safe. Use one object per thread.
+ *
+ * NOTE: SplittableRandom requires Java 8 (Android API 24). This class is for offline analyses; the app does not use it.
+ */
+@SuppressWarnings("unused")
+public class ThroughputBootstrap
+{
+	public final static int DEFAULT_RESAMPLES = 10000;
+	public final static float DEFAULT_CONFIDENCE = 0.95f;
+
+	final static int CHUNK = 256; // resamples per random number stream (and per task)
+
+	/**
+	 * A bootstrap confidence interval, with the point estimate from the original sequence.
+	 */
+	public static class Interval
+	{
+		final float estimate, lower, upper;
+
+		Interval(float estimateArg, float lowerArg, float upperArg)
+		{
+			estimate = estimateArg;
+			lower = lowerArg;
+			upper = upperArg;
+		}
+
+		public float getEstimate()
+		{
+			return estimate;
+		}
+
+		public float getLower()
+		{
+			return lower;
+		}
+
+		public float getUpper()
+		{
+			return upper;
+		}
+
+		@Override
+		public String toString()
+		{
+			return estimate + " [" + lower + ", " + upper + "]";
+		}
+	}
+
+	/**
+	 * The intervals for one sequence.
+	 */
+	public static class Result
+	{
+		final Interval throughput, ide, we;
+		final int resamples;
+		final float confidence;
+
+		Result(Interval throughputArg, Interval ideArg, Interval weArg, int resamplesArg, float confidenceArg)
+		{
+			throughput = throughputArg;
+			ide = ideArg;
+			we = weArg;
+			resamples = resamplesArg;
+			confidence = confidenceArg;
+		}
+
+		public Interval getThroughput()
+		{
+			return throughput;
+		}
+
+		public Interval getIDe()
+		{
+			return ide;
+		}
+
+		public Interval getWe()
+		{
+			return we;
+		}
+
+		public int getResamples()
+		{
+			return resamples;
+		}
+
+		public float getConfidence()
+		{
+			return confidence;
+		}
+	}
+
+	final int resamples;
+	final long seed;
+	final ForkJoinPool pool;
+
+	// results of the resamples (reused)
+	final float[] tp, ide, we;
+
+	// the sequence being resampled
+	float[] deltaX, ae, mt;
+	int n;
+	SplittableRandom[] streams;
+
+	public ThroughputBootstrap(int resamplesArg, long seedArg)
+	{
+		this(resamplesArg, seedArg, ForkJoinPool.commonPool());
+	}
+
+	public ThroughputBootstrap(int resamplesArg, long seedArg, ForkJoinPool poolArg)
+	{
+		if (resamplesArg < 2)
+			throw new IllegalArgumentException("resamples must be at least 2: " + resamplesArg);
+		resamples = resamplesArg;
+		seed = seedArg;
+		pool = poolArg;
+		tp = new float[resamples];
+		ide = new float[resamples];
+		we = new float[resamples];
+	}
+
+	/**
+	 * Returns the bootstrap intervals for the sequence in t at the default confidence level (95%).
+	 */
+	public Result run(Throughput t)
+	{
+		return run(t, DEFAULT_CONFIDENCE);
+	}
+
+	/**
+	 * Returns the bootstrap intervals for the sequence in t at the given confidence level (e.g., 0.95).
+	 */
+	public Result run(Throughput t, float confidence)
+	{
+		if (confidence <= 0f || confidence >= 1f)
+			throw new IllegalArgumentException("confidence must be between 0 and 1: " + confidence);
+		if (t.getNumberOfTrials() < 2)
+			throw new IllegalArgumentException("at least 2 trials are needed: " + t.getNumberOfTrials());
+
+		ThroughputSummary s = t.getSummary(); // also ensures deltaX and ae are computed
+		deltaX = t.deltaX;
+		ae = t.ae;
+		mt = t.mt;
+		n = t.getNumberOfTrials();
+
+		// one stream per chunk, split in order from the seed (independent of the number of threads)
+		int chunks = (resamples + CHUNK - 1) / CHUNK;
+		streams = new SplittableRandom[chunks];
+		SplittableRandom root = new SplittableRandom(seed);
+		for (int c = 0; c < chunks; ++c)
+			streams[c] = root.split();
+
+		pool.invoke(new ChunkTask(0, chunks));
+
+		float alpha = 1f - confidence;
+		Result r = new Result(interval(s.getThroughput(), tp, alpha), interval(s.getIDe(), ide, alpha),
+				interval(s.getWe(), we, alpha), resamples, confidence);
+
+		deltaX = ae = mt = null;
+		streams = null;
+		return r;
+	}
+
+	// run the chunks in [lo, hi), splitting in half until one chunk is left
+	class ChunkTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		final int lo, hi;
+
+		ChunkTask(int loArg, int hiArg)
+		{
+			lo = loArg;
+			hi = hiArg;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (hi - lo == 1)
+				resampleChunk(lo);
+			else
+			{
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new ChunkTask(lo, mid), new ChunkTask(mid, hi));
+			}
+		}
+	}
+
+	// compute the resamples of one chunk (no allocation)
+	void resampleChunk(int chunk)
+	{
+		SplittableRandom random = streams[chunk];
+		int end = Math.min(resamples, (chunk + 1) * CHUNK);
+		for (int r = chunk * CHUNK; r < end; ++r)
+		{
+			double sumDx = 0.0, sumDx2 = 0.0, sumAe = 0.0, sumMt = 0.0;
+			for (int k = 0; k < n; ++k)
+			{
+				int i = random.nextInt(n);
+				double dx = deltaX[i];
+				sumDx += dx;
+				sumDx2 += dx * dx;
+				sumAe += ae[i];
+				sumMt += mt[i];
+			}
+			double meanDx = sumDx / n;
+			double variance = Math.max(0.0, (sumDx2 - sumDx * meanDx) / (n - 1));
+			float weR = Throughput.SQRT_2_PI_E * (float)Math.sqrt(variance);
+			float ideR = (float)Math.log((float)(sumAe / n) / weR + 1.0f) / Throughput.LOG_TWO;
+			we[r] = weR;
+			ide[r] = ideR;
+			tp[r] = ideR / ((float)(sumMt / n) / 1000.0f);
+		}
+	}
+
+	// percentile interval (sorts the values)
+	private Interval interval(float estimate, float[] values, float alpha)
+	{
+		Arrays.sort(values);
+		int lower = (int)Math.floor(alpha / 2.0 * (resamples - 1));
+		int upper = (int)Math.ceil((1.0 - alpha / 2.0) * (resamples - 1));
+		return new Interval(estimate, values[lower], values[upper]);
+	}
+}
@@ -0,0 +1,109 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+/**
+ * ThroughputSummary -- the statistics computed by a Throughput object for a sequence of trials.
+ *
+ * A summary is immutable. Throughput computes it once, when a statistic is first requested, and serves all its getters
+ * from it until new data are set.
+ */
+@SuppressWarnings("unused")
+public class ThroughputSummary
+{
+	final float ae, sdx, x, we, ide, mt, errorRate, throughput;
+	final int misses, numberOfTrials;
+
+	ThroughputSummary(int numberOfTrialsArg, float aeArg, float sdxArg, float xArg, float mtArg, int missesArg)
+	{
+		numberOfTrials = numberOfTrialsArg;
+		ae = aeArg;
+		sdx = sdxArg;
+		x = xArg;
+		mt = mtArg;
+		misses = missesArg;
+
+		we = Throughput.SQRT_2_PI_E * sdx;
+		ide = (float)Math.log(ae / we + 1.0f) / Throughput.LOG_TWO; // bits
+		errorRate = (float)misses / numberOfTrials * 100.0f;
+		throughput = ide / (mt / 1000.0f); // bits per second
+	}
+
+	/**
+	 * Returns the number of trials in the sequence.
+	 */
+	public int getNumberOfTrials()
+	{
+		return numberOfTrials;
+	}
+
+	/**
+	 * Returns the effective amplitude (mean movement amplitude, as projected on the task axis).
+	 */
+	public float getAe()
+	{
+		return ae;
+	}
+
+	/**
+	 * Returns the standard deviation in the selection coordinates, as projected onto the task axis.
+	 */
+	public float getSDx()
+	{
+		return sdx;
+	}
+
+	/**
+	 * Returns the mean of the selection coordinates, as projected onto the task axis.
+	 */
+	public float getX()
+	{
+		return x;
+	}
+
+	/**
+	 * Returns the effective target width (4.133 x SDx).
+	 */
+	public float getWe()
+	{
+		return we;
+	}
+
+	/**
+	 * Returns the effective index of difficulty, IDe = log2(Ae/We + 1).
+	 */
+	public float getIDe()
+	{
+		return ide;
+	}
+
+	/**
+	 * Returns the mean movement time (ms).
+	 */
+	public float getMT()
+	{
+		return mt;
+	}
+
+	/**
+	 * Returns the number of misses.
+	 */
+	public int getMisses()
+	{
+		return misses;
+	}
+
+	/**
+	 * Returns the error rate as a percentage.
+	 */
+	public float getErrorRate()
+	{
+		return errorRate;
+	}
+
+	/**
+	 * Returns the throughput (bits per second).
+	 */
+	public float getThroughput()
+	{
+		return throughput;
+	}
+}
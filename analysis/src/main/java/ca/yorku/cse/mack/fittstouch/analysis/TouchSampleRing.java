@@ -0,0 +1,229 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TouchSampleRing -- a bounded single-producer, single-consumer queue of touch samples, so the input thread can hand
+ * the samples to a thread that encodes and writes them.
+ *
+ * The slots are preallocated, one primitive array per field (the pointer id, its position, the time stamp and dispatch
+ * delay, and where the sample belongs: trial, block, gesture, combination, and a marker), so passing a sample
+ * allocates nothing and there are no objects to collect. The producer (the UI thread) claims room for the samples of
+ * an event, puts them, and publishes them with one ordered store of the tail; the consumer reads the slots up to the
+ * tail and releases them with one ordered store of the head. Neither takes a lock or waits for the other.
+ *
+ * If there is no room for the samples of an event (the consumer has fallen a full ring behind), they are dropped,
+ * not waited for: claim returns false and the samples are added to getDropped, which the activity reports. An event's
+ * samples are claimed together, so they are either all queued or all dropped (e.g., a row of the Zoom sd4 file is
+ * two slots, pointer A and pointer B, which stay together).
+ *
+ * claim, put, setContext, and publish are called only by the producer thread; available, the getters, and release
+ * only by the consumer thread. getDropped may be called from either.
+ */
+@SuppressWarnings("unused")
+public class TouchSampleRing
+{
+	public final static int DEFAULT_CAPACITY = 1 << 13; // samples (over 10 s of two pointers at 240 Hz)
+
+	final int capacity, mask;
+	final int[] pointers, markers, trials, blocks, gestures, combinations;
+	final float[] xs, ys, delays;
+	final long[] times;
+
+	final AtomicLong head = new AtomicLong(); // the next slot to consume (written by the consumer)
+	final AtomicLong tail = new AtomicLong(); // the next slot to publish (written by the producer)
+	volatile long dropped; // samples dropped (written by the producer)
+
+	// producer only
+	long next; // the next slot to put (tail + the slots put but not yet published)
+	long claimed; // the end of the slots claimed
+	long headCache; // the head, as last read (it only moves forward, so room seen is there)
+	int trial, block, gesture, combination;
+
+	// consumer only
+	long first; // the first slot not released (the head, as written)
+	long tailCache; // the tail, as last read
+
+	/**
+	 * Creates the ring, with room for capacity samples (rounded up to a power of two).
+	 */
+	public TouchSampleRing(int capacityArg)
+	{
+		capacity = Integer.highestOneBit(Math.max(2, capacityArg - 1)) << 1;
+		mask = capacity - 1;
+		pointers = new int[capacity];
+		markers = new int[capacity];
+		trials = new int[capacity];
+		blocks = new int[capacity];
+		gestures = new int[capacity];
+		combinations = new int[capacity];
+		xs = new float[capacity];
+		ys = new float[capacity];
+		delays = new float[capacity];
+		times = new long[capacity];
+	}
+
+	public int getCapacity()
+	{
+		return capacity;
+	}
+
+	/**
+	 * Sets where the samples put from now on belong (producer).
+	 */
+	public void setContext(int trialArg, int blockArg, int gestureArg, int combinationArg)
+	{
+		trial = trialArg;
+		block = blockArg;
+		gesture = gestureArg;
+		combination = combinationArg;
+	}
+
+	/**
+	 * Claims room for n more samples (producer). Returns false, and counts the samples as dropped, if there is no
+	 * room; the samples must then not be put.
+	 */
+	public boolean claim(int n)
+	{
+		long end = next + n;
+		if (end - headCache > capacity)
+		{
+			headCache = head.get();
+			if (end - headCache > capacity)
+			{
+				dropped = dropped + n; // one writer
+				return false;
+			}
+		}
+		claimed = end;
+		return true;
+	}
+
+	/**
+	 * Puts a sample in the next claimed slot (producer). It is not seen by the consumer until publish.
+	 */
+	public void put(int pointer, float x, float y, long time, float delay, int marker)
+	{
+		if (next == claimed)
+			throw new IllegalStateException("no slot claimed");
+		int i = (int)next & mask;
+		pointers[i] = pointer;
+		xs[i] = x;
+		ys[i] = y;
+		times[i] = time;
+		delays[i] = delay;
+		markers[i] = marker;
+		trials[i] = trial;
+		blocks[i] = block;
+		gestures[i] = gesture;
+		combinations[i] = combination;
+		++next;
+	}
+
+	/**
+	 * Makes the samples put so far visible to the consumer (producer).
+	 */
+	public void publish()
+	{
+		tail.lazySet(next); // the slots are written before the tail is seen to move
+	}
+
+	/**
+	 * Returns the number of samples published and not yet released (consumer). Sample i (0 ... available - 1) is read
+	 * with the getters.
+	 */
+	public int available()
+	{
+		if (tailCache == first)
+			tailCache = tail.get();
+		return (int)(tailCache - first);
+	}
+
+	/**
+	 * Frees the first n available samples (consumer).
+	 */
+	public void release(int n)
+	{
+		first += n;
+		head.lazySet(first); // the slots are read before the producer sees them free
+	}
+
+	/**
+	 * Returns the number of samples published so far (since the ring was created).
+	 */
+	public long getPublished()
+	{
+		return tail.get();
+	}
+
+	/**
+	 * Returns the number of samples released so far (since the ring was created).
+	 */
+	public long getReleased()
+	{
+		return head.get();
+	}
+
+	/**
+	 * Returns the number of samples dropped because the ring was full.
+	 */
+	public long getDropped()
+	{
+		return dropped;
+	}
+
+	private int slot(int i)
+	{
+		return (int)(first + i) & mask;
+	}
+
+	public int getPointer(int i)
+	{
+		return pointers[slot(i)];
+	}
+
+	public float getX(int i)
+	{
+		return xs[slot(i)];
+	}
+
+	public float getY(int i)
+	{
+		return ys[slot(i)];
+	}
+
+	public long getTime(int i)
+	{
+		return times[slot(i)];
+	}
+
+	public float getDelay(int i)
+	{
+		return delays[slot(i)];
+	}
+
+	public int getMarker(int i)
+	{
+		return markers[slot(i)];
+	}
+
+	public int getTrial(int i)
+	{
+		return trials[slot(i)];
+	}
+
+	public int getBlock(int i)
+	{
+		return blocks[slot(i)];
+	}
+
+	public int getGesture(int i)
+	{
+		return gestures[slot(i)];
+	}
+
+	public int getCombination(int i)
+	{
+		return combinations[slot(i)];
+	}
+}
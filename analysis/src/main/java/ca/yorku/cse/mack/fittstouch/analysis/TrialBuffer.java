@@ -0,0 +1,156 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import java.nio.ByteBuffer;
+
+/**
+ * TrialBuffer -- reusable storage for the per-trial data of a sequence.
+ *
+ * The data are held in parallel float arrays (one per column) rather than as point objects. The buffer is created
+ * once, cleared at the start of each sequence, and grows only if a sequence has more trials than its capacity. No
+ * objects are allocated while trials are recorded. A Throughput object can be built directly from the buffer.
+ */
+@SuppressWarnings("unused")
+public class TrialBuffer
+{
+	final static int DEFAULT_CAPACITY = 16;
+
+	float[] fromX, fromY; // center of the "from" target
+	float[] toX, toY; // center of the "to" target
+	float[] selectX, selectY; // selection coordinate (finger up)
+	float[] mt; // movement time (ms)
+	float[] downX, downY; // finger-down coordinate
+	int size;
+
+	public TrialBuffer()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	public TrialBuffer(int initialCapacity)
+	{
+		allocate(Math.max(1, initialCapacity));
+	}
+
+	private void allocate(int capacity)
+	{
+		fromX = new float[capacity];
+		fromY = new float[capacity];
+		toX = new float[capacity];
+		toY = new float[capacity];
+		selectX = new float[capacity];
+		selectY = new float[capacity];
+		mt = new float[capacity];
+		downX = new float[capacity];
+		downY = new float[capacity];
+	}
+
+	/**
+	 * Removes all trials (but keeps the storage). Call at the beginning of each sequence.
+	 */
+	public void reset()
+	{
+		size = 0;
+	}
+
+	/**
+	 * Sets the data for the trial at the specified index. If index equals the number of trials, the trial is
+	 * appended. If index is less, the trial at that index is replaced (e.g., a repeated trial).
+	 */
+	public void set(int index, float fromXArg, float fromYArg, float toXArg, float toYArg, float selectXArg,
+					float selectYArg, float mtArg, float downXArg, float downYArg)
+	{
+		if (index < 0 || index > size)
+			throw new IndexOutOfBoundsException("index=" + index + ", size=" + size);
+		if (index == capacity())
+			ensureCapacity(2 * capacity());
+
+		fromX[index] = fromXArg;
+		fromY[index] = fromYArg;
+		toX[index] = toXArg;
+		toY[index] = toYArg;
+		selectX[index] = selectXArg;
+		selectY[index] = selectYArg;
+		mt[index] = mtArg;
+		downX[index] = downXArg;
+		downY[index] = downYArg;
+
+		if (index == size)
+			++size;
+	}
+
+	/**
+	 * Grows the columns (keeping their contents) so at least the specified number of trials can be held.
+	 */
+	public void ensureCapacity(int capacity)
+	{
+		if (capacity <= capacity())
+			return;
+		fromX = grow(fromX, capacity);
+		fromY = grow(fromY, capacity);
+		toX = grow(toX, capacity);
+		toY = grow(toY, capacity);
+		selectX = grow(selectX, capacity);
+		selectY = grow(selectY, capacity);
+		mt = grow(mt, capacity);
+		downX = grow(downX, capacity);
+		downY = grow(downY, capacity);
+	}
+
+	private static float[] grow(float[] column, int capacity)
+	{
+		float[] newColumn = new float[capacity];
+		System.arraycopy(column, 0, newColumn, 0, column.length);
+		return newColumn;
+	}
+
+	/**
+	 * Returns the movement time (ms) of the trial at the specified index.
+	 */
+	public float getMT(int index)
+	{
+		return mt[index];
+	}
+
+	/**
+	 * Writes the trials to b (e.g., for a checkpoint; see SessionJournal). 4 + 36 * size() bytes are written.
+	 */
+	public void writeTo(ByteBuffer b)
+	{
+		b.putInt(size);
+		for (int i = 0; i < size; ++i)
+		{
+			b.putFloat(fromX[i]).putFloat(fromY[i]).putFloat(toX[i]).putFloat(toY[i]);
+			b.putFloat(selectX[i]).putFloat(selectY[i]).putFloat(mt[i]).putFloat(downX[i]).putFloat(downY[i]);
+		}
+	}
+
+	/**
+	 * Replaces the trials with those read from b (as written by writeTo).
+	 */
+	public void readFrom(ByteBuffer b)
+	{
+		int n = b.getInt();
+		reset();
+		ensureCapacity(n);
+		for (int i = 0; i < n; ++i)
+			set(i, b.getFloat(), b.getFloat(), b.getFloat(), b.getFloat(), b.getFloat(), b.getFloat(), b.getFloat(),
+					b.getFloat(), b.getFloat());
+	}
+
+	/**
+	 * Returns the number of trials in the buffer.
+	 */
+
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns the number of trials the buffer can hold without growing.
+	 */
+	public int capacity()
+	{
+		return mt.length;
+	}
+}
@@ -0,0 +1,78 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+/**
+ * TrialOrder -- the random order of the trials in a block, generated from a seed.
+ *
+ * The order of a block depends only on the study seed, the session code, and the block index (see key), so it is the
+ * same on every device and every run, and can be regenerated for analysis. An order is a Fisher-Yates shuffle of the
+ * array, with numbers from a splitmix64 generator started at the key. Everything is done with long arithmetic (no
+ * java.util.Random, whose algorithm is not the same on all platforms), in place, with no allocation.
+ *
+ * (Previously, the orders were generated once with java.util.Random, written to a file in the data directory
+ * (Tap-randomTargetOrders.sd2, Zoom-randomTargetOrders-*.sd3), and read back on later runs.)
+ */
+@SuppressWarnings("unused")
+public class TrialOrder
+{
+	/**
+	 * The study seed if none is given. Change it (or give another) for a new study.
+	 */
+	public final static long DEFAULT_STUDY_SEED = 0x46697474735A6F6FL;
+
+	private final static long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	private TrialOrder()
+	{
+	}
+
+	/**
+	 * Returns the key (the generator's seed) for a block. The session code is hashed with String.hashCode, which is
+	 * specified, so is the same everywhere.
+	 */
+	public static long key(long studySeed, String session, int block)
+	{
+		return mix(mix(studySeed + GOLDEN_GAMMA * session.hashCode()) + GOLDEN_GAMMA * block);
+	}
+
+	/**
+	 * Sets order to a random permutation of 0 ... order.length - 1, for the key.
+	 */
+	public static void permutation(int[] order, long key)
+	{
+		for (int i = 0; i < order.length; ++i)
+			order[i] = i;
+		shuffle(order, key);
+	}
+
+	/**
+	 * Shuffles the values (in place) into a random order, for the key.
+	 */
+	public static void shuffle(int[] values, long key)
+	{
+		long state = key;
+		for (int i = values.length - 1; i > 0; --i)
+		{
+			// j uniform in 0 ... i, from the high 32 bits of the next number (multiply and shift, with rejection)
+			long bound = i + 1;
+			long threshold = (1L << 32) % bound;
+			long m;
+			do
+			{
+				state += GOLDEN_GAMMA;
+				m = (mix(state) >>> 32) * bound;
+			} while ((m & 0xFFFFFFFFL) < threshold);
+			int j = (int)(m >>> 32);
+			int temp = values[i];
+			values[i] = values[j];
+			values[j] = temp;
+		}
+	}
+
+	// the splitmix64 output function
+	private static long mix(long z)
+	{
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,84 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * AmplitudeCheckTest -- the trials of a grid layout sequence pass when the targets are where the layout puts them, and
+ * the trials to and from a target that is drawn out of place are reported.
+ */
+public class AmplitudeCheckTest
+{
+	final static int COLUMNS = 4, ROWS = 3;
+	final static float CELL_WIDTH = 270f, CELL_HEIGHT = 533.3f;
+	final static int[] ORDER = {5, 0, 11, 2, 7, 9, 1, 4, 10, 3, 6, 8}; // every target once, as in the app
+
+	// the target centres, as in FittsActivity.configureTargets
+	static float[][] centres()
+	{
+		float[][] c = new float[COLUMNS * ROWS][2];
+		for (int i = 0; i < COLUMNS; ++i)
+			for (int j = 0; j < ROWS; ++j)
+			{
+				c[i + j * COLUMNS][0] = (2 * i + 1) * CELL_WIDTH / 2.0f;
+				c[i + j * COLUMNS][1] = (2 * j + 1) * CELL_HEIGHT / 2.0f;
+			}
+		return c;
+	}
+
+	// a sequence of trials between the centres (the first from target 0), each selected 3 px right of the target
+	static void addSequence(ThroughputAccumulator t, TrialBuffer b, float[][] c)
+	{
+		int from = 0;
+		for (int i = 0; i < ORDER.length; ++i)
+		{
+			int to = ORDER[i];
+			t.addTrial(c[from][0], c[from][1], c[to][0], c[to][1], c[to][0] + 3f, c[to][1], 500f);
+			b.set(i, c[from][0], c[from][1], c[to][0], c[to][1], c[to][0] + 3f, c[to][1], 500f, c[to][0], c[to][1]);
+			from = to;
+		}
+	}
+
+	@Test
+	public void targetsInPlacePass()
+	{
+		ThroughputAccumulator t = new ThroughputAccumulator(40f, Throughput.SERIAL);
+		t.setGridLayout(COLUMNS, ROWS, CELL_WIDTH, CELL_HEIGHT, ORDER);
+		t.reset();
+		TrialBuffer b = new TrialBuffer(ORDER.length);
+		addSequence(t, b, centres());
+		assertTrue(t.getAmplitudeCheck().isValid());
+
+		Throughput tp = new Throughput("test", 0f, 0f, Throughput.ONE_DIMENSIONAL, Throughput.SERIAL, b);
+		assertTrue(tp.checkGridLayout(AmplitudeCheck.gridAmplitudes(COLUMNS, ROWS, CELL_WIDTH, CELL_HEIGHT), ORDER)
+				.isValid());
+	}
+
+	@Test
+	public void displacedTargetIsReported()
+	{
+		float[][] c = centres();
+		c[7][0] += 0.4f * CELL_WIDTH; // target 7 is drawn out of place (still inside its cell)
+
+		ThroughputAccumulator t = new ThroughputAccumulator(40f, Throughput.SERIAL);
+		t.setGridLayout(COLUMNS, ROWS, CELL_WIDTH, CELL_HEIGHT, ORDER);
+		t.reset();
+		TrialBuffer b = new TrialBuffer(ORDER.length);
+		addSequence(t, b, c);
+
+		// trial 4 is to target 7 and trial 5 is from it
+		AmplitudeCheck check = t.getAmplitudeCheck();
+		assertFalse(check.isValid());
+		assertEquals(2, check.getViolationCount());
+		assertEquals(4, check.getTrialIndex(0));
+		assertEquals(5, check.getTrialIndex(1));
+		assertEquals(Math.hypot(CELL_WIDTH, CELL_HEIGHT), check.getExpectedAmplitude(0), 0.01); // from target 2
+
+		Throughput tp = new Throughput("test", 0f, 0f, Throughput.ONE_DIMENSIONAL, Throughput.SERIAL, b);
+		check = tp.checkGridLayout(AmplitudeCheck.gridAmplitudes(COLUMNS, ROWS, CELL_WIDTH, CELL_HEIGHT), ORDER);
+		assertEquals(2, check.getViolationCount());
+	}
+}
@@ -0,0 +1,195 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * DataCursorTest -- the rows read by DataCursor, with windows of a few bytes, so the lines of a small file cross the
+ * window boundaries at every offset (the boundaries of the 8-byte scan, too).
+ */
+public class DataCursorTest
+{
+	// A, B, and an optional Marker (as the sd4 files)
+	final static BinaryLogSchema SCHEMA = new BinaryLogSchema(new String[] {"A", "B", "Marker"},
+			new int[] {BinaryLogSchema.INT, BinaryLogSchema.FLOAT, BinaryLogSchema.STRING}, new int[] {0, 0, 0},
+			new int[] {0, 0, BinaryLogSchema.FLAG_OPTIONAL});
+	final static int ROWS = 200;
+	final static int MIN_MAP_SIZE = 16, MAX_MAP_SIZE = 48; // the longest line (with its newline) is 14 bytes
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	// the rows: "i,i.5" and, for every third row, a marker
+	static String rows(String newline, boolean lastNewline)
+	{
+		StringBuilder sb = new StringBuilder(SCHEMA.getCsvHeader().trim()).append(newline);
+		for (int i = 0; i < ROWS; ++i)
+		{
+			sb.append(i).append(',').append(i).append(".5");
+			if (i % 3 == 0)
+				sb.append(',').append(i % 2 == 0 ? "Down" : "Up");
+			if (i < ROWS - 1 || lastNewline)
+				sb.append(newline);
+		}
+		return sb.toString();
+	}
+
+	Path write(String s) throws IOException
+	{
+		Path p = folder.newFile().toPath();
+		Files.write(p, s.getBytes(StandardCharsets.UTF_8));
+		return p;
+	}
+
+	// read every row with windows of mapSize bytes, checking each against rows()
+	static void checkRows(Path p, int mapSize) throws IOException
+	{
+		try (DataCursor c = DataCursor.open(p, SCHEMA, mapSize))
+		{
+			for (int i = 0; i < ROWS; ++i)
+			{
+				String at = "map size " + mapSize + ", row " + i;
+				assertTrue(at, c.next());
+				assertEquals(at, i + 2, c.getLine());
+				assertEquals(at, i, c.getInt(0));
+				assertEquals(at, i + 0.5f, c.getFloat(1), 0f);
+				if (i % 3 == 0)
+				{
+					assertTrue(at, c.isPresent(2));
+					assertEquals(at, i % 2 == 0 ? "Down" : "Up", c.getString(2));
+				} else
+				{
+					assertFalse(at, c.isPresent(2));
+					assertNull(at, c.getString(2));
+				}
+			}
+			assertFalse(c.next());
+			assertFalse(c.next());
+		}
+	}
+
+	@Test
+	public void linesCrossWindowBoundaries() throws IOException
+	{
+		Path p = write(rows("\n", true));
+		for (int m = MIN_MAP_SIZE; m <= MAX_MAP_SIZE; ++m)
+			checkRows(p, m);
+		checkRows(p, DataCursor.MAP_SIZE); // the whole file in one window
+	}
+
+	@Test
+	public void lastLineWithoutNewline() throws IOException
+	{
+		Path p = write(rows("\n", false));
+		for (int m = MIN_MAP_SIZE; m <= MAX_MAP_SIZE; ++m)
+			checkRows(p, m);
+	}
+
+	@Test
+	public void crlfLineEnds() throws IOException
+	{
+		for (boolean lastNewline : new boolean[] {true, false})
+		{
+			Path p = write(rows("\r\n", lastNewline));
+			for (int m = MIN_MAP_SIZE; m <= MAX_MAP_SIZE; ++m)
+				checkRows(p, m);
+		}
+	}
+
+	@Test
+	public void emptyLinesAreSkipped() throws IOException
+	{
+		Path p = write("A,B\n\n1,1.5\n\r\n2,2.5,Up\n\n");
+		try (DataCursor c = DataCursor.open(p, SCHEMA, MIN_MAP_SIZE))
+		{
+			assertTrue(c.next());
+			assertEquals(1, c.getInt(0));
+			assertTrue(c.next());
+			assertEquals(2, c.getInt(0));
+			assertEquals("Up", c.getString(2));
+			assertFalse(c.next());
+		}
+	}
+
+	@Test
+	public void headerOnly() throws IOException
+	{
+		for (String s : new String[] {"A,B", "A,B\n", "A,B\r\n"})
+			try (DataCursor c = DataCursor.open(write(s), SCHEMA, MIN_MAP_SIZE))
+			{
+				assertFalse(c.next());
+			}
+	}
+
+	@Test
+	public void wrongHeader() throws IOException
+	{
+		for (String s : new String[] {"", "A\n1\n", "A,B,Marker\n1,1.5\n", "A,C\n1,1.5\n"})
+			try
+			{
+				DataCursor.open(write(s), SCHEMA, MIN_MAP_SIZE).close();
+				fail("header accepted: " + s);
+			} catch (IOException e)
+			{
+				// expected
+			}
+	}
+
+	@Test
+	public void tooFewFields() throws IOException
+	{
+		expectError("A,B\n1,1.5\n2\n", 1, "line 3: too few fields");
+	}
+
+	@Test
+	public void tooManyFields() throws IOException
+	{
+		expectError("A,B\n1,1.5,Up,4\n", 0, "line 2: too many fields");
+	}
+
+	@Test
+	public void lineLongerThanWindow() throws IOException
+	{
+		expectError("A,B\n1,1.5\n123456789,1.5,Down\n", 1, "line 3: longer than " + MIN_MAP_SIZE + " bytes");
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void badNumber() throws IOException
+	{
+		try (DataCursor c = DataCursor.open(write("A,B\n1,x\n"), SCHEMA, MIN_MAP_SIZE))
+		{
+			assertTrue(c.next());
+			c.getFloat(1);
+		}
+	}
+
+	// read the rows of the file, expecting an error after the first rows
+	void expectError(String s, int rows, String message) throws IOException
+	{
+		List<Integer> read = new ArrayList<Integer>();
+		try (DataCursor c = DataCursor.open(write(s), SCHEMA, MIN_MAP_SIZE))
+		{
+			while (c.next())
+				read.add(c.getInt(0));
+			fail("no error: " + s);
+		} catch (IOException e)
+		{
+			assertEquals(message, e.getMessage());
+		}
+		assertEquals(rows, read.size());
+	}
+}
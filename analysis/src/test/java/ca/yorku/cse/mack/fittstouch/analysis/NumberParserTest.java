@@ -0,0 +1,144 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * NumberParserTest -- NumberParser gives the results of Integer.parseInt, Long.parseLong, and Float.parseFloat, from
+ * both a byte array and a ByteBuffer, for the numbers the app writes and for the other forms.
+ */
+public class NumberParserTest
+{
+	final static String PAD = "x,"; // the field is parsed in place, after other bytes
+
+	static byte[] bytes(String s)
+	{
+		return (PAD + s + PAD).getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	static int start()
+	{
+		return PAD.length();
+	}
+
+	static int end(String s)
+	{
+		return PAD.length() + s.length();
+	}
+
+	static void checkFloat(String s)
+	{
+		byte[] b = bytes(s);
+		int expected = Float.floatToIntBits(Float.parseFloat(s));
+		assertEquals(s, expected, Float.floatToIntBits(NumberParser.parseFloat(b, start(), end(s))));
+		assertEquals(s, expected, Float.floatToIntBits(NumberParser.parseFloat(ByteBuffer.wrap(b), start(), end(s))));
+	}
+
+	static void checkLong(String s)
+	{
+		byte[] b = bytes(s);
+		assertEquals(s, Long.parseLong(s), NumberParser.parseLong(b, start(), end(s)));
+		assertEquals(s, Long.parseLong(s), NumberParser.parseLong(ByteBuffer.wrap(b), start(), end(s)));
+	}
+
+	static void checkInt(String s)
+	{
+		byte[] b = bytes(s);
+		assertEquals(s, Integer.parseInt(s), NumberParser.parseInt(b, start(), end(s)));
+		assertEquals(s, Integer.parseInt(s), NumberParser.parseInt(ByteBuffer.wrap(b), start(), end(s)));
+	}
+
+	@Test
+	public void integers()
+	{
+		for (String s : new String[] {"0", "-0", "+7", "42", "-42", "2147483647", "-2147483648", "007"})
+		{
+			checkInt(s);
+			checkLong(s);
+		}
+		for (String s : new String[] {"2147483648", "-2147483649", "9223372036854775807", "-9223372036854775808",
+				"1776185447123"})
+			checkLong(s);
+		Random r = new Random(1);
+		for (int i = 0; i < 10000; ++i)
+		{
+			checkInt(Integer.toString(r.nextInt()));
+			checkLong(Long.toString(r.nextLong()));
+		}
+	}
+
+	@Test
+	public void badIntegers()
+	{
+		for (String s : new String[] {"", "-", "+", "1a", "1.0", " 1", "--1", "2147483648", "-2147483649"})
+			try
+			{
+				NumberParser.parseInt(bytes(s), start(), end(s));
+				fail("parsed: " + s);
+			} catch (NumberFormatException e)
+			{
+				// expected
+			}
+		for (String s : new String[] {"", "9223372036854775808", "-9223372036854775809", "99999999999999999999"})
+			try
+			{
+				NumberParser.parseLong(ByteBuffer.wrap(bytes(s)), start(), end(s));
+				fail("parsed: " + s);
+			} catch (NumberFormatException e)
+			{
+				// expected
+			}
+	}
+
+	@Test
+	public void floatsAsWritten()
+	{
+		// the forms the app writes: Float.toString (%s) and %.Nf
+		Random r = new Random(2);
+		for (int i = 0; i < 20000; ++i)
+		{
+			float f = (r.nextFloat() - 0.5f) * (float)Math.pow(10, r.nextInt(8));
+			checkFloat(Float.toString(f));
+			for (int decimals = 0; decimals <= 7; ++decimals)
+				checkFloat(String.format(Locale.US, "%." + decimals + "f", f));
+		}
+	}
+
+	@Test
+	public void floatsOfAnyBits()
+	{
+		Random r = new Random(3);
+		for (int i = 0; i < 20000; ++i)
+			checkFloat(Float.toString(Float.intBitsToFloat(r.nextInt())));
+	}
+
+	@Test
+	public void otherFloatForms()
+	{
+		for (String s : new String[] {"0", "-0", "-0.0", "+1.5", "1.", ".5", "-.5", "1e3", "1.5E-7", "NaN",
+				"Infinity", "-Infinity", "0.00000001", "12345678901234567", "3.4028235E38", "1.4E-45",
+				"0.1234567", "16777217", "16777217.0", "9007199254740993"})
+			checkFloat(s);
+	}
+
+	@Test
+	public void badFloats()
+	{
+		for (String s : new String[] {"", "-", ".", "1..2", "1,5", "abc", "1.5x"})
+			try
+			{
+				NumberParser.parseFloat(bytes(s), start(), end(s));
+				fail("parsed: " + s);
+			} catch (NumberFormatException e)
+			{
+				// expected
+			}
+	}
+}
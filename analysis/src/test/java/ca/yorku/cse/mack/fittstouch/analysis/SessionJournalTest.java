@@ -0,0 +1,167 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * SessionJournalTest -- a journal reopened after a kill gives the state and records up to its last checkpoint, and
+ * once the entries before a checkpoint are discarded, restore rebuilds the data files from their lengths and the
+ * records since (a compressed file, too).
+ */
+public class SessionJournalTest
+{
+	final static int SD1 = 1, SD4 = 4;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	static ByteBuffer state(int trial)
+	{
+		ByteBuffer b = ByteBuffer.allocate(16);
+		b.putInt(trial);
+		return b;
+	}
+
+	static void append(SessionJournal journal, int stream, String s)
+	{
+		journal.append(stream, s, 0, s.length());
+	}
+
+	static String read(File f) throws IOException
+	{
+		InputStream in = CompressedDataFiles.open(f.toPath());
+		try
+		{
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] b = new byte[4096];
+			for (int n; (n = in.read(b)) > 0; )
+				out.write(b, 0, n);
+			return new String(out.toByteArray(), StandardCharsets.UTF_8);
+		} finally
+		{
+			in.close();
+		}
+	}
+
+	@Test
+	public void recordsUpToLastCheckpoint() throws IOException
+	{
+		File f = folder.newFile("s.journal");
+		SessionJournal journal = new SessionJournal(f);
+		assertNull(journal.getCheckpoint());
+		journal.setName(SD1, "s.sd1");
+		append(journal, SD1, "header\n");
+		append(journal, SD1, "row 1\n");
+		journal.checkpoint(state(1));
+		append(journal, SD1, "row 2\n"); // the trial did not finish
+		journal.close();
+
+		journal = new SessionJournal(f);
+		assertEquals(1, journal.getCheckpoint().getInt(0));
+		assertEquals("s.sd1", journal.getName(SD1));
+		assertEquals("header\nrow 1\n", new String(journal.getRecords(SD1), StandardCharsets.UTF_8));
+		assertEquals(0, journal.getLength(SD1));
+		journal.close();
+	}
+
+	@Test
+	public void discardKeepsFileLengths() throws IOException
+	{
+		File sd1 = folder.newFile("s.sd1");
+		File sd4 = folder.newFile("s.sd4");
+		File f = folder.newFile("s.journal");
+		SessionJournal journal = new SessionJournal(f);
+		journal.setName(SD1, sd1.getPath());
+		journal.setName(SD4, sd4.getPath());
+
+		// two sequences of two trials, each written when it ends (the second sequence partly: killed while writing)
+		Files.write(sd1.toPath(), "h1\n".getBytes(StandardCharsets.UTF_8));
+		Files.write(sd4.toPath(), "h4\n".getBytes(StandardCharsets.UTF_8));
+		append(journal, SD1, "h1\n");
+		append(journal, SD4, "h4\n");
+		long sequence1 = 0;
+		for (int trial = 1; trial <= 4; ++trial)
+		{
+			append(journal, SD1, "t" + trial + "\n");
+			append(journal, SD4, "s" + trial + "a\ns" + trial + "b\n");
+			journal.checkpoint(state(trial));
+			if (trial == 2)
+			{
+				Files.write(sd1.toPath(), "h1\nt1\nt2\n".getBytes(StandardCharsets.UTF_8));
+				Files.write(sd4.toPath(), "h4\ns1a\ns1b\ns2a\ns2b\n".getBytes(StandardCharsets.UTF_8));
+				sequence1 = journal.getCheckpointPosition();
+			}
+		}
+		long sequence2 = journal.getCheckpointPosition();
+
+		// the data writer catches up with the first sequence after the second has ended
+		journal.discard(sequence1, new long[] {0, sd1.length(), 0, 0, sd4.length()}, null);
+		assertEquals(sequence2, journal.getCheckpointPosition());
+		Files.write(sd1.toPath(), "h1\nt1\nt2\nt3\nt".getBytes(StandardCharsets.UTF_8));
+		append(journal, SD1, "t5\n"); // not committed
+		journal.close();
+
+		journal = new SessionJournal(f);
+		assertEquals(4, journal.getCheckpoint().getInt(0));
+		assertEquals(sd1.getPath(), journal.getName(SD1));
+		assertEquals("t3\nt4\n", new String(journal.getRecords(SD1), StandardCharsets.UTF_8));
+		journal.restore(SD1);
+		journal.restore(SD4);
+		assertEquals("h1\nt1\nt2\nt3\nt4\n", read(sd1));
+		assertEquals("h4\ns1a\ns1b\ns2a\ns2b\ns3a\ns3b\ns4a\ns4b\n", read(sd4));
+
+		// the position of a checkpoint stays valid after the journal is compacted
+		journal.discard(journal.getCheckpointPosition(), new long[] {0, sd1.length(), 0, 0, sd4.length()}, null);
+		journal.close();
+		journal = new SessionJournal(f);
+		assertEquals(4, journal.getCheckpoint().getInt(0));
+		assertEquals(0, journal.getRecords(SD1).length);
+		assertEquals(sd1.length(), journal.getLength(SD1));
+		journal.restore(SD1);
+		assertEquals("h1\nt1\nt2\nt3\nt4\n", read(sd1));
+		journal.delete();
+	}
+
+	@Test
+	public void restoreCompressedFile() throws IOException
+	{
+		File sd4 = new File(folder.getRoot(), "s.sd4" + CompressedDataFiles.SUFFIX);
+		File f = folder.newFile("s.journal");
+		SessionJournal journal = new SessionJournal(f);
+		journal.setName(SD4, sd4.getPath());
+		OutputStream out = CompressedDataFiles.create(sd4, false);
+		append(journal, SD4, "h4\ns1\n");
+		journal.checkpoint(state(1));
+		out.write("h4\ns1\n".getBytes(StandardCharsets.UTF_8));
+		out.flush();
+		journal.discard(journal.getCheckpointPosition(), new long[] {0, 0, 0, 0, sd4.length()},
+				new long[] {0, 0, 0, 0, CompressedDataFiles.getTrailer(out)});
+		append(journal, SD4, "s2\n");
+		journal.checkpoint(state(2));
+		out.write("s2\ns3\n".getBytes(StandardCharsets.UTF_8)); // written past the checkpoint, then killed
+		out.flush();
+		journal.close();
+
+		journal = new SessionJournal(f);
+		journal.restore(SD4);
+		assertEquals("h4\ns1\ns2\n", read(sd4));
+		out = CompressedDataFiles.create(sd4, true); // the activity adds a member
+		out.write("s3\n".getBytes(StandardCharsets.UTF_8));
+		out.close();
+		assertEquals("h4\ns1\ns2\ns3\n", read(sd4));
+		journal.delete();
+	}
+}
@@ -0,0 +1,201 @@
+package ca.yorku.cse.mack.fittstouch.analysis;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * TouchSampleRingTest -- the samples of TouchSampleRing come out in order, with their context, are not seen before
+ * they are published, and are dropped (an event's samples together) when the ring is full; and a producer and a
+ * consumer thread pass samples through a small ring without losing or reordering them.
+ */
+public class TouchSampleRingTest
+{
+	// put one sample, with its fields derived from v
+	static void put(TouchSampleRing ring, int v)
+	{
+		ring.put(v % 2, v, -v, 1000L * v, v / 4f, v % 3);
+	}
+
+	static void check(TouchSampleRing ring, int i, int v)
+	{
+		assertEquals(v % 2, ring.getPointer(i));
+		assertEquals(v, ring.getX(i), 0f);
+		assertEquals(-v, ring.getY(i), 0f);
+		assertEquals(1000L * v, ring.getTime(i));
+		assertEquals(v / 4f, ring.getDelay(i), 0f);
+		assertEquals(v % 3, ring.getMarker(i));
+	}
+
+	@Test
+	public void capacityIsAPowerOfTwo()
+	{
+		assertEquals(8, new TouchSampleRing(8).getCapacity());
+		assertEquals(16, new TouchSampleRing(9).getCapacity());
+		assertEquals(TouchSampleRing.DEFAULT_CAPACITY, new TouchSampleRing(TouchSampleRing.DEFAULT_CAPACITY)
+				.getCapacity());
+	}
+
+	@Test
+	public void samplesInOrderWithContext()
+	{
+		TouchSampleRing ring = new TouchSampleRing(8);
+		ring.setContext(1, 2, 3, 4);
+		assertTrue(ring.claim(2));
+		put(ring, 10);
+		put(ring, 11);
+		ring.publish();
+		ring.setContext(5, 6, 7, 8);
+		assertTrue(ring.claim(1));
+		put(ring, 12);
+		ring.publish();
+
+		assertEquals(3, ring.available());
+		for (int i = 0; i < 3; ++i)
+			check(ring, i, 10 + i);
+		assertEquals(1, ring.getTrial(0));
+		assertEquals(2, ring.getBlock(1));
+		assertEquals(3, ring.getGesture(1));
+		assertEquals(4, ring.getCombination(1));
+		assertEquals(5, ring.getTrial(2));
+		assertEquals(8, ring.getCombination(2));
+
+		ring.release(2);
+		assertEquals(1, ring.available());
+		check(ring, 0, 12);
+		assertEquals(3, ring.getPublished());
+		assertEquals(2, ring.getReleased());
+	}
+
+	@Test
+	public void notSeenBeforePublish()
+	{
+		TouchSampleRing ring = new TouchSampleRing(8);
+		assertTrue(ring.claim(1));
+		put(ring, 1);
+		assertEquals(0, ring.available());
+		assertEquals(0, ring.getPublished());
+		ring.publish();
+		assertEquals(1, ring.available());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void putWithoutClaim()
+	{
+		TouchSampleRing ring = new TouchSampleRing(8);
+		assertTrue(ring.claim(1));
+		put(ring, 1);
+		put(ring, 2);
+	}
+
+	@Test
+	public void droppedWhenFull()
+	{
+		TouchSampleRing ring = new TouchSampleRing(8);
+		assertTrue(ring.claim(6));
+		for (int v = 0; v < 6; ++v)
+			put(ring, v);
+		ring.publish();
+
+		assertFalse(ring.claim(3)); // only 2 free: the event's samples are dropped together
+		assertEquals(3, ring.getDropped());
+		assertTrue(ring.claim(2));
+		put(ring, 6);
+		put(ring, 7);
+		ring.publish();
+		assertFalse(ring.claim(1));
+		assertEquals(4, ring.getDropped());
+
+		assertEquals(8, ring.available());
+		ring.release(3);
+		assertTrue(ring.claim(3)); // room again once released
+		for (int v = 8; v < 11; ++v)
+			put(ring, v);
+		ring.publish();
+		assertEquals(5, ring.available()); // the samples seen before (available reads the tail when they are used)
+		for (int i = 0; i < 5; ++i)
+			check(ring, i, i + 3);
+		ring.release(5);
+		assertEquals(3, ring.available());
+		for (int i = 0; i < 3; ++i)
+			check(ring, i, i + 8);
+		assertEquals(4, ring.getDropped());
+	}
+
+	@Test
+	public void wrapsAround()
+	{
+		TouchSampleRing ring = new TouchSampleRing(8);
+		int v = 0, expected = 0;
+		for (int round = 0; round < 1000; ++round)
+		{
+			int n = 1 + round % 5;
+			assertTrue(ring.claim(n));
+			for (int k = 0; k < n; ++k)
+				put(ring, v++);
+			ring.publish();
+			if (round % 2 == 0) // consume all (available reads the tail again once the samples seen are released)
+				for (int available; (available = ring.available()) > 0; ring.release(available))
+					for (int i = 0; i < available; ++i)
+						check(ring, i, expected++);
+			else // consume half, so the next samples wrap around behind the rest
+			{
+				int consume = ring.available() / 2;
+				for (int i = 0; i < consume; ++i)
+					check(ring, i, expected++);
+				ring.release(consume);
+			}
+		}
+		for (int available; (available = ring.available()) > 0; ring.release(available))
+			for (int i = 0; i < available; ++i)
+				check(ring, i, expected++);
+		assertEquals(v, expected);
+		assertEquals(0, ring.getDropped());
+	}
+
+	@Test(timeout = 30000)
+	public void producerAndConsumerThreads() throws InterruptedException
+	{
+		final int samples = 1000000;
+		final TouchSampleRing ring = new TouchSampleRing(64);
+		Thread producer = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				for (int v = 0; v < samples; v += 2)
+					if (ring.claim(2)) // a two-pointer event
+					{
+						put(ring, v);
+						put(ring, v + 1);
+						ring.publish();
+					}
+			}
+		});
+		producer.start();
+
+		long received = 0;
+		int last = -1;
+		while (producer.isAlive() || ring.available() > 0)
+		{
+			int n = ring.available();
+			for (int i = 0; i < n; ++i)
+			{
+				int v = (int)ring.getX(i);
+				check(ring, i, v);
+				assertTrue(v > last);
+				if (v % 2 == 1)
+					assertEquals(v - 1, last); // the samples of an event stay together
+				last = v;
+			}
+			ring.release(n);
+			received += n;
+		}
+		producer.join();
+		assertEquals(samples, received + ring.getDropped());
+		assertEquals(received, ring.getPublished());
+		assertEquals(received, ring.getReleased());
+	}
+}
@@ -0,0 +1,64 @@
+package ca.yorku.cse.mack.fittstouch;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+
+/**
+ * EventClock -- the time base of the measurements: the time the touch screen reported an event
+ * (MotionEvent.getEventTime, and getHistoricalEventTime for the batched samples), in ns.
+ *
+ * The times (movement time, finger down-up time, scale time, ...) are differences of event times,
+ * not of the times the handlers ran, so the time an event waits to be dispatched to the UI thread
+ * (and behind other work on it) is not in them. That wait is recorded on its own, as the dispatch
+ * delay of the samples (in the sd4 files) and the age of the events (see InputLatency). Event
+ * times are on the monotonic clock of SystemClock.uptimeMillis, which is also the clock of
+ * System.nanoTime, so now() can be compared with them. (Event times are whole ms, so a time from
+ * an event to now is up to 1 ms more than the wait.)
+ *
+ * The time stamps in the data files are wall-clock times (ms). They are converted from event times
+ * with one offset, taken once (when the class is loaded), so the time stamps are on the same
+ * monotonic clock as the measurements: the wall clock being set does not move them.
+ */
+final class EventClock
+{
+    static final long NANOS_PER_MS = 1000000L;
+
+    // the wall-clock time (ms) minus the uptime (ms), when the app started
+    private static final long WALL_CLOCK_OFFSET = System.currentTimeMillis() - SystemClock.uptimeMillis();
+
+    private EventClock()
+    {
+    }
+
+    /**
+     * Returns the time of the event (its last sample), in ns.
+     */
+    static long nanos(MotionEvent me)
+    {
+        return me.getEventTime() * NANOS_PER_MS;
+    }
+
+    /**
+     * Returns the time of historical sample h of the event, in ns.
+     */
+    static long historicalNanos(MotionEvent me, int h)
+    {
+        return me.getHistoricalEventTime(h) * NANOS_PER_MS;
+    }
+
+    /**
+     * Returns the time now, in ns, on the clock of the event times.
+     */
+    static long now()
+    {
+        return System.nanoTime();
+    }
+
+    /**
+     * Returns the wall-clock time (ms since 1970) of an event time (ns), for the time stamp columns.
+     */
+    static long toWallClock(long nanos)
+    {
+        return WALL_CLOCK_OFFSET + nanos / NANOS_PER_MS;
+    }
+}
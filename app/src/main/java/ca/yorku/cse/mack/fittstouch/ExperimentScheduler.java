@@ -0,0 +1,162 @@
+package ca.yorku.cse.mack.fittstouch;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+/**
+ * ExperimentScheduler -- runs the timed events of the experiments (the rest countdown between
+ * finger combinations, the pauses before and between the Zoom trials, ...) on the UI thread, at
+ * the start of a display frame.
+ *
+ * There is one scheduler for the app (see get). A task is a Choreographer frame callback: a task
+ * due at time T runs in the first frame at or after T, so what it changes on the display is drawn
+ * in that frame. It runs on the UI thread, like the touch handlers, so the state it changes needs
+ * no locking, and no thread is created. (Before, each rest period and pause started a
+ * java.util.Timer, i.e., a new thread, and the tasks changed the activity's state on it.)
+ *
+ * The Choreographer is API 16. Below that, a task is posted to the main Looper for its due time
+ * (Handler.postAtTime), so it runs on the UI thread at that time, but not aligned with a frame.
+ * The Choreographer is used only by FrameTask, which is not loaded below API 16.
+ *
+ * schedule returns the task, which is the handle to cancel it. A periodic task runs at a fixed
+ * rate: run k is due at delay + k * period after it was scheduled, so a late frame does not delay
+ * the later runs. A task may cancel itself when it runs.
+ *
+ * The scheduler and its tasks are used only on the UI thread.
+ */
+class ExperimentScheduler
+{
+    private static ExperimentScheduler instance;
+
+    final boolean frameAligned; // API 16 or later (the tasks are frame callbacks)
+    final Handler handler; // the main Looper's (below API 16)
+
+    private ExperimentScheduler()
+    {
+        frameAligned = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN;
+        handler = frameAligned ? null : new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * Returns the scheduler (created on the first call, which must be on the UI thread).
+     */
+    static ExperimentScheduler get()
+    {
+        if (instance == null)
+            instance = new ExperimentScheduler();
+        return instance;
+    }
+
+    /**
+     * Runs the runnable once, delay ms from now.
+     */
+    Task schedule(Runnable runnable, long delay)
+    {
+        return scheduleAtFixedRate(runnable, delay, 0);
+    }
+
+    /**
+     * Runs the runnable delay ms from now, then every period ms (once, if period is 0) until the
+     * task is cancelled.
+     */
+    Task scheduleAtFixedRate(Runnable runnable, long delay, long period)
+    {
+        long due = SystemClock.uptimeMillis() + delay;
+        Task task = frameAligned ? new FrameTask(runnable, due, period) : new Task(runnable, due, period);
+        task.post();
+        return task;
+    }
+
+    /**
+     * A task posted to the main Looper (below API 16; see FrameTask).
+     */
+    class Task implements Runnable
+    {
+        final Runnable runnable;
+        final long period; // ms (0: once)
+        long due; // the time of the next run (SystemClock.uptimeMillis)
+        boolean done; // cancelled, or run (if not periodic)
+
+        Task(Runnable runnableArg, long dueArg, long periodArg)
+        {
+            runnable = runnableArg;
+            due = dueArg;
+            period = periodArg;
+        }
+
+        void post()
+        {
+            handler.postAtTime(this, due);
+        }
+
+        void remove()
+        {
+            handler.removeCallbacks(this);
+        }
+
+        @Override
+        public void run()
+        {
+            if (done)
+                return;
+            if (period == 0)
+                done = true;
+            runnable.run();
+            if (done)
+                return;
+            due += period;
+            post();
+        }
+
+        /**
+         * Stops the task: it does not run again (if it is running, it finishes this run).
+         */
+        void cancel()
+        {
+            if (done)
+                return;
+            done = true;
+            remove();
+        }
+
+        boolean isDone()
+        {
+            return done;
+        }
+    }
+
+    /**
+     * A task that is a Choreographer frame callback (API 16 or later).
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    class FrameTask extends Task implements Choreographer.FrameCallback
+    {
+        FrameTask(Runnable runnableArg, long dueArg, long periodArg)
+        {
+            super(runnableArg, dueArg, periodArg);
+        }
+
+        @Override
+        void post()
+        {
+            Choreographer.getInstance().postFrameCallbackDelayed(this,
+                    Math.max(0, due - SystemClock.uptimeMillis()));
+        }
+
+        @Override
+        void remove()
+        {
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos)
+        {
+            run();
+        }
+    }
+}
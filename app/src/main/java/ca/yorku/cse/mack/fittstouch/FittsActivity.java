@@ -5,7 +5,6 @@ import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
-import android.graphics.PointF;
 import android.media.MediaPlayer;
 import android.media.MediaScannerConnection;
 import android.os.Bundle;
@@ -17,16 +16,25 @@ import android.util.Log;
 import android.view.MotionEvent;
 import android.view.View;
 
-import java.io.BufferedReader;
+import ca.yorku.cse.mack.fittstouch.analysis.AsyncDataWriter;
+import ca.yorku.cse.mack.fittstouch.analysis.BinaryLogSchema;
+import ca.yorku.cse.mack.fittstouch.analysis.CsvRowWriter;
+import ca.yorku.cse.mack.fittstouch.analysis.DataRecords;
+import ca.yorku.cse.mack.fittstouch.analysis.FittsRegression;
+import ca.yorku.cse.mack.fittstouch.analysis.RowLeader;
+import ca.yorku.cse.mack.fittstouch.analysis.SessionJournal;
+import ca.yorku.cse.mack.fittstouch.analysis.Throughput;
+import ca.yorku.cse.mack.fittstouch.analysis.ThroughputAccumulator;
+import ca.yorku.cse.mack.fittstouch.analysis.TrialBuffer;
+import ca.yorku.cse.mack.fittstouch.analysis.TrialOrder;
+
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Random;
 import java.util.StringTokenizer;
-import java.util.Timer;
-import java.util.TimerTask;
 
 /**
  * <h1>FittsTouch</h1>
@@ -264,6 +272,20 @@ import java.util.TimerTask;
  *      MT - movement time in ms for the trial
  * </pre>
  *
+ * <h4>sd4 Output File</h4>
+ *
+ * The sd4 file contains the trajectory of each trial: one row per pointer sample, at the rate the
+ * digitizer reports them (see TouchTrace), with the same leading columns as the sd1 file, then
+ * TrialIdx, BlockIdx, Pointer (the pointer id), X, Y, TimeStamp (the event time, as a wall-clock
+ * time in ms), and DispatchDelay (the time in ms from the sample to the handling of its event). The
+ * sample of a pointer going down or up has a last column, "Down" or "Up", that is not in the header
+ * (see BinaryLogSchema.FITTS_SD4).
+ * <p>
+ *
+ * The times in the sd1 file are differences of event times (see EventClock): they do not include
+ * the time the events waited to be handled. That wait is the DispatchDelay of the sd4 file.
+ * <p>
+ *
  * Note: All sizes, distances, and coordinates are in pixel units for the test device.
  * <p>
  *
@@ -370,10 +392,12 @@ public class FittsActivity extends Activity
     final String DATA_DIRECTORY = "/FittsTouchData/";
     final String APP = "FittsTouch";
 
-    final String SD1_HEADER = "Participant,Session,Block,Group,Condition,CurrentCombination," +
-            "TrialIdx,BlockIdx,FromX,FromY,TargetX,TargetY," +
-            "TargetZoneNumber,FingerDownX,FingerDownY,FingerUpX,FingerUpY,FingerDownUpTime(ms)," +
-            "DistanceFromTargetCenter,IsMiss,IsFingerDownMiss,IsFingerUpMiss,TrialTime(ms)\n";
+    // the sd1 columns are defined in BinaryLogSchema.FITTS_SD1 (the header and the rows are generated from it)
+    final String SD1_HEADER = BinaryLogSchema.FITTS_SD1.getCsvHeader();
+    final CsvRowWriter rows1 = new CsvRowWriter(BinaryLogSchema.FITTS_SD1); // adds sd1 rows to sb1
+    // the trajectory of each trial (see BinaryLogSchema.FITTS_SD4)
+    final String SD4_HEADER = BinaryLogSchema.FITTS_SD4.getCsvHeader();
+    final CsvRowWriter rows4 = new CsvRowWriter(BinaryLogSchema.FITTS_SD4); // adds sd4 rows to sb4
     final String SD2_HEADER = "App,Participant,Session,Block,Group,Condition,Mode,Trials,SequenceRepeatCount,A,W,ID," +
             "Ae,We,IDe,MT(ms),ErrorRate(%),TP(bps)\n";
     final float TWO_TIMES_PI = 6.283185307f;
@@ -381,7 +405,7 @@ public class FittsActivity extends Activity
     final int REST_TIME = 10;
     final float TOUCH_THRESHOLD_MS = 200f;
 
-    Timer t;
+    ExperimentScheduler.Task restTask; // the rest countdown (see restTimerCountdown)
 
     ExperimentPanel expPanel;
     String participantCode, sessionCode, blockCode, groupCode;
@@ -390,30 +414,39 @@ public class FittsActivity extends Activity
     boolean vibrotactileFeedback, auditoryFeedback;
     int numberOfTrials, numberOfTargets, outlierSequenceCount, trialMissCount;
     int numberOfSessions, numberOfTargetColumns, numberOfTargetRows;
-    BufferedWriter sd1, sd2;
-    File f1, f2;
+    BufferedWriter sd1, sd2, sd4;
+    AsyncDataWriter dataWriter; // writes sd1 and sd4 data off the UI thread
+    SessionJournal journal; // sd1 and sd4 rows and state, to resume the session if the app is killed
+    final int SD1 = 1, SD4 = 4; // the journal streams for the sd1 and sd4 files
+    ByteBuffer state; // the state saved in a checkpoint (see checkpoint)
+    ByteBuffer resumeState; // the state to resume from (null for a new session)
+    File f1, f2, f4;
     int screenOrientation;
-    String sd2Leader;
+    RowLeader leader; // the leading columns of the data rows (participant ... combination)
 
     float xCenter, yCenter, screenHeight;
     float xFingerDown, yFingerDown;
-    long fingerDownTime, trialStartTime, now, sequenceStartTime, lastFingerUpTime;
+    long fingerDownTime, trialStartTime, now, sequenceStartTime, lastFingerUpTime; // ns (see EventClock)
+    long eventTime; // the time of the touch event being handled (ns, see EventClock)
     boolean even, sequenceStarted, waitTargetSelected;
     int blockIdx, selectionCount, trialMiss, fingerUpMiss, fingerDownMiss;
     int[] targetOrders;
     int numberOfCombinations = 3;
     int combinationInd;
     int[] combinationOrders;
-    String[] trialOrders;
+    long studySeed; // the target orders are generated from it (see TrialOrder)
     Vibrator vib;
     MediaPlayer missSound, changeFingerSound, completeSound;
-    StringBuilder sb1, sb2, results;
+    StringBuilder sb1, sb2, sb4, results;
+    final TouchTrace trace = new TouchTrace(); // the pointer samples of the trial (see addTouchSamples)
+    // the latency histograms of the touch handler of the subclass, dumped per sequence (see InputLatency)
+    final InputLatency latency = new InputLatency();
+    final InputLatency.Probe touchLatency = latency.add("onTouch");
 
     // new stuff to streamline calculation of Throughput
-    PointF[] from;
-    PointF[] to;
-    PointF[] select;
-    float[] mtArray;
+    TrialBuffer trials;
+    ThroughputAccumulator tpAccumulator;
+    FittsRegression fittsModel; // MT vs. IDe over all sequences
     // -----
 
     // Storage Permissions
@@ -461,7 +494,9 @@ public class FittsActivity extends Activity
         blockCode = "B01"; // always start here
         groupCode = b.getString("groupCode");
         conditionCode = b.getInt("conditionCode") + 1;
+        leader = new RowLeader(participantCode, sessionCode, blockCode, groupCode, conditionCode);
         moveMode = b.getString("mode");
+        studySeed = b.getLong("studySeed", TrialOrder.DEFAULT_STUDY_SEED);
         numberOfSessions = b.getInt("numberOfTrials") + 1;
         numberOfTargetColumns = b.getInt("numberOfTargetColumns");
         numberOfTargetRows = b.getInt("numberOfTargetRows");
@@ -514,16 +549,17 @@ public class FittsActivity extends Activity
         configureFingerCombination();
         expPanel.combinationString = expPanel.combination[combinationOrders[0]];
 
-        initializeTrialOrders();
-
-        // arrays needed for Throughput calculation (done on a per-sequence basis)
-        from = new PointF[numberOfTrials];
-        to = new PointF[numberOfTrials];
-        select = new PointF[numberOfTrials];
-        mtArray = new float[numberOfTrials];
+        // storage needed for Throughput calculation (allocated once, reused for each sequence)
+        trials = new TrialBuffer(numberOfTrials);
+        tpAccumulator = new ThroughputAccumulator(0f, Throughput.SERIAL);
+        fittsModel = new FittsRegression();
         blockIdx = 0;
         combinationInd = 0;
         waitTargetSelected = true;
+
+        state = ByteBuffer.allocate(1024 + 64 * numberOfTrials); // ample for the state (see checkpoint)
+        if (resumeState != null)
+            resumeSession(resumeState);
     }
 
     void configureFingerCombination() {
@@ -574,10 +610,43 @@ public class FittsActivity extends Activity
             this.finish(); // terminate
         }
 
+        /*
+         * The journal (see SessionJournal) holds the sd1 and sd4 rows and the state of the
+         * session. If the app was killed during this session (same participant, session, group,
+         * condition, and mode), the sd1 and sd4 files are restored (see SessionJournal.restore) and
+         * the session resumes where it stopped (see resumeSession).
+         */
+        try
+        {
+            journal = new SessionJournal(new File(dataDirectory, String.format("%s-%s-%s-%s-%d-%s.journal",
+                    APP, participantCode, sessionCode, groupCode, conditionCode, moveMode)));
+            ByteBuffer saved = journal.getCheckpoint();
+            if (saved != null && journal.getName(SD1) != null && journal.getName(SD4) != null
+                    && saved.getInt(0) == numberOfSessions && saved.getInt(4) == numberOfTargets)
+            {
+                f1 = new File(journal.getName(SD1));
+                f4 = new File(journal.getName(SD4));
+                journal.restore(SD1);
+                journal.restore(SD4);
+                sd1 = new BufferedWriter(new FileWriter(f1, true));
+                sd4 = new BufferedWriter(new FileWriter(f4, true));
+                dataWriter = new AsyncDataWriter(AsyncDataWriter.DEFAULT_CAPACITY, sd1, sd4,
+                        latency.open(InputLatency.fileFor(f1, ".sd1")));
+                resumeState = saved;
+                return;
+            }
+            journal.reset();
+        } catch (IOException e)
+        {
+            Log.e(MYDEBUG, "ERROR OPENING JOURNAL! e=" + e.toString());
+            super.onDestroy();
+            this.finish();
+        }
+
         /**
-         * The following do-loop creates data files for output and a string sd2Leader to write to the sd2
-         * output files.  Both the filenames and the sd2Leader are constructed by combining the setup parameters
-         * so that the filenames and sd2Leader are unique and also reveal the conditions used for the block of input.
+         * The following do-loop creates data files for output.  The filenames are constructed by combining
+         * the setup parameters so that the filenames are unique and also reveal the conditions used for the
+         * block of input.  (The same parameters begin each data line; see RowLeader.)
          *
          * The block code begins "B01" and is incremented on each loop iteration until an available
          * filename is found.  The goal, of course, is to ensure data files are not inadvertently overwritten.
@@ -594,10 +663,7 @@ public class FittsActivity extends Activity
 
             f1 = new File(dataDirectory, baseFilename + ".sd1");
             //f2 = new File(dataDirectory, baseFilename + ".sd2");
-
-            // also make a comma-delimited leader that will begin each data line written to the sd2 file
-            //sd2Leader = String.format("%s,%s,%s,%s,%s,%s", APP, participantCode, sessionCode,
-            //        blockCode, groupCode, conditionCode);
+            f4 = new File(dataDirectory, baseFilename + ".sd4");
         } while (f1.exists());
 
         try
@@ -608,6 +674,15 @@ public class FittsActivity extends Activity
             // output header in sd1 file
             sd1.write(SD1_HEADER, 0, SD1_HEADER.length());
             sd1.flush();
+            sd4 = new BufferedWriter(new FileWriter(f4));
+            sd4.write(SD4_HEADER, 0, SD4_HEADER.length());
+            sd4.flush();
+            dataWriter = new AsyncDataWriter(AsyncDataWriter.DEFAULT_CAPACITY, sd1, sd4,
+                    latency.open(InputLatency.fileFor(f1, ".sd1")));
+            journal.setName(SD1, f1.getAbsolutePath());
+            journal.append(SD1, SD1_HEADER, 0, SD1_HEADER.length());
+            journal.setName(SD4, f4.getAbsolutePath());
+            journal.append(SD4, SD4_HEADER, 0, SD4_HEADER.length());
 
             // output header in sd2 file
             //sd2.write(SD2_HEADER, 0, SD2_HEADER.length());
@@ -623,6 +698,17 @@ public class FittsActivity extends Activity
 
     }
 
+    /*
+     * Adds the pointer samples of a touch event (including the samples batched in its history) to
+     * the trajectory of the trial. Called by the subclasses for each event in the sequence, before
+     * the event is handled, so the samples of the event that ends a trial are in its sd4 rows
+     * (see calculateTrialData).
+     */
+    void addTouchSamples(MotionEvent me)
+    {
+        trace.add(me, EventClock.now());
+    }
+
     public void configureTargets()
     {
         // only one size target
@@ -637,83 +723,19 @@ public class FittsActivity extends Activity
                 expPanel.targetSet[i + j * numberOfTargetColumns] = new Target(Target.CIRCLE, x, y, targetWidth, targetWidth,
                         Target.NORMAL);
             }
+        // amplitudes are checked against the grid, by target order (see configureTargetOrders)
+        tpAccumulator.setGridLayout(numberOfTargetColumns, numberOfTargetRows, rowWidth, columnWidth, targetOrders);
         // Don't set target yet. This is done when start circle is selected.
     }
 
-    void initializeTrialOrders() {
-        File dataDirectory = new File(Environment.getExternalStorageDirectory() +
-                DATA_DIRECTORY);
-        if (!dataDirectory.exists() && !dataDirectory.mkdirs())
-        {
-            Log.e(MYDEBUG, "ERROR --> FAILED TO CREATE DIRECTORY: " + DATA_DIRECTORY);
-            super.onDestroy(); // cleanup
-            this.finish(); // terminate
-        }
-        f2 = new File(dataDirectory, "Tap-randomTargetOrders.sd2");
-        trialOrders = new String[numberOfSessions];
-        // read file
-        if (f2.exists()) {
-            try {
-                BufferedReader br = new BufferedReader(new FileReader(f2));
-                String line;
-                for (int i = 0; i < numberOfSessions; ++i) {
-                    line = br.readLine();
-                    trialOrders[i] = line;
-                }
-                br.close();
-            }
-            catch (IOException e) {
-
-            }
-            return;
-        }
-        // first randomize
-        // make a working directory (if necessary) to store data files
-        try {
-            sd2 = new BufferedWriter(new FileWriter(f2));
-            sb2 = new StringBuilder();
-
-            for (int i = 0; i < numberOfSessions; ++i) {
-                int[] orders = new int[numberOfTrials];
-                for (int j = 0; j < numberOfTrials; ++j)
-                    orders[j] = j;
-
-                // shuffle target orders
-                Random r = new Random();
-                for (int j = 0; j < numberOfTrials; ++j) {
-                    int idx = r.nextInt(numberOfTrials);
-                    int temp = orders[idx];
-                    orders[idx] = orders[i];
-                    orders[i] = temp;
-                }
-                String s = "";
-                for (int j = 0; j < numberOfTrials; ++j) {
-                    s += (String.valueOf(orders[j]));
-                    if (j == numberOfTrials-1) {
-                        trialOrders[i] = s;
-                        s+= "\n";
-                    }
-                    else
-                        s+= ",";
-                }
-                sb2.append(s);
-            }
-            sd2.write(sb2.toString(), 0, sb2.length());
-            sd2.flush();
-            sb2.delete(0, sb2.length());
-        } catch (IOException e) {
-            Log.e(MYDEBUG, "ERROR OPENING DATA FILES! e=" + e.toString());
-            super.onDestroy();
-            this.finish();
-        }
-    }
-
+    /*
+     * The target order for the block: a random permutation of the targets, generated from the
+     * study seed, the session code, and the block index (see TrialOrder), so it is the same on
+     * every device and run.
+     */
     public void configureTargetOrders()
     {
-
-        String[] s = trialOrders[blockIdx].split(",");
-        for (int i = 0; i < numberOfTrials; ++i)
-            targetOrders[i] = Integer.parseInt(s[i]);
+        TrialOrder.permutation(targetOrders, TrialOrder.key(studySeed, sessionCode, blockIdx));
     }
 
 //    private AmplitudeWidth[] getAmplitudeWidthArray(float[] aArray, float[] wArray)
@@ -760,7 +782,7 @@ public class FittsActivity extends Activity
     {
         xFingerDown = xArg;
         yFingerDown = yArg;
-        fingerDownTime = System.nanoTime();
+        fingerDownTime = eventTime;
     }
 
     public void doStartCircleSelected()
@@ -773,12 +795,14 @@ public class FittsActivity extends Activity
             expPanel.targetSet = new Target[numberOfTargets];
             configureTargets();
             configureTargetOrders();
-            trialStartTime = System.nanoTime(); // last "now" value is start of trial
+            trialStartTime = eventTime; // last "now" value is start of trial
         }
 
         expPanel.targetSet[targetOrders[0]].status = Target.TARGET;
         expPanel.toTarget = expPanel.targetSet[targetOrders[0]];
         selectionCount = 0;
+        trials.reset();
+        tpAccumulator.reset();
         expPanel.waitStartCircleSelect = false;
         expPanel.showFingerCombination = false;
     }
@@ -788,8 +812,10 @@ public class FittsActivity extends Activity
     {
         try
         {
-            sd1.close();
+            // write any data still queued and close the file (waits until the data are written)
+            dataWriter.close();
             //sd2.close();
+            journal.delete(); // the session is done
 
             /*
              * Make the saved data files visible in Windows Explorer. There seems to be bug doing
@@ -798,7 +824,8 @@ public class FittsActivity extends Activity
              *
              * http://code.google.com/p/android/issues/detail?id=38282
              */
-            MediaScannerConnection.scanFile(this, new String[] {f1.getAbsolutePath()}, null, null);
+            MediaScannerConnection.scanFile(this, new String[] {f1.getAbsolutePath(), f4.getAbsolutePath(),
+                    latency.file.getAbsolutePath()}, null, null);
         } catch (IOException e)
         {
             Log.d("MYDEBUG", "FILE CLOSE ERROR! e = " + e);
@@ -859,57 +886,68 @@ public class FittsActivity extends Activity
             outlier = true;
         */
 
-        String trialTime = String.format("%.1f", (now - trialStartTime) / 1000000.0f);
-        String fingerDownUpTime = String.format("%.1f", (now - fingerDownTime) / 1000000.0f);
+        float trialTime = (now - trialStartTime) / 1000000.0f;
+        float fingerDownUpTime = (now - fingerDownTime) / 1000000.0f;
         float fingerDownUpDelta = (float)Math.sqrt((xSelect - xFingerDown) * (xSelect -
                 xFingerDown) + (ySelect - yFingerDown) * (ySelect - yFingerDown));
 
-        /*
-         * CAUTION: Ensure this is consistent with the sd1 header line defined at the top of
-         * FittsTouchActivity.
-         */
-        sb1.append(String.format(
-                "%s,%s,%s,%s,%d," +
-                "%s,%d,%d," +
-                "%s,%s,%s,%s," +
-                "%d,%s,%s,%s,%s," +
-                "%s,%s,%d,%d,%d,%s\n",
-                participantCode, sessionCode, blockCode, groupCode, conditionCode,
-                expPanel.combinationString.replaceAll("\\s+", ""), selectionCount, blockIdx,
+        int mark = sb1.length();
+        DataRecords.appendFittsTrial(rows1.to(sb1), leader, expPanel.combinationString, selectionCount, blockIdx,
                 expPanel.fromTarget.xCenter, expPanel.fromTarget.yCenter,
                 expPanel.toTarget.xCenter, expPanel.toTarget.yCenter,
                 targetOrders[selectionCount], xFingerDown, yFingerDown, xSelect, ySelect,
-                fingerDownUpTime, b, trialMiss, fingerDownMiss, fingerUpMiss, trialTime));
+                fingerDownUpTime, b, trialMiss, fingerDownMiss, fingerUpMiss, trialTime);
+        journal.append(SD1, sb1, mark, sb1.length()); // committed by the next checkpoint
+
+        // the trajectory of the trial: every pointer sample since the last trial
+        mark = sb4.length();
+        for (int i = 0; i < trace.size(); ++i)
+        {
+            TracePoint p = trace.get(i);
+            DataRecords.appendFittsTouch(rows4.to(sb4), leader, expPanel.combinationString, selectionCount,
+                    blockIdx, p.pointer, p.x, p.y, EventClock.toWallClock(p.t),
+                    p.delay / (float)EventClock.NANOS_PER_MS, TouchTrace.marker(p));
+        }
+        journal.append(SD4, sb4, mark, sb4.length());
+        trace.clear();
+
+        /*
+         * The trial buffer is added to at the end of each trial (a repeated trial overwrites the
+         * last one). The buffer can be passed to the Throughput constructor, which computes
+         * throughput and other values based on the data in the buffer.
+         */
+        trials.set(selectionCount, expPanel.fromTarget.xCenter, expPanel.fromTarget.yCenter,
+                expPanel.toTarget.xCenter, expPanel.toTarget.yCenter, xSelect, ySelect,
+                trialTime, xFingerDown, yFingerDown);
 
         /*
-         * These four arrays are added to at the end of each trial. At the end of a sequence, they
-         * are passed to the Throughput constructor. The Throughput object will compute throughput
-         * and other values based on the data in these arrays.
+         * The accumulator is updated as each trial ends, so throughput is available at any point
+         * in the sequence. A repeated trial (see FittsTouchActivity.doFingerUp) replaces the last.
          */
-        from[selectionCount] = new PointF(expPanel.fromTarget.xCenter, expPanel.fromTarget.yCenter);
-        to[selectionCount] = new PointF(expPanel.toTarget.xCenter, expPanel.toTarget.yCenter);
-        select[selectionCount] = new PointF(xSelect, ySelect);
-        mtArray[selectionCount] = (now - trialStartTime) / 1000000.0f;
+        if (tpAccumulator.getNumberOfTrials() > selectionCount)
+            tpAccumulator.removeLastTrial();
+        tpAccumulator.addTrial(expPanel.fromTarget.xCenter, expPanel.fromTarget.yCenter,
+                expPanel.toTarget.xCenter, expPanel.toTarget.yCenter, xSelect, ySelect,
+                trials.getMT(selectionCount));
     }
 
     void doEndSequence()
     {
 
             /*
-             * Give the relevant data to the Throughput object (where the serious calculations are
-             * performed).
+             * The statistics for the sequence were accumulated trial by trial (see
+             * calculateTrialData), so no further calculation is needed here.
              */
-            int taskType = Throughput.ONE_DIMENSIONAL;
-            int responseType = Throughput.SERIAL;
-            Throughput t = new Throughput("nocode", 0f, 0f, taskType,
-                    responseType, from, to, select,
-                    mtArray);
+            ThroughputAccumulator t = tpAccumulator;
+            fittsModel.add(t.getIDe(), t.getMT());
+            if (t.getAmplitudeCheck().getViolationCount() > 0)
+                Log.w(MYDEBUG, "Sequence " + (blockIdx + 1) + ": " + t.getAmplitudeCheck());
 
             /*
              * CAUTION: Ensure this is consistent with the sd2 header line defined at the top of
              * FittsTouchActivity.
 
-            sb2.append(sd2Leader);
+            leader.appendTo(sb2, expPanel.combinationString);
             sb2.append(String.format("%d,%d,%s,%s,%s,%s,%s,%s,%s,%s\n", t.getNumberOfTrials(),
                     outlierSequenceCount, t.getW(), t.getID(), t.getAe(), t.getWe(), t
                             .getIDe(), t.getMT(), t.getErrorRate(), t.getThroughput()));
@@ -918,8 +956,9 @@ public class FittsActivity extends Activity
             // write data to files at end of each sequence
             try
             {
-                sd1.write(sb1.toString(), 0, sb1.length());
-                sd1.flush();
+                dataWriter.submit(sd1, sb1); // written and flushed on the writer thread
+                dataWriter.submit(sd4, sb4);
+                latency.dump(dataWriter, expPanel.combinationString, blockIdx);
                 //sd2.write(sb2.toString(), 0, sb2.length());
                 //sd2.flush();
             } catch (IOException e)
@@ -927,6 +966,7 @@ public class FittsActivity extends Activity
                 Log.d("MYDEBUG", "ERROR WRITING TO DATA FILES: e = " + e);
             }
             sb1.delete(0, sb1.length());
+            sb4.delete(0, sb4.length());
             //sb2.delete(0, sb2.length());
 
             // prepare results for output on display
@@ -935,6 +975,12 @@ public class FittsActivity extends Activity
             s += "Number of trials = " + numberOfTrials + ":";
             s += "-----:";
             s += "Trial Misses = " + trialMissCount + ":";
+            s += String.format("Throughput = %.2f bps", t.getThroughput()) + ":";
+            if (!Float.isNaN(fittsModel.getSlope()))
+                s += String.format("MT = %.0f + %.0f IDe (R^2 = %.2f)", fittsModel.getIntercept(),
+                        fittsModel.getSlope(), fittsModel.getRSquared()) + ":";
+            s += latency.getSummary();
+            latency.clear();
             results.append(s);
             expPanel.resultsString = results.toString().split(":");
 
@@ -962,14 +1008,132 @@ public class FittsActivity extends Activity
         expPanel.waitStartCircleSelect = true;
         sequenceStarted = false;
         trialMissCount = 0;
+        checkpoint();
+        discardJournal();
+    }
+
+    /*
+     * Saves the state of the session in the journal. Called at the end of each trial (see
+     * advanceTarget in the subclasses) and each sequence. This commits the sd1 rows journaled so
+     * far. It costs a copy to memory (the journal is a memory-mapped file); there is no fsync.
+     */
+    void checkpoint()
+    {
+        state.clear();
+        state.putInt(numberOfSessions).putInt(numberOfTrials);
+        state.putInt(combinationInd).putInt(blockIdx).putInt(selectionCount).putInt(trialMissCount);
+        state.putInt(sequenceStarted ? 1 : 0);
+        for (int i = 0; i < numberOfTrials; ++i)
+            state.putInt(targetOrders[i]);
+        trials.writeTo(state);
+        fittsModel.writeTo(state);
+        try
+        {
+            journal.checkpoint(state);
+        } catch (IOException e)
+        {
+            Log.d("MYDEBUG", "ERROR WRITING TO JOURNAL: e = " + e);
+        }
+    }
+
+    /*
+     * Drops the journal entries before the checkpoint at the end of a sequence, once the data
+     * writer has written the sequence's rows: the journal keeps the lengths of the data files
+     * instead (see SessionJournal.discard), so it holds one sequence at most.
+     */
+    void discardJournal()
+    {
+        final long position = journal.getCheckpointPosition();
+        try
+        {
+            dataWriter.submit(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    long[] lengths = new long[SD4 + 1];
+                    lengths[SD1] = f1.length();
+                    lengths[SD4] = f4.length();
+                    try
+                    {
+                        journal.discard(position, lengths, null);
+                    } catch (IOException e)
+                    {
+                        Log.d("MYDEBUG", "ERROR WRITING TO JOURNAL: e = " + e);
+                    }
+                }
+            });
+        } catch (IOException e)
+        {
+            Log.d("MYDEBUG", "ERROR WRITING TO DATA FILES: e = " + e);
+        }
+    }
+
+    /*
+     * Restores the state saved by checkpoint. If the app was killed during a sequence, the
+     * sequence continues with the trial that was not finished (its sd1 row, if any, was not
+     * committed and is not in the restored sd1 file). Otherwise, the start circle is shown, as
+     * usual.
+     */
+    void resumeSession(ByteBuffer s)
+    {
+        s.position(8); // numberOfSessions and numberOfTrials (checked in initializeFile)
+        combinationInd = s.getInt();
+        blockIdx = s.getInt();
+        selectionCount = s.getInt();
+        trialMissCount = s.getInt();
+        sequenceStarted = s.getInt() == 1;
+        for (int i = 0; i < numberOfTrials; ++i)
+            targetOrders[i] = s.getInt();
+        trials.readFrom(s);
+        fittsModel.readFrom(s);
+        expPanel.targetSet = new Target[numberOfTargets];
+        configureTargets();
+        tpAccumulator.reset();
+        tpAccumulator.addTrials(trials);
+
+        if (combinationInd < numberOfCombinations)
+            expPanel.combinationString = expPanel.combination[combinationOrders[combinationInd]];
+        else
+        {
+            expPanel.done = true;
+            expPanel.combinationString = "End of Tap Experiment";
+        }
+        if (!sequenceStarted)
+            return;
+
+        // show the target for the next trial (as in advanceTarget)
+        int next = targetOrders[selectionCount];
+        expPanel.targetSet[next].status = Target.TARGET;
+        expPanel.fromTarget = expPanel.targetSet[targetOrders[selectionCount - 1]];
+        expPanel.toTarget = expPanel.targetSet[next];
+        even = selectionCount % 2 == 0;
+        sb1 = new StringBuilder();
+        sb2 = new StringBuilder();
+        sb4 = new StringBuilder();
+        results = new StringBuilder();
+        expPanel.waitStartCircleSelect = false;
+        expPanel.showFingerCombination = false;
+        trialStartTime = EventClock.now();
+    }
+
+    @Override
+    protected void onDestroy()
+    {
+        // stop a countdown still running (the scheduler is shared by the activities)
+        if (restTask != null)
+            restTask.cancel();
+        super.onDestroy();
     }
 
+    // counts down the rest time (s) on the display, on the UI thread (see ExperimentScheduler)
     void restTimerCountdown(int time) {
-        t = new Timer();
-        t.scheduleAtFixedRate(new RestTask(time),  1000,  1000);
+        if (restTask != null)
+            restTask.cancel();
+        restTask = ExperimentScheduler.get().scheduleAtFixedRate(new RestTask(time), 1000, 1000);
     }
 
-    class RestTask extends TimerTask {
+    class RestTask implements Runnable {
         int cur;
         RestTask(int t) {
             expPanel.isResting = true;
@@ -985,7 +1149,7 @@ public class FittsActivity extends Activity
             // Log.e(MYDEBUG, String.format("resting %d", cur));
             if (cur <= 0) {
                 expPanel.isResting = false;
-                t.cancel();
+                restTask.cancel();
             }
         }
     }
@@ -5,6 +5,8 @@ import android.view.DragEvent;
 import android.view.MotionEvent;
 import android.view.View;
 
+import java.nio.ByteBuffer;
+
 /**
  * <h1>FittsTouch</h1>
  *
@@ -359,6 +361,16 @@ public class FittsDragActivity extends FittsActivity implements View.OnTouchList
 
     @Override
     public boolean onTouch(View v, MotionEvent me)
+    {
+        eventTime = EventClock.nanos(me);
+        touchLatency.begin(eventTime);
+        handleTouch(me);
+        touchLatency.end();
+        return true;
+    }
+
+    // handles a touch event (onTouch records the latency of the event and of this; see InputLatency)
+    void handleTouch(MotionEvent me)
     {
         float x = me.getX();
         float y = me.getY();
@@ -366,14 +378,16 @@ public class FittsDragActivity extends FittsActivity implements View.OnTouchList
         if (expPanel.waitStartCircleSelect && me.getAction() == MotionEvent.ACTION_UP)
         {
             if (!expPanel.startCircle.inTarget(x, y))
-                return true;
+                return;
             else
                 doStartCircleSelected();
-            return true;
+            return;
         }
 
         if (expPanel.waitStartCircleSelect)
-            return true;
+            return;
+
+        addTouchSamples(me);
 
         if (me.getAction() == MotionEvent.ACTION_DOWN) {
             doFingerDown(x, y);
@@ -384,14 +398,13 @@ public class FittsDragActivity extends FittsActivity implements View.OnTouchList
         else if (me.getAction() == MotionEvent.ACTION_MOVE) {
             doFingerPressed(x, y);
         }
-        return true;
     }
 
     public void doFingerDown(float xArg, float yArg)
     {
         xFingerDown = xArg;
         yFingerDown = yArg;
-        fingerDownTime = System.nanoTime();
+        fingerDownTime = eventTime;
         boolean isTarget = expPanel.toTarget.inTarget(xArg, yArg);
         if (isTarget) {
             expPanel.isDragging = true;
@@ -438,6 +451,16 @@ public class FittsDragActivity extends FittsActivity implements View.OnTouchList
         expPanel.destTarget = expPanel.targetSet[5];
     }
 
+    @Override
+    void resumeSession(ByteBuffer s)
+    {
+        super.resumeSession(s);
+
+        // set destination target (as in advanceTarget)
+        if (sequenceStarted)
+            expPanel.destTarget = expPanel.targetSet[(targetOrders[selectionCount] + 5) % 12];
+    }
+
     void doTargetSelected(float xSelect, float ySelect)
     {
         boolean isInTarget = expPanel.toTarget.inTarget(xSelect, ySelect);
@@ -449,7 +472,7 @@ public class FittsDragActivity extends FittsActivity implements View.OnTouchList
         }
 
         trialStartTime = now; // last "now" value is start of trial
-        now = System.nanoTime(); // current "now" value is end of trial
+        now = eventTime; // current "now" value is end of trial
 
         // hit or miss? (respond appropriately)
         trialMiss = expPanel.isDragging && expPanel.destTarget.circleInTarget(xSelect, ySelect) ? 0 : 1;
@@ -477,6 +500,7 @@ public class FittsDragActivity extends FittsActivity implements View.OnTouchList
             expPanel.fromTarget = expPanel.targetSet[0];
             sb1 = new StringBuilder();
             sb2 = new StringBuilder();
+            sb4 = new StringBuilder();
             results = new StringBuilder();
         }
 
@@ -525,5 +549,6 @@ public class FittsDragActivity extends FittsActivity implements View.OnTouchList
         expPanel.destTarget = expPanel.targetSet[(next+5) % 12];
 
         even = !even;
+        checkpoint(); // the trial is done (see FittsActivity.checkpoint)
     }
 }
\ No newline at end of file
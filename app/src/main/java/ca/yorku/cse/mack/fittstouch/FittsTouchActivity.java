@@ -7,8 +7,6 @@ import android.view.View;
 import java.io.IOException;
 import java.util.Random;
 import java.util.StringTokenizer;
-import java.util.Timer;
-import java.util.TimerTask;
 
 /**
  * <h1>FittsTouch</h1>
@@ -363,27 +361,39 @@ public class FittsTouchActivity extends FittsActivity implements View.OnTouchLis
 
     @Override
     public boolean onTouch(View v, MotionEvent me)
+    {
+        eventTime = EventClock.nanos(me);
+        touchLatency.begin(eventTime);
+        handleTouch(me);
+        touchLatency.end();
+        return true;
+    }
+
+    // handles a touch event (onTouch records the latency of the event and of this; see InputLatency)
+    void handleTouch(MotionEvent me)
     {
         float x = me.getX();
         float y = me.getY();
 
         if (expPanel.isVisibilityTest) {
             expPanel.isVisibilityTest = false;
-            return true;
+            return;
         }
 
         if (expPanel.waitStartCircleSelect && me.getAction() == MotionEvent.ACTION_UP)
         {
             if (!expPanel.startCircle.inTarget(x, y))
-                return true;
+                return;
             else
                 doStartCircleSelected();
-            lastFingerUpTime = System.nanoTime();
-            return true;
+            lastFingerUpTime = eventTime;
+            return;
         }
 
         if (expPanel.waitStartCircleSelect)
-            return true;
+            return;
+
+        addTouchSamples(me);
 
         // detect hit/miss when down/up
         if (me.getAction() == MotionEvent.ACTION_DOWN)
@@ -396,14 +406,13 @@ public class FittsTouchActivity extends FittsActivity implements View.OnTouchLis
         {
             doFingerPressed(x, y);
         }
-        return true;
     }
 
     public void doFingerDown(float xArg, float yArg)
     {
         xFingerDown = xArg;
         yFingerDown = yArg;
-        fingerDownTime = System.nanoTime();
+        fingerDownTime = eventTime;
 
         float bt = (fingerDownTime - lastFingerUpTime) / 1000000.0f;
         multiTouch = bt <= TOUCH_THRESHOLD_MS;
@@ -442,7 +451,7 @@ public class FittsTouchActivity extends FittsActivity implements View.OnTouchLis
         boolean isInTarget = expPanel.toTarget.inTarget(xSelect, ySelect);
         fingerUpMiss = isInTarget ? 0 : 1;
 
-        now = System.nanoTime(); // current "now" value is end of trial
+        now = eventTime; // current "now" value is end of trial
 
         // set back to normal status
         expPanel.toTarget.status = Target.TARGET;
@@ -467,6 +476,7 @@ public class FittsTouchActivity extends FittsActivity implements View.OnTouchLis
             expPanel.fromTarget = expPanel.targetSet[0];
             sb1 = new StringBuilder();
             sb2 = new StringBuilder();
+            sb4 = new StringBuilder();
             results = new StringBuilder();
         }
 
@@ -523,6 +533,7 @@ public class FittsTouchActivity extends FittsActivity implements View.OnTouchLis
         expPanel.toTarget = expPanel.targetSet[next];
         even = !even;
 
-        trialStartTime = System.nanoTime(); // last "now" value is start of trial
+        trialStartTime = now; // last "now" value is start of trial
+        checkpoint(); // the trial is done (see FittsActivity.checkpoint)
     }
 }
\ No newline at end of file
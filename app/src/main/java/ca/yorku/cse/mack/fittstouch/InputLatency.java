@@ -0,0 +1,157 @@
+package ca.yorku.cse.mack.fittstouch;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Locale;
+
+import ca.yorku.cse.mack.fittstouch.analysis.AsyncDataWriter;
+import ca.yorku.cse.mack.fittstouch.analysis.LatencyHistogram;
+
+/**
+ * InputLatency -- the latency histograms of the touch handlers of an activity. For each handler
+ * (a Probe; see add), one histogram of the age of the events when the handler gets them (the
+ * time from the event to the handler starting; see EventClock) and one of the time the handler
+ * takes (see LatencyHistogram).
+ *
+ * A handler calls begin as it starts and end as it returns, on the UI thread; this reads the clock
+ * twice and allocates nothing. At the end of each sequence, dump adds the histograms to a sidecar
+ * file next to the data files (the base name, with SUFFIX), one row per non-empty bucket, and
+ * clear empties them. If a handler ends the sequence, its duration (which includes the end of
+ * sequence work) is not counted.
+ *
+ * The sidecar file is not a data file (the analysis tools do not read it) and is not journaled: on
+ * resume, rows are added to it, and the histograms of the part of the sequence before the app was
+ * killed are lost.
+ */
+class InputLatency
+{
+    static final String SUFFIX = "-latency.csv";
+    static final String HEADER = "CurrentCombination,BlockIdx," + LatencyHistogram.CSV_HEADER + "\n";
+
+    final ArrayList<Probe> probes = new ArrayList<>();
+    final StringBuilder sb = new StringBuilder();
+    File file; // the sidecar file (see open)
+    Writer out;
+
+    /**
+     * Adds a handler, with histograms "name.age" and "name.duration".
+     */
+    Probe add(String name)
+    {
+        Probe p = new Probe(name);
+        probes.add(p);
+        return p;
+    }
+
+    /**
+     * Returns the sidecar file of a session: the name of its data file f, with the extension (e.g.,
+     * ".sd1") replaced by SUFFIX.
+     */
+    static File fileFor(File f, String extension)
+    {
+        String path = f.getPath();
+        return new File(path.substring(0, path.length() - extension.length()) + SUFFIX);
+    }
+
+    /**
+     * Opens the sidecar file (rows are added if it exists) and returns it, to be given to the data
+     * writer (see dump).
+     */
+    Writer open(File f) throws IOException
+    {
+        file = f;
+        boolean exists = f.exists();
+        out = new BufferedWriter(new FileWriter(f, true));
+        if (!exists)
+        {
+            out.write(HEADER);
+            out.flush();
+        }
+        return out;
+    }
+
+    /**
+     * Writes the histograms of the sequence (on the writer thread).
+     */
+    void dump(AsyncDataWriter dataWriter, String combination, int blockIdx) throws IOException
+    {
+        String leading = combination + "," + blockIdx + ",";
+        for (Probe p : probes)
+        {
+            p.age.appendRows(sb, leading);
+            p.duration.appendRows(sb, leading);
+        }
+        dataWriter.submit(out, sb);
+        sb.setLength(0);
+    }
+
+    /**
+     * Empties the histograms, for the next sequence.
+     */
+    void clear()
+    {
+        for (Probe p : probes)
+            p.clear();
+    }
+
+    /**
+     * Returns a line per handler that got events, for the results display (before clear), e.g.,
+     * "onTouch delay p99 = 4.2 ms, run p99 = 0.3 ms", each followed by ":" (the line separator).
+     */
+    String getSummary()
+    {
+        String s = "";
+        for (Probe p : probes)
+            if (p.age.getCount() > 0)
+                s += String.format(Locale.US, "%s delay p99 = %.1f ms, run p99 = %.1f ms:", p.name,
+                        p.age.getPercentile(99), p.duration.getPercentile(99));
+        return s;
+    }
+
+    static class Probe
+    {
+        final String name;
+        final LatencyHistogram age, duration;
+        long start; // the time begin was called (ns; 0 if the histograms were cleared since)
+
+        Probe(String nameArg)
+        {
+            name = nameArg;
+            age = new LatencyHistogram(name + ".age");
+            duration = new LatencyHistogram(name + ".duration");
+        }
+
+        /**
+         * Called as the handler starts, for an event at time eventTime (ns, see EventClock).
+         * Returns the age of the event (ns).
+         */
+        long begin(long eventTime)
+        {
+            start = EventClock.now();
+            long a = start - eventTime;
+            age.record(a);
+            return a;
+        }
+
+        /**
+         * Called as the handler returns.
+         */
+        void end()
+        {
+            if (start != 0)
+                duration.record(EventClock.now() - start);
+            start = 0;
+        }
+
+        void clear()
+        {
+            age.clear();
+            duration.clear();
+            start = 0;
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package ca.yorku.cse.mack.fittstouch;
 
-import android.graphics.RectF;
-import android.util.Log;
+import ca.yorku.cse.mack.fittstouch.analysis.TargetGeometry;
 
+/**
+ * Target -- a target on the display. The geometry and hit-testing are in TargetGeometry (analysis module); this class
+ * adds the display state.
+ */
 @SuppressWarnings("unused")
-public class Target
+public class Target extends TargetGeometry
 {
 	final static int NORMAL = 1;
 	final static int TARGET = 2;
@@ -14,24 +17,12 @@ public class Target
 	final static int TAPPINGSELECTED = 6;
 	final static int DRAGGINGSELECTED = 7;
 
-	final static int RECTANGLE = 0;
-	final static int CIRCLE = 1;
-
-	public float xCenter, yCenter, width, height;
 	public float displayWidth = 60f;
-	RectF r;
 	int status;
-	int type;
 
 	Target(int typeArg, float xCenterArg, float yCenterArg, float widthArg, float heightArg, int statusArg)
 	{
-		type = typeArg;
-		r = new RectF(xCenterArg - widthArg / 2f, yCenterArg - heightArg / 2f, xCenterArg + widthArg / 2f, yCenterArg
-				+ heightArg / 2f);
-		xCenter = xCenterArg;
-		yCenter = yCenterArg;
-		width = widthArg;
-		height = heightArg;
+		super(typeArg, xCenterArg, yCenterArg, widthArg, heightArg);
 		status = statusArg;
 	}
 
@@ -43,40 +34,11 @@ public class Target
 		width = origin.width;
 		height = origin.height;
 		status = origin.status;
-		r = new RectF(xCenter - width / 2f, yCenter - height / 2f, xCenter + width / 2f, yCenter
-				+ height / 2f);
 	}
 
 	public boolean moveTarget(float xCenterArg, float yCenterArg)
 	{
-		r = new RectF(xCenterArg - width / 2f, yCenterArg - height / 2f, xCenterArg + width / 2f, yCenterArg
-				+ height / 2f);
-		xCenter = xCenterArg;
-		yCenter = yCenterArg;
+		moveTo(xCenterArg, yCenterArg);
 		return true;
 	}
-
-	/**
-	 * Returns true if the specified coordinate is inside the target.
-	 */
-	public boolean inTarget(float xTest, float yTest)
-	{
-		//Log.i("MYDEBUG", "type=" + type);
-		if (type == CIRCLE)
-			return distanceFromTargetCenter(xTest, yTest) <= (width / 2f);
-		else
-			return r.contains(xTest, yTest);
-	}
-
-	public boolean circleInTarget(float xTest, float yTest)
-	{
-		//Log.i("MYDEBUG", "type=" + type);
-		// if the dragging target is in destination target
-		return distanceFromTargetCenter(xTest, yTest) <= (width);
-	}
-
-	public float distanceFromTargetCenter(float xTest, float yTest)
-	{
-		return (float) Math.sqrt((xCenter - xTest) * (xCenter - xTest) + (yCenter - yTest) * (yCenter - yTest));
-	}
-}
\ No newline at end of file
+}
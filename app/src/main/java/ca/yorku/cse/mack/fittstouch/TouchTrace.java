@@ -0,0 +1,99 @@
+package ca.yorku.cse.mack.fittstouch;
+
+import android.view.MotionEvent;
+
+/**
+ * TouchTrace -- the pointer samples of the touch events, in the order they occurred, at the
+ * rate the digitizer reports them.
+ *
+ * Android batches the samples that arrive between two frames into one MotionEvent: getX and
+ * getY give the last sample, and getHistoricalX, getHistoricalY, and getHistoricalEventTime the
+ * earlier ones. add copies all of them, for every pointer, so no sample is lost (as they are
+ * when only the last sample is read, or the position is polled on a timer).
+ *
+ * The samples of one event time are consecutive, one per pointer, in pointer index order. The
+ * points are reused after clear, so adding samples allocates nothing once the trace has grown
+ * to the largest number of samples between two clears.
+ */
+class TouchTrace
+{
+    TracePoint[] points = new TracePoint[0];
+    int size;
+
+    TouchTrace()
+    {
+        grow(256);
+    }
+
+    /**
+     * Adds the samples of the event: the historical samples (oldest first), then the current
+     * samples. Called on the UI thread, as each event is delivered, at time now (ns, see
+     * EventClock); the delay of a sample is the time from the sample to now.
+     */
+    void add(MotionEvent me, long now)
+    {
+        int pointers = me.getPointerCount();
+        int history = me.getHistorySize();
+        int n = size + (history + 1) * pointers;
+        if (n > points.length)
+            grow(Math.max(n, 2 * points.length));
+        for (int h = 0; h < history; ++h)
+        {
+            long t = EventClock.historicalNanos(me, h);
+            for (int p = 0; p < pointers; ++p)
+                points[size++].set(me.getPointerId(p), me.getHistoricalX(p, h), me.getHistoricalY(p, h), t,
+                        now - t, MotionEvent.ACTION_MOVE);
+        }
+        int action = me.getActionMasked();
+        int actionIndex = me.getActionIndex();
+        long t = EventClock.nanos(me);
+        for (int p = 0; p < pointers; ++p)
+            points[size++].set(me.getPointerId(p), me.getX(p), me.getY(p), t, now - t,
+                    p == actionIndex ? action : MotionEvent.ACTION_MOVE);
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    TracePoint get(int i)
+    {
+        return points[i];
+    }
+
+    void clear()
+    {
+        size = 0;
+    }
+
+    /**
+     * Returns the marker for a sample: "Down" or "Up" for the sample of the pointer that went
+     * down or up, "Cancel" if the gesture was cancelled, otherwise null.
+     */
+    static String marker(TracePoint p)
+    {
+        switch (p.action)
+        {
+            case MotionEvent.ACTION_DOWN:
+            case MotionEvent.ACTION_POINTER_DOWN:
+                return "Down";
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_POINTER_UP:
+                return "Up";
+            case MotionEvent.ACTION_CANCEL:
+                return "Cancel";
+            default:
+                return null;
+        }
+    }
+
+    private void grow(int capacity)
+    {
+        TracePoint[] a = new TracePoint[capacity];
+        System.arraycopy(points, 0, a, 0, points.length);
+        for (int i = points.length; i < capacity; ++i)
+            a[i] = new TracePoint();
+        points = a;
+    }
+}
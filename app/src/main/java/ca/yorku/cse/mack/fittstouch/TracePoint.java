@@ -1,15 +1,25 @@
 package ca.yorku.cse.mack.fittstouch;
 
+/**
+ * TracePoint -- one sample of one pointer (finger), from a MotionEvent (see TouchTrace).
+ *
+ * The points are reused: TouchTrace sets them as samples are added, so tracing allocates nothing.
+ */
 class TracePoint
 {
-	int x, y, t;
-	float tilt;
+	int pointer; // the pointer id (MotionEvent.getPointerId)
+	float x, y;
+	long t; // the time of the sample (ns, see EventClock)
+	long delay; // the time from the sample to the handling of its event (ns)
+	int action; // MotionEvent.ACTION_DOWN, ACTION_POINTER_DOWN, ..., for the pointer the event is for; else ACTION_MOVE
 
-	TracePoint(int xArg, int yArg, int tArg, float tiltArg)
+	void set(int pointerArg, float xArg, float yArg, long tArg, long delayArg, int actionArg)
 	{
+		pointer = pointerArg;
 		x = xArg;
 		y = yArg;
 		t = tArg;
-		tilt = tiltArg;
+		delay = delayArg;
+		action = actionArg;
 	}
 }
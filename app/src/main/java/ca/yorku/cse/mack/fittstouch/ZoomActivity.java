@@ -12,15 +12,29 @@ import android.view.MotionEvent;
 import android.view.ScaleGestureDetector;
 import android.view.View;
 
-import java.io.BufferedReader;
+import ca.yorku.cse.mack.fittstouch.analysis.AsyncDataWriter;
+import ca.yorku.cse.mack.fittstouch.analysis.BinaryLogReader;
+import ca.yorku.cse.mack.fittstouch.analysis.BinaryLogSchema;
+import ca.yorku.cse.mack.fittstouch.analysis.BinaryLogWriter;
+import ca.yorku.cse.mack.fittstouch.analysis.CompressedDataFiles;
+import ca.yorku.cse.mack.fittstouch.analysis.CsvRowWriter;
+import ca.yorku.cse.mack.fittstouch.analysis.DataRecords;
+import ca.yorku.cse.mack.fittstouch.analysis.RowLeader;
+import ca.yorku.cse.mack.fittstouch.analysis.SessionJournal;
+import ca.yorku.cse.mack.fittstouch.analysis.TouchSampleRing;
+import ca.yorku.cse.mack.fittstouch.analysis.TrialOrder;
+
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.Random;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * <h1>FittsTouch</h1>
@@ -238,22 +252,51 @@ public class ZoomActivity extends Activity
     final String MYDEBUG = "MYDEBUG";
     final String DATA_DIRECTORY = "/ZoomData/";
     final String APP = "Zoom";
+    // the columns are defined in BinaryLogSchema (the headers and the rows are generated from it)
     // trial data
-    final String SD1_HEADER = "Participant,Session,Group,Combination," +
-            "CurrentCombination,TrialIdx,BlockIdx,TaskType,NumberOfScales,TrialTime(ms)\n";
+    final String SD1_HEADER = BinaryLogSchema.ZOOM_SD1.getCsvHeader();
     // scales per trial data
-    final String SD2_HEADER = "Participant,Session,Group,Combination,CurrentCombination,TrialIdx,BlockIdx," +
-            "ScaleNum,ScaleTime(ms),ScaleSpan,ScaleStartTime\n";
+    final String SD2_HEADER = BinaryLogSchema.ZOOM_SD2.getCsvHeader();
     // per touch data
-    final String SD4_HEADER = "Participant,Session,Group,Combination,CurrentCombination,TrialIdx,BlockIdx," +
-            "ScaleNum,PointerA_X,PointerA_Y,PointerB_X,PointerB_Y,TimeStamp\n";
+    final String SD4_HEADER = BinaryLogSchema.ZOOM_SD4.getCsvHeader();
     final int REST_TIME = 10;
-    final int RECORD_DATA_TIME_MS = 50;
 
-    StringBuilder sb1, sb2, sb3, sb4, results;
+    /*
+     * Write the sd1, sd2, and sd4 files in binary (see BinaryLogWriter), instead of CSV. The files
+     * have the extensions sd1b, sd2b, and sd4b and are about 2-4 times smaller. Convert them to the
+     * usual CSV files with BinaryLogConverter.
+     */
+    final boolean BINARY_DATA = false;
+
+    /*
+     * Compress the sd4 (touch) file as it is written (see CompressedDataFiles). ".gz" is added to
+     * the file name. The data are flushed in blocks at the end of each sequence, so a file is
+     * readable up to the last sequence even if it is not closed. BatchReanalysis and
+     * BinaryLogConverter read compressed files; otherwise use gunzip.
+     */
+    final boolean COMPRESS_TOUCH_DATA = false;
+
+    StringBuilder sb1, sb2, sb4, results;
     String participantCode, sessionCode, blockCode, groupCode;
-    BufferedWriter sd1, sd2, sd3, sd4;
-    File f1, f2, f3, f4;
+    RowLeader leader; // the leading columns of the data rows (participant ... combination)
+    BufferedWriter sd1, sd2, sd4;
+    AsyncDataWriter dataWriter; // writes sd1, sd2, and sd4 data off the UI thread
+    OutputStream bin1, bin2, bin4; // the data files, if BINARY_DATA
+    OutputStream out4; // the sd4 file's stream (under sd4 or bin4; see discardJournal)
+    BinaryLogWriter log1, log2, log4;
+    final CsvRowWriter csv1 = new CsvRowWriter(BinaryLogSchema.ZOOM_SD1); // add rows to sb1, sb2, and sb4
+    final CsvRowWriter csv2 = new CsvRowWriter(BinaryLogSchema.ZOOM_SD2);
+    final CsvRowWriter csv4 = new CsvRowWriter(BinaryLogSchema.ZOOM_SD4);
+    File f1, f2, f4;
+    SessionJournal journal; // sd1 and sd2 records and state, to resume the session if the app is killed
+    SessionJournal touchJournal; // sd4 records, committed by the sample writer (see TouchSampleWriter)
+    final int SD1 = 1, SD2 = 2, SD4 = 4; // the journal streams for the data files
+    final ByteBuffer touchState = ByteBuffer.allocate(8); // the state of a touchJournal checkpoint (see commitSamples)
+    long sampleBase; // the sample sequence (see checkpoint) of the ring's first sample: 0, or where a resume started
+    long lostSamples; // samples of finished trials whose rows were lost when the app was killed (see fileInitialize)
+    final int RESTORE_BUFFER_SIZE = 65536; // bytes (see restoreFile)
+    ByteBuffer state; // the state saved in a checkpoint (see checkpoint)
+    ByteBuffer resumeState; // the state to resume from (null for a new session)
 
     ZoomPanel zoomPanel;
     String moveMode;
@@ -268,18 +311,33 @@ public class ZoomActivity extends Activity
     int[] combinationOrders;
     int conditionCode, numberOfSessions, numberOfTrials;
     long waitSec0, waitSec1;
-    String[] trialOrders;
+    long studySeed; // the trial orders are generated from it (see TrialOrder)
     ScaleGestureDetector mScaleGestureDetector;
-    Timer t;
+    // the timed tasks (see ExperimentScheduler): the rest countdown, and the pause before a trial
+    ExperimentScheduler.Task restTask, freezeTask;
     MediaPlayer changeFingerSound, completeSound;
 
-    boolean firstScale,firstTap,needRecordData;
+    boolean firstScale,firstTap;
+    boolean scaling; // a scale gesture is in progress (see onScaleBegin and onScaleEnd)
+    long eventTime; // the time of the touch event being handled (ns, see EventClock)
+    long dispatchDelay; // the time from the event to its handling (ns)
+
+    // the touch samples, from the UI thread to the sd4 writer thread (see recordSamples and TouchSampleWriter)
+    final TouchSampleRing samples = new TouchSampleRing(TouchSampleRing.DEFAULT_CAPACITY);
+    TouchSampleWriter sampleWriter;
+    final int MARK_NONE = 0, MARK_START = 1, MARK_END = 2; // the marker of a sample
+    final String[] MARKERS = {null, "Start", "End"}; // ... as written in the sd4 file
+    // the latency histograms of the touch handlers, dumped per sequence (see InputLatency)
+    final InputLatency latency = new InputLatency();
+    final InputLatency.Probe touchLatency = latency.add("onTouchEvent");
+    final InputLatency.Probe scaleLatency = latency.add("ScaleListener");
     // start first scale of the trial
     long trialStartTime,tapStartTime;
     long currentStartTime;
     float startSpan;
 
     float[] xP,yP;
+    int[] idP; // the pointer ids of xP and yP
     // -----
     /**
      * Called when the activity is first created.
@@ -298,7 +356,9 @@ public class ZoomActivity extends Activity
         sessionCode = b.getString("sessionCode");
         groupCode = b.getString("groupCode");
         conditionCode = b.getInt("conditionCode") + 1;
+        leader = new RowLeader(participantCode, sessionCode, null, groupCode, conditionCode);
         moveMode = b.getString("mode");
+        studySeed = b.getLong("studySeed", TrialOrder.DEFAULT_STUDY_SEED);
         // + 2 practice blocks per finger
         // TODO:
         numberOfSessions = b.getInt("numberOfTrials") + 1;
@@ -333,6 +393,7 @@ public class ZoomActivity extends Activity
         scaleValue = 50f;
         xP = new float[2];
         yP = new float[2];
+        idP = new int[2];
 
         trialValues = new int[numberOfTrials];
         scaleCount = 0;
@@ -340,22 +401,42 @@ public class ZoomActivity extends Activity
         blockIdx = 0;
         combinationIdx = 0;
 
-        initializeTrialOrders();
-
         configureFingerCombination();
         zoomPanel.combinationString = zoomPanel.combination[combinationOrders[0]];
 
         changeFingerSound = MediaPlayer.create(this, R.raw.changefinger);
         completeSound = MediaPlayer.create(this, R.raw.complete);
+
+        sampleWriter = new TouchSampleWriter();
+        sampleWriter.start();
+
+        state = ByteBuffer.allocate(64 + 4 * numberOfTrials);
+        if (resumeState != null)
+            resumeSession(resumeState);
+    }
+
+    @Override
+    protected void onDestroy() {
+        // stop the sample writer thread if the block was not finished (see doEndBlock)
+        if (sampleWriter != null)
+            sampleWriter.stopping = true;
+        // and the timed tasks still running (the scheduler is shared by the activities)
+        if (restTask != null)
+            restTask.cancel();
+        if (freezeTask != null)
+            freezeTask.cancel();
+        super.onDestroy();
     }
 
+    // counts down the rest time (s) on the display, on the UI thread
     void restTimerCountdown(int time) {
         zoomPanel.freezing = true;
-        t = new Timer();
-        t.scheduleAtFixedRate(new RestTask(time),  1000,  1000);
+        if (restTask != null)
+            restTask.cancel();
+        restTask = ExperimentScheduler.get().scheduleAtFixedRate(new RestTask(time), 1000, 1000);
     }
 
-    class RestTask extends  TimerTask {
+    class RestTask implements Runnable {
         int cur;
         RestTask(int t) {
             zoomPanel.isResting = true;
@@ -373,37 +454,40 @@ public class ZoomActivity extends Activity
                 zoomPanel.freezing = false;
                 zoomPanel.isResting = false;
                 showCombination();
-                t.cancel();
+                restTask.cancel();
             }
         }
     }
 
+    // pauses before a trial (or the end of the sequence), on the UI thread
     void freezeScreen() {
         zoomPanel.freezing = true;
         zoomPanel.showFingerCombination = false;
-        t = new Timer();
+        if (freezeTask != null)
+            freezeTask.cancel();
+        ExperimentScheduler scheduler = ExperimentScheduler.get();
         if (trialIdx == 0) {
-            t.schedule(new FirstTrialTask(), waitSec0 * 1000);
+            freezeTask = scheduler.schedule(new FirstTrialTask(), waitSec0 * 1000);
         } else if (trialIdx == numberOfTrials) {
-            t.schedule(new LastTrialTask(), waitSec0 * 1000);
+            freezeTask = scheduler.schedule(new LastTrialTask(), waitSec0 * 1000);
         } else {
-            t.scheduleAtFixedRate(new UnfreezeTask(), waitSec0 * 1000, (waitSec0 + waitSec1) * 1000);
+            freezeTask = scheduler.scheduleAtFixedRate(new UnfreezeTask(), waitSec0 * 1000,
+                    (waitSec0 + waitSec1) * 1000);
         }
     }
 
-    class LastTrialTask extends  TimerTask {
+    class LastTrialTask implements Runnable {
         LastTrialTask() {
 
         }
         public void run() {
             zoomPanel.freezing = false;
-            t.cancel();
             zoomPanel.valueString[0] = "" + Math.round(scaleValue);
             doEndSequence();
         }
     }
 
-    class FirstTrialTask extends  TimerTask {
+    class FirstTrialTask implements Runnable {
         FirstTrialTask() {
             zoomPanel.showNextValue = true;
             zoomPanel.valueString[0] = "" + Math.round(scaleValue);
@@ -413,12 +497,11 @@ public class ZoomActivity extends Activity
         public void run() {
             zoomPanel.showNextValue = false;
             zoomPanel.freezing = false;
-            t.cancel();
             //Log.e(MYDEBUG, "FirstTrialTask timeout");
         }
     }
 
-    class UnfreezeTask extends TimerTask {
+    class UnfreezeTask implements Runnable {
         boolean showNext;
         UnfreezeTask() {
             showNext = false;
@@ -434,7 +517,7 @@ public class ZoomActivity extends Activity
             } else {
                 zoomPanel.showNextValue = false;
                 zoomPanel.freezing = false;
-                t.cancel();
+                freezeTask.cancel();
                 //Log.e(MYDEBUG, "Second timeout");
             }
         }
@@ -470,129 +553,262 @@ public class ZoomActivity extends Activity
         }
     }
 
-    void initializeTrialOrders() {
-        File dataDirectory = new File(Environment.getExternalStorageDirectory() +
-                DATA_DIRECTORY);
-        if (!dataDirectory.exists() && !dataDirectory.mkdirs())
-        {
-            Log.e(MYDEBUG, "ERROR --> FAILED TO CREATE DIRECTORY: " + DATA_DIRECTORY);
-            super.onDestroy(); // cleanup
-            this.finish(); // terminate
+    /*
+     * The target values of the trials in the block: half zoom in and half zoom out, in a random
+     * order generated from the study seed, the session code, and the block index (see
+     * TrialOrder), so it is the same on every device and run.
+     */
+    void setTrialValues() {
+        for (int i = 0; i < numberOfTrials; ++i)
+            trialValues[i] = i < numberOfTrials / 2 ? inValue : outValue;
+        TrialOrder.shuffle(trialValues, TrialOrder.key(studySeed, sessionCode, blockIdx));
+    }
+
+    /*
+     * Queues a sample of the first two pointers (a row of the sd4 file) for each sample time in the
+     * event, including the samples batched in its history, so the pinch is recorded at the rate
+     * the digitizer reports it. The last sample is left out of the event that ends the gesture (a
+     * pointer going up); it is in the "End" row (see onScaleEnd). The samples are encoded and
+     * written by the sample writer thread; if the ring is full they are dropped and counted.
+     */
+    void recordSamples(MotionEvent me) {
+        if (me.getPointerCount() < 2)
+            return;
+        int action = me.getActionMasked();
+        boolean ending = action == MotionEvent.ACTION_POINTER_UP || action == MotionEvent.ACTION_UP
+                || action == MotionEvent.ACTION_CANCEL;
+        int history = me.getHistorySize();
+        int n = ending ? history : history + 1;
+        if (n == 0 || !samples.claim(2 * n))
+            return;
+        samples.setContext(trialIdx, blockIdx, scaleCount, combinationOrders[combinationIdx]);
+        int a = me.getPointerId(0), b = me.getPointerId(1);
+        long handled = eventTime + dispatchDelay;
+        for (int h = 0; h < history; ++h) {
+            long t = EventClock.historicalNanos(me, h);
+            float delay = (handled - t) / (float)EventClock.NANOS_PER_MS;
+            samples.put(a, me.getHistoricalX(0, h), me.getHistoricalY(0, h), t, delay, MARK_NONE);
+            samples.put(b, me.getHistoricalX(1, h), me.getHistoricalY(1, h), t, delay, MARK_NONE);
         }
-        f3 = new File(dataDirectory, "Zoom-randomTargetOrders-" + numberOfSessions + "-" + numberOfTrials + ".sd3");
-        trialOrders = new String[numberOfSessions];
-        // read file
-        if (f3.exists()) {
-            try {
-                BufferedReader br = new BufferedReader(new FileReader(f3));
-                String line;
-                for (int i = 0; i < numberOfSessions; ++i) {
-                    line = br.readLine();
-                    trialOrders[i] = line;
-                }
-                br.close();
-            }
-            catch (IOException e) {
+        if (!ending) {
+            float delay = dispatchDelay / (float)EventClock.NANOS_PER_MS;
+            samples.put(a, me.getX(0), me.getY(0), eventTime, delay, MARK_NONE);
+            samples.put(b, me.getX(1), me.getY(1), eventTime, delay, MARK_NONE);
+        }
+        samples.publish();
+    }
 
-            }
+    /*
+     * Queues the first or last row of a scale gesture (marker is MARK_START or MARK_END), at the
+     * last pointer positions, at the time of the event being handled (see EventClock).
+     */
+    void recordTouch(int marker) {
+        if (!samples.claim(2))
             return;
+        samples.setContext(trialIdx, blockIdx, scaleCount, combinationOrders[combinationIdx]);
+        float delay = dispatchDelay / (float)EventClock.NANOS_PER_MS;
+        samples.put(idP[0], xP[0], yP[0], eventTime, delay, marker);
+        samples.put(idP[1], xP[1], yP[1], eventTime, delay, marker);
+        samples.publish();
+    }
+
+    /*
+     * Encodes the samples queued by the UI thread (see recordSamples and recordTouch) into sd4
+     * rows, journals them (in touchJournal), and passes them to the data writer when a flush is
+     * requested (at the end of each sequence). The thread owns sb4 (or log4): the UI thread never
+     * touches them once the thread is started. When there are no samples, it checks again every
+     * POLL_NANOS, so the UI thread never has to wake it, or wait for it.
+     *
+     * The UI thread's checkpoints do not commit the sd4 rows. Each checkpoint holds the number of
+     * samples queued by then (see checkpoint) and asks this thread to commit their rows
+     * (requestCommit): once it has journaled them, it adds a checkpoint to touchJournal with that
+     * number (see commitSamples). The rows are encoded up to the sample of a commit or flush
+     * request and no further, so a commit or flush falls between the rows of two samples. If the
+     * app is killed before the thread catches up, the sd4 file is restored up to its last commit
+     * and the samples missing are counted as dropped (see fileInitialize).
+     */
+    class TouchSampleWriter extends Thread {
+        final long POLL_NANOS = 16000000L; // about a frame
+        // the leader is encoded by this thread, so it has its own
+        final RowLeader leader4 = new RowLeader(participantCode, sessionCode, null, groupCode, conditionCode);
+        volatile long commitAt; // commit the rows of the samples before this one (see requestCommit)
+        volatile long flushAt; // write the rows of the samples before this one (see requestFlush)
+        volatile boolean stopping;
+        long committed, flushed;
+
+        TouchSampleWriter() {
+            super("TouchSampleWriter");
         }
-        // first randomize
-        // make a working directory (if necessary) to store data files
-        try {
-            sd3 = new BufferedWriter(new FileWriter(f3));
-            sb3 = new StringBuilder();
 
-            for (int i = 0; i < numberOfSessions; ++i) {
-                int[] values = new int[numberOfTrials];
-                for (int j = 0; j < numberOfTrials / 2; ++j) {
-                    values[j] = inValue;
-                }
-                for (int j = numberOfTrials / 2; j < numberOfTrials; ++j) {
-                    values[j] = outValue;
-                }
-                // randomize data trials
-                Random r = new Random();
-                for (int j = 0; j < numberOfTrials; ++j)
-                {
-                    int idx = r.nextInt(numberOfTrials);
-                    int temp = values[idx];
-                    values[idx] = values[j];
-                    values[j] = temp;
+        // called by the UI thread, after a checkpoint with the samples before sample (it does not wait)
+        void requestCommit(long sample) {
+            commitAt = sample;
+        }
+
+        // called by the UI thread, after the last samples of a sequence are queued (and its checkpoint)
+        void requestFlush() {
+            flushAt = samples.getPublished();
+        }
+
+        // called by the UI thread: writes the samples still queued, and waits until they are passed on
+        void finish() {
+            stopping = true;
+            try {
+                join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            for (; ; ) {
+                boolean stop = stopping; // read before the ring, so the last samples are seen
+                int n = samples.available();
+                // read after the ring: the samples seen after a request are then seen with it
+                long c = commitAt, f = flushAt;
+                long released = samples.getReleased();
+                if (c > committed) // up to the request, so the commit or flush has the rows before it only
+                    n = (int)Math.max(0, Math.min(n, c - released));
+                if (f > flushed)
+                    n = (int)Math.max(0, Math.min(n, f - released));
+                if (n > 0) {
+                    encode(n);
+                    samples.release(n);
+                    continue;
                 }
-                String s = "";
-                for (int j = 0; j < numberOfTrials; ++j) {
-                    s += (String.valueOf(values[j]));
-                    if (j == numberOfTrials-1) {
-                        trialOrders[i] = s;
-                        s+= "\n";
+                boolean flush = f > flushed && f <= released;
+                if (c > committed && c <= released || flush) {
+                    commitSamples(sampleBase + released);
+                    committed = released;
+                    if (flush) {
+                        flush();
+                        discardTouchJournal();
+                        flushed = f;
                     }
-                    else
-                        s+= ",";
+                    continue;
+                }
+                if (stop) {
+                    flush(); // the rows past the last commit, too (they are not committed)
+                    return;
                 }
-                sb3.append(s);
+                LockSupport.parkNanos(POLL_NANOS);
             }
-            sd3.write(sb3.toString(), 0, sb3.length());
-            sd3.flush();
-            sb3.delete(0, sb3.length());
-        } catch (IOException e) {
-            Log.e(MYDEBUG, "ERROR OPENING DATA FILES! e=" + e.toString());
-            super.onDestroy();
-            this.finish();
         }
-    }
 
-    void setTrialValues() {
+        private void encode(int n) {
+            for (int i = 0; i + 1 < n; i += 2) {
+                int mark = BINARY_DATA ? log4.size() : sb4.length();
+                DataRecords.appendZoomTouch(BINARY_DATA ? log4 : csv4.to(sb4), leader4,
+                        zoomPanel.combination[samples.getCombination(i)], samples.getTrial(i),
+                        samples.getBlock(i), samples.getGesture(i), samples.getX(i), samples.getY(i),
+                        samples.getX(i + 1), samples.getY(i + 1), EventClock.toWallClock(samples.getTime(i)),
+                        samples.getDelay(i), MARKERS[samples.getMarker(i)]);
+                journalRecord(SD4, mark);
+            }
+        }
 
-        String[] s = trialOrders[blockIdx].split(",");
-        for (int i = 0; i < numberOfTrials; ++i)
-            trialValues[i] = Integer.parseInt(s[i]);
+        /*
+         * Drops the touchJournal entries before its last commit, once the data writer has written
+         * the rows flushed with it (see SessionJournal.discard).
+         */
+        private void discardTouchJournal() {
+            final long position = touchJournal.getCheckpointPosition();
+            try {
+                dataWriter.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        long[] lengths = new long[SD4 + 1];
+                        long[] trailers = new long[SD4 + 1];
+                        lengths[SD4] = f4.length();
+                        if (CompressedDataFiles.isCompressed(f4))
+                            trailers[SD4] = CompressedDataFiles.getTrailer(out4);
+                        try {
+                            touchJournal.discard(position, lengths, trailers);
+                        } catch (IOException e) {
+                            Log.d("MYDEBUG", "ERROR WRITING TO JOURNAL: e = " + e);
+                        }
+                    }
+                });
+            } catch (IOException e) {
+                Log.d("MYDEBUG", "ERROR WRITING TO DATA FILES: e = " + e);
+            }
+        }
+
+        private void flush() {
+            try {
+                if (BINARY_DATA) {
+                    dataWriter.submit(bin4, log4.getBuffer(), log4.size());
+                    log4.clear();
+                } else {
+                    dataWriter.submit(sd4, sb4);
+                    sb4.setLength(0);
+                }
+            } catch (IOException e) {
+                Log.d("MYDEBUG", "ERROR WRITING TO DATA FILES: e = " + e);
+            }
+        }
     }
 
-    void recordDataTimer() {
-        t = new Timer();
-        t.schedule(new RecordDataTask(), RECORD_DATA_TIME_MS, RECORD_DATA_TIME_MS);
+    // add the record just added to the sd1, sd2, or sd4 data (from mark) to the journal (sd4: touchJournal)
+    void journalRecord(int stream, int mark) {
+        SessionJournal j = stream == SD4 ? touchJournal : journal;
+        if (BINARY_DATA) {
+            BinaryLogWriter log = stream == SD1 ? log1 : stream == SD2 ? log2 : log4;
+            j.append(stream, log.getBuffer(), mark, log.size() - mark);
+        } else {
+            StringBuilder sb = stream == SD1 ? sb1 : stream == SD2 ? sb2 : sb4;
+            j.append(stream, sb, mark, sb.length());
+        }
     }
 
-    class RecordDataTask extends TimerTask {
-        RecordDataTask() {needRecordData = false;}
-        public void  run() {
-            Long tsLong = System.currentTimeMillis();
-            String ts = tsLong.toString();
-            sb4.append(String.format("%s,%s,%s,%d," +
-                            "%s,%d,%d,%d," +
-                            "%s,%s,%s,%s,%s\n",
-                    participantCode, sessionCode, groupCode, conditionCode,
-                    zoomPanel.combinationString.replaceAll("\\s+", ""),
-                    trialIdx, blockIdx, scaleCount,
-                    xP[0], yP[0], xP[1], yP[1],
-                    ts));
+    /*
+     * Commits the sd4 rows journaled so far, which are those of the samples before sample (see
+     * checkpoint), with a checkpoint in touchJournal. Called by the sample writer (and by
+     * fileInitialize, before it starts).
+     */
+    void commitSamples(long sample) {
+        touchState.clear();
+        touchState.putLong(sample);
+        try {
+            touchJournal.checkpoint(touchState);
+        } catch (IOException e) {
+            Log.d("MYDEBUG", "ERROR WRITING TO JOURNAL: e = " + e);
         }
     }
 
     public boolean onTouchEvent(MotionEvent me) {
+        eventTime = EventClock.nanos(me);
+        dispatchDelay = touchLatency.begin(eventTime);
+        handleTouch(me);
+        touchLatency.end();
+        return true;
+    }
+
+    // handles a touch event (onTouchEvent records the latency of the event and of this; see InputLatency)
+    void handleTouch(MotionEvent me) {
         float x = me.getX();
         float y = me.getY();
 
         if (zoomPanel.isVisibilityTest) {
             zoomPanel.isVisibilityTest = false;
-            return true;
+            return;
         }
 
         if (zoomPanel.waitStartCircleSelect && me.getAction() == MotionEvent.ACTION_UP)
         {
             if (!zoomPanel.startCircle.inTarget(x, y))
-                return true;
+                return;
             else
                 doStartCircleSelected();
-            return true;
+            return;
         }
 
         if (zoomPanel.waitStartCircleSelect)
-            return true;
+            return;
 
         if (firstTap && me.getAction() == MotionEvent.ACTION_DOWN) {
-            tapStartTime = System.nanoTime();
+            tapStartTime = eventTime;
             firstTap = false;
         }
 
@@ -603,25 +819,14 @@ public class ZoomActivity extends Activity
             xP[1] = me.getX(1);
             yP[0] = me.getY(0);
             yP[1] = me.getY(1);
-            //if (needRecordData) {
-                //Log.d("Scale Pointers","record data");
-                //Log.d("Scale Pointers", String.format("%d: %.2f, %.2f", i, me.getX(i), me.getY(i)));
-//                Long tsLong = System.currentTimeMillis();
-//                String ts = tsLong.toString();
-//                sb4.append(String.format("%s,%s,%s,%d," +
-//                                "%s,%d,%d,%d," +
-//                                "%s,%s,%s,%s,%s\n",
-//                        participantCode, sessionCode, groupCode, conditionCode,
-//                        zoomPanel.combinationString.replaceAll("\\s+", ""),
-//                        trialIdx, blockIdx, scaleCount,
-//                        xP[0], yP[0], xP[1], yP[1],
-//                        ts));
-                //recordDataTimer();
-            //}
+            idP[0] = me.getPointerId(0);
+            idP[1] = me.getPointerId(1);
         }
 
+        // the samples of a gesture in progress (the "Start" and "End" rows are added by ScaleListener)
+        if (scaling)
+            recordSamples(me);
         mScaleGestureDetector.onTouchEvent(me);
-        return true;
     }
 
     void doStartCircleSelected() {
@@ -641,31 +846,25 @@ public class ZoomActivity extends Activity
     private class ScaleListener extends ScaleGestureDetector.SimpleOnScaleGestureListener {
         @Override
         public boolean onScaleBegin(ScaleGestureDetector detector) {
+            scaleLatency.begin(detector.getEventTime() * EventClock.NANOS_PER_MS);
             if (!zoomPanel.freezing) {
                 //Log.d("ScaleStart", "Start of Scale:" + String.format ("%.2f", detector.getCurrentSpan()));
                 if (firstScale) {
-                    trialStartTime = System.nanoTime();
+                    trialStartTime = eventTime;
                     firstScale = false;
                 }
                 startSpan = detector.getCurrentSpan();
-                currentStartTime = System.nanoTime();
-                Long tsLong = System.currentTimeMillis();
-                String ts = tsLong.toString();
-                sb4.append(String.format("%s,%s,%s,%d," +
-                                "%s,%d,%d,%d," +
-                                "%s,%s,%s,%s,%s,Start\n",
-                        participantCode, sessionCode, groupCode, conditionCode,
-                        zoomPanel.combinationString.replaceAll("\\s+", ""),
-                        trialIdx, blockIdx, scaleCount,
-                        xP[0], yP[0], xP[1], yP[1],
-                        ts));
-                recordDataTimer();
+                currentStartTime = eventTime;
+                recordTouch(MARK_START);
+                scaling = true;
             }
+            scaleLatency.end();
             return !zoomPanel.freezing;
         }
 
         @Override
         public boolean onScale(ScaleGestureDetector scaleGestureDetector){
+            scaleLatency.begin(scaleGestureDetector.getEventTime() * EventClock.NANOS_PER_MS);
             // check in target
             float currentSpan = scaleGestureDetector.getCurrentSpan();
             float previousSpan = scaleGestureDetector.getPreviousSpan();
@@ -673,47 +872,33 @@ public class ZoomActivity extends Activity
             // show
             zoomPanel.valueString[0] = "" + Math.round(scaleValue);;
             //Log.d("Scaling",  String.format ("%.2f", currentSpan));
+            scaleLatency.end();
             return true;
         }
 
         @Override
         public void onScaleEnd(ScaleGestureDetector detector) {
-            if (t != null) {
-                t.cancel();
-            }
-            Long tsLong = System.currentTimeMillis();
-            String ts = tsLong.toString();
-            sb4.append(String.format("%s,%s,%s,%d," +
-                            "%s,%d,%d,%d," +
-                            "%s,%s,%s,%s,%s,End\n",
-                    participantCode, sessionCode, groupCode, conditionCode,
-                    zoomPanel.combinationString.replaceAll("\\s+", ""),
-                    trialIdx, blockIdx, scaleCount,
-                    xP[0], yP[0], xP[1], yP[1],
-                    ts));
+            scaleLatency.begin(detector.getEventTime() * EventClock.NANOS_PER_MS);
+            scaling = false;
+            recordTouch(MARK_END);
             scaleCount++;
             endOfScale(detector.getCurrentSpan()-startSpan);
             //Log.d("ScaleEnd", "End of Scale"+String.format ("%.2f", detector.getCurrentSpan()));
             if (trialValues[trialIdx] == Math.round(scaleValue)) {
                 endOfTrial();
             }
+            scaleLatency.end();
         }
     }
 
     void endOfScale(float dis) {
-        long now = System.nanoTime();
+        long now = eventTime;
         // record if not practise
-        String scaleTime = String.format("%.1f", (now - currentStartTime) / 1000000.0f);
-        String span = String.format ("%.2f", dis);
-        Long tsLong = System.currentTimeMillis();
-        String ts = tsLong.toString();
-        sb2.append(String.format("%s,%s,%s,%s," +
-                        "%s,%d,%d," +
-                        "%d,%s,%s,%s\n",
-                participantCode, sessionCode, groupCode, conditionCode,
-                zoomPanel.combinationString.replaceAll("\\s+", ""),
-                trialIdx, blockIdx,
-                scaleCount, scaleTime, span, ts));
+        float scaleTime = (now - currentStartTime) / 1000000.0f;
+        int mark = BINARY_DATA ? log2.size() : sb2.length();
+        DataRecords.appendZoomScale(BINARY_DATA ? log2 : csv2.to(sb2), leader, zoomPanel.combinationString,
+                trialIdx, blockIdx, scaleCount, scaleTime, dis, EventClock.toWallClock(now));
+        journalRecord(SD2, mark);
     }
 
     void fileInitialize() {
@@ -733,29 +918,118 @@ public class ZoomActivity extends Activity
         String baseFilename = String.format("%s-%s-%s-%s-%d-%s", APP, participantCode,
                     sessionCode, groupCode, conditionCode, ts);
 
-        f1 = new File(dataDirectory, baseFilename + "-trial.sd1");
-        f2 = new File(dataDirectory, baseFilename + "-scale.sd2");
-        f4 = new File(dataDirectory, baseFilename + "-touch.sd4");
+        String b = BINARY_DATA ? "b" : "";
+        f1 = new File(dataDirectory, baseFilename + "-trial.sd1" + b);
+        f2 = new File(dataDirectory, baseFilename + "-scale.sd2" + b);
+        f4 = new File(dataDirectory, baseFilename + "-touch.sd4" + b
+                + (COMPRESS_TOUCH_DATA ? CompressedDataFiles.SUFFIX : ""));
 
         try
         {
-            sd1 = new BufferedWriter(new FileWriter(f1));
+            /*
+             * The journals (see SessionJournal) hold the data records and the state of the
+             * session: the sd4 rows are in their own journal, committed by the sample writer (see
+             * TouchSampleWriter). If the app was killed during this session (same participant,
+             * session, group, and condition), the data files are restored (see restoreFile) and
+             * the session resumes where it stopped (see resumeSession).
+             */
+            String journalName = String.format("%s-%s-%s-%s-%d", APP, participantCode, sessionCode,
+                    groupCode, conditionCode);
+            journal = new SessionJournal(new File(dataDirectory, journalName + ".journal"));
+            touchJournal = new SessionJournal(new File(dataDirectory, journalName + "-touch.journal"));
+            ByteBuffer saved = journal.getCheckpoint();
+            ByteBuffer touchSaved = touchJournal.getCheckpoint();
+            if (saved != null && journal.getName(SD1) != null && saved.getInt(0) == numberOfSessions
+                    && saved.getInt(4) == numberOfTrials && saved.getInt(8) == (BINARY_DATA ? 1 : 0)
+                    && touchSaved != null && touchJournal.getName(SD4) != null)
+            {
+                f1 = new File(journal.getName(SD1));
+                f2 = new File(journal.getName(SD2));
+                f4 = new File(touchJournal.getName(SD4));
+                resumeState = saved;
+
+                // the samples before the checkpoint, and those with their rows committed
+                long sample = saved.getLong(12);
+                long written = touchSaved.getLong(0);
+                if (written < sample) {
+                    lostSamples = sample - written;
+                    Log.w(MYDEBUG, "touch samples lost (the sd4 writer fell behind): " + lostSamples);
+                }
+                sampleBase = Math.max(sample, written);
+            } else
+            {
+                journal.reset();
+                journal.setName(SD1, f1.getAbsolutePath());
+                journal.setName(SD2, f2.getAbsolutePath());
+                touchJournal.reset();
+                touchJournal.setName(SD4, f4.getAbsolutePath());
+            }
+            boolean resume = resumeState != null;
 
-            // output header in sd1 file
-            sd1.write(SD1_HEADER, 0, SD1_HEADER.length());
-            sd1.flush();
+            if (BINARY_DATA)
+            {
+                // the schema (with the CSV header) is written at the start of each file
+                log1 = new BinaryLogWriter(BinaryLogSchema.ZOOM_SD1);
+                log2 = new BinaryLogWriter(BinaryLogSchema.ZOOM_SD2);
+                log4 = new BinaryLogWriter(BinaryLogSchema.ZOOM_SD4);
+                if (resume)
+                {
+                    restoreFile(journal, SD1, log1);
+                    restoreFile(journal, SD2, log2);
+                    restoreFile(touchJournal, SD4, log4);
+                } else
+                {
+                    journalRecord(SD1, 0);
+                    journalRecord(SD2, 0);
+                    journalRecord(SD4, 0);
+                }
+                bin1 = new BufferedOutputStream(new FileOutputStream(f1, resume));
+                bin2 = new BufferedOutputStream(new FileOutputStream(f2, resume));
+                out4 = openDataFile(f4, resume);
+                bin4 = new BufferedOutputStream(out4);
+                dataWriter = new AsyncDataWriter(AsyncDataWriter.DEFAULT_CAPACITY, bin1, bin2, bin4,
+                        latency.open(InputLatency.fileFor(f1, "-trial.sd1b")));
+            } else if (resume)
+            {
+                restoreFile(journal, SD1, null);
+                restoreFile(journal, SD2, null);
+                restoreFile(touchJournal, SD4, null);
+                sd1 = new BufferedWriter(new FileWriter(f1, true));
+                sd2 = new BufferedWriter(new FileWriter(f2, true));
+                out4 = openDataFile(f4, true);
+                sd4 = new BufferedWriter(new OutputStreamWriter(out4));
+                dataWriter = new AsyncDataWriter(AsyncDataWriter.DEFAULT_CAPACITY, sd1, sd2, sd4,
+                        latency.open(InputLatency.fileFor(f1, "-trial.sd1")));
+            } else
+            {
+                journal.append(SD1, SD1_HEADER, 0, SD1_HEADER.length());
+                journal.append(SD2, SD2_HEADER, 0, SD2_HEADER.length());
+                touchJournal.append(SD4, SD4_HEADER, 0, SD4_HEADER.length());
 
-            sd2 = new BufferedWriter(new FileWriter(f2));
+                sd1 = new BufferedWriter(new FileWriter(f1));
 
-            // output header in sd2 file
-            sd2.write(SD2_HEADER, 0, SD2_HEADER.length());
-            sd2.flush();
+                // output header in sd1 file
+                sd1.write(SD1_HEADER, 0, SD1_HEADER.length());
+                sd1.flush();
 
-            sd4 = new BufferedWriter(new FileWriter(f4));
+                sd2 = new BufferedWriter(new FileWriter(f2));
 
-            // output header in sd2 file
-            sd4.write(SD4_HEADER, 0, SD4_HEADER.length());
-            sd4.flush();
+                // output header in sd2 file
+                sd2.write(SD2_HEADER, 0, SD2_HEADER.length());
+                sd2.flush();
+
+                out4 = openDataFile(f4, false);
+                sd4 = new BufferedWriter(new OutputStreamWriter(out4));
+
+                // output header in sd2 file
+                sd4.write(SD4_HEADER, 0, SD4_HEADER.length());
+                sd4.flush();
+
+                dataWriter = new AsyncDataWriter(AsyncDataWriter.DEFAULT_CAPACITY, sd1, sd2, sd4,
+                        latency.open(InputLatency.fileFor(f1, "-trial.sd1")));
+            }
+            // the sd4 file (with its header) holds the rows of the samples before sampleBase
+            commitSamples(sampleBase);
 
         } catch (IOException e)
         {
@@ -771,20 +1045,134 @@ public class ZoomActivity extends Activity
         // end file initialization
     }
 
+    // open a data file for writing (compressed, if its name ends with .gz)
+    OutputStream openDataFile(File f, boolean append) throws IOException {
+        if (CompressedDataFiles.isCompressed(f))
+            return CompressedDataFiles.create(f, append);
+        return new FileOutputStream(f, append);
+    }
+
+    /*
+     * Restores a data file as it was at the last checkpoint of journal j (see
+     * SessionJournal.restore). For a binary file, the rows of the file are also added to log (the
+     * buffer is cleared as it goes), so the writer carries on from the same state (dictionaries,
+     * key) as when the file was written.
+     */
+    void restoreFile(SessionJournal j, int stream, BinaryLogWriter log) throws IOException {
+        j.restore(stream);
+        if (log == null)
+            return;
+        BinaryLogReader r = new BinaryLogReader(CompressedDataFiles.decompress(
+                new FileInputStream(j.getName(stream))));
+        try {
+            while (r.next()) {
+                log.addRow(r);
+                if (log.size() > RESTORE_BUFFER_SIZE)
+                    log.clear();
+            }
+        } finally {
+            r.close();
+        }
+        log.clear();
+    }
+
+    /*
+     * Saves the state of the session in the journal. Called at the end of each trial and each
+     * sequence. This commits the sd1 and sd2 records journaled so far. The state holds the number
+     * of samples queued so far (since the session started), and the sample writer is asked to
+     * commit their sd4 rows (see TouchSampleWriter); this does not wait for it. It costs a copy to
+     * memory (the journal is a memory-mapped file); there is no fsync.
+     */
+    void checkpoint() {
+        long published = samples.getPublished();
+        state.clear();
+        state.putInt(numberOfSessions).putInt(numberOfTrials).putInt(BINARY_DATA ? 1 : 0);
+        state.putLong(sampleBase + published);
+        state.putInt(combinationIdx).putInt(blockIdx).putInt(trialIdx);
+        state.putInt(zoomPanel.waitStartCircleSelect ? 0 : 1); // in a sequence?
+        for (int i = 0; i < numberOfTrials; ++i)
+            state.putInt(trialValues[i]);
+        try {
+            journal.checkpoint(state);
+        } catch (IOException e) {
+            Log.d("MYDEBUG", "ERROR WRITING TO JOURNAL: e = " + e);
+            return;
+        }
+        sampleWriter.requestCommit(published); // after the checkpoint, so a commit is never ahead of it
+    }
+
+    /*
+     * Drops the journal entries before the checkpoint at the end of a sequence, once the data
+     * writer has written the sequence's sd1 and sd2 rows: the journal keeps the lengths of the
+     * data files instead (see SessionJournal.discard), so it holds one sequence at most. (The
+     * sample writer does the same for touchJournal when it flushes.)
+     */
+    void discardJournal() {
+        final long position = journal.getCheckpointPosition();
+        try {
+            dataWriter.submit(new Runnable() {
+                @Override
+                public void run() {
+                    long[] lengths = new long[SD2 + 1];
+                    lengths[SD1] = f1.length();
+                    lengths[SD2] = f2.length();
+                    try {
+                        journal.discard(position, lengths, null);
+                    } catch (IOException e) {
+                        Log.d("MYDEBUG", "ERROR WRITING TO JOURNAL: e = " + e);
+                    }
+                }
+            });
+        } catch (IOException e) {
+            Log.d("MYDEBUG", "ERROR WRITING TO DATA FILES: e = " + e);
+        }
+    }
+
+    /*
+     * Restores the state saved by checkpoint. If the app was killed during a sequence, the
+     * sequence continues with the trial that was not finished (its sd2 and sd4 rows, if any, were
+     * not committed and are not in the restored files). Otherwise, the start circle is shown, as
+     * usual.
+     */
+    void resumeSession(ByteBuffer s) {
+        s.position(20); // numberOfSessions, numberOfTrials, BINARY_DATA, and samples (see fileInitialize)
+        combinationIdx = s.getInt();
+        blockIdx = s.getInt();
+        trialIdx = s.getInt();
+        boolean inSequence = s.getInt() == 1;
+        for (int i = 0; i < numberOfTrials; ++i)
+            trialValues[i] = s.getInt();
+
+        if (combinationIdx < numberOfCombinations)
+            showCombination();
+        else {
+            zoomPanel.done = true;
+            zoomPanel.combinationString = "End of Zoom Experiment";
+        }
+        if (!inSequence)
+            return;
+
+        zoomPanel.waitStartCircleSelect = false;
+        zoomPanel.showFingerCombination = false;
+        if (trialIdx == numberOfTrials)
+            doEndSequence(); // the last trial was done
+        else
+            advanceTask();
+    }
+
     void endOfTrial() {
         // record data
-        long now = System.nanoTime();
+        long now = eventTime;
         // String trialTime = String.format("%.1f", (now - trialStartTime) / 1000000.0f);
-        String trialTime = String.format("%.1f", (now - tapStartTime) / 1000000.0f);
+        float trialTime = (now - tapStartTime) / 1000000.0f;
         String taskType = (trialValues[trialIdx] == inValue) ? "In" : "Out";
-        sb1.append(String.format("%s,%s,%s,%d," +
-                        "%s,%d,%d,%s,%d,%s\n",
-                participantCode, sessionCode, groupCode, conditionCode,
-                zoomPanel.combinationString.replaceAll("\\s+", ""),
-                trialIdx, blockIdx, taskType,
-                scaleCount, trialTime));
+        int mark = BINARY_DATA ? log1.size() : sb1.length();
+        DataRecords.appendZoomTrial(BINARY_DATA ? log1 : csv1.to(sb1), leader, zoomPanel.combinationString,
+                trialIdx, blockIdx, taskType, scaleCount, trialTime);
+        journalRecord(SD1, mark);
 
         trialIdx++;
+        checkpoint(); // the trial is done
         if (trialIdx == numberOfTrials) {
             freezeScreen();
         }
@@ -806,29 +1194,39 @@ public class ZoomActivity extends Activity
         // write data to files at end of each sequence
         try
             {
-                sd1.write(sb1.toString(), 0, sb1.length());
-                sd1.flush();
-                sd2.write(sb2.toString(), 0, sb2.length());
-                sd2.flush();
-                sd4.write(sb4.toString(), 0, sb4.length());
-                sd4.flush();
+                // written and flushed on the writer thread
+                if (BINARY_DATA) {
+                    dataWriter.submit(bin1, log1.getBuffer(), log1.size());
+                    dataWriter.submit(bin2, log2.getBuffer(), log2.size());
+                    log1.clear();
+                    log2.clear();
+                } else {
+                    dataWriter.submit(sd1, sb1);
+                    dataWriter.submit(sd2, sb2);
+                }
+                latency.dump(dataWriter, zoomPanel.combinationString, blockIdx);
             } catch (IOException e)
             {
                 Log.d("MYDEBUG", "ERROR WRITING TO DATA FILES: e = " + e);
             }
             sb1.delete(0, sb1.length());
             sb2.delete(0, sb2.length());
-            sb4.delete(0, sb4.length());
 
             sb1 = new StringBuilder();
             sb2 = new StringBuilder();
-            sb4 = new StringBuilder();
             results = new StringBuilder();
 
             // prepare results for output on display
             String s = "Combination " + (combinationIdx + 1) + ":";
             s += "Sequence " + (blockIdx + 1) + " of " + numberOfSessions + ":";
             s += "Number of trials = " + numberOfTrials + ":";
+            long dropped = samples.getDropped() + lostSamples;
+            if (dropped > 0) {
+                Log.w(MYDEBUG, "touch samples dropped (the sd4 writer fell behind): " + dropped);
+                s += "Touch samples dropped = " + dropped + ":";
+            }
+            s += latency.getSummary();
+            latency.clear();
             results.append(s);
             zoomPanel.resultsString = results.toString().split(":");
 
@@ -852,6 +1250,9 @@ public class ZoomActivity extends Activity
                 }
             }
         zoomPanel.waitStartCircleSelect = true;
+        checkpoint();
+        sampleWriter.requestFlush(); // the sd4 rows are written by the sample writer thread
+        discardJournal();
     }
 
     void showCombination() {
@@ -864,8 +1265,11 @@ public class ZoomActivity extends Activity
     {
         try
         {
-            sd1.close();
-            sd2.close();
+            // write any data still queued and close the files (waits until the data are written)
+            sampleWriter.finish();
+            dataWriter.close();
+            journal.delete(); // the session is done
+            touchJournal.delete();
 
             /*
              * Make the saved data files visible in Windows Explorer. There seems to be bug doing
@@ -874,7 +1278,8 @@ public class ZoomActivity extends Activity
              *
              * http://code.google.com/p/android/issues/detail?id=38282
              */
-            MediaScannerConnection.scanFile(this, new String[] {f1.getAbsolutePath(), f2.getAbsolutePath()}, null, null);
+            MediaScannerConnection.scanFile(this, new String[] {f1.getAbsolutePath(), f2.getAbsolutePath(),
+                    latency.file.getAbsolutePath()}, null, null);
         } catch (IOException e)
         {
             Log.d("MYDEBUG", "FILE CLOSE ERROR! e = " + e);